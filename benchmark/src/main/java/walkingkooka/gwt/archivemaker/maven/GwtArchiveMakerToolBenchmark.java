@@ -0,0 +1,257 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import walkingkooka.j2cl.maven.J2clArtifact;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * JMH benchmarks for each phase of {@link GwtArchiveMakerTool} and the complete tool, against a jar produced by
+ * {@link SyntheticJ2clJarGenerator}. Each phase is measured against a tool that has completed all earlier phases, except
+ * shading whose cost is rewriting the content of the java sources, which is measured over every source of the jar.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GwtArchiveMakerToolBenchmark {
+
+    /**
+     * The synthetic jar, its java sources and shade index, the pom and a warm context shared by all invocations of a
+     * trial.
+     */
+    @State(Scope.Benchmark)
+    public static class Jar {
+
+        @Param({"1000", "10000", "100000"})
+        public int entries;
+
+        @Param({"0.5"})
+        public double sourceRatio;
+
+        @Param({"8"})
+        public int shadeMappings;
+
+        @Param({"32"})
+        public int globPatterns;
+
+        @Param({"1", "4"})
+        public int threads;
+
+        Path directory;
+
+        Path input;
+
+        Path pom;
+
+        Path output;
+
+        GwtArchiveMakerToolContext context;
+
+        List<byte[]> sources;
+
+        JarArchiveShadeIndex shadeIndex;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            this.directory = Files.createTempDirectory("gwt-archive-maker-benchmark");
+            this.input = this.directory.resolve("input.jar");
+            this.pom = this.directory.resolve("pom.xml");
+            this.output = this.directory.resolve("output.jar");
+
+            SyntheticJ2clJarGenerator.with(
+                    this.entries,
+                    this.sourceRatio,
+                    this.shadeMappings,
+                    this.globPatterns
+            ).write(this.input);
+            SyntheticJ2clJarGenerator.writePom(this.pom);
+
+            this.context = GwtArchiveMakerToolContext.with(
+                    GwtArchiveMakerToolOptions.DEFAULT.setThreads(this.threads)
+            );
+
+            final List<byte[]> sources = new ArrayList<>();
+            try (final JarFile file = new JarFile(this.input.toFile())) {
+                final Enumeration<JarEntry> entries = file.entries();
+                while (entries.hasMoreElements()) {
+                    final JarEntry entry = entries.nextElement();
+                    try (final InputStream input = file.getInputStream(entry)) {
+                        if (entry.getName().endsWith(".java")) {
+                            sources.add(input.readAllBytes());
+                        } else if (J2clArtifact.SHADE_FILE.equals(entry.getName())) {
+                            this.shadeIndex = this.context.shadeIndex(input.readAllBytes());
+                        }
+                    }
+                }
+            }
+            this.sources = sources;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            this.context.close();
+
+            try (final Stream<Path> paths = Files.walk(this.directory)) {
+                paths.sorted(Comparator.reverseOrder())
+                        .forEach(p -> p.toFile().delete());
+            }
+        }
+
+        GwtArchiveMakerTool read() throws Exception {
+            return GwtArchiveMakerTool.read(this.input, this.context);
+        }
+    }
+
+    /**
+     * Base for states holding a tool that has completed all phases before the measured phase.
+     */
+    public abstract static class ToolState {
+
+        GwtArchiveMakerTool tool;
+
+        @Setup(Level.Invocation)
+        public void setup(final Jar jar) throws Exception {
+            this.tool = jar.read();
+            this.prepare(this.tool, jar);
+        }
+
+        abstract void prepare(final GwtArchiveMakerTool tool, final Jar jar) throws Exception;
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws Exception {
+            this.tool.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Read extends ToolState {
+        @Override
+        void prepare(final GwtArchiveMakerTool tool, final Jar jar) {
+            // nothing
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MovePublic extends ToolState {
+        @Override
+        void prepare(final GwtArchiveMakerTool tool, final Jar jar) {
+            tool.removeIgnoredFiles();
+            tool.shadeFiles();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Write extends ToolState {
+        @Override
+        void prepare(final GwtArchiveMakerTool tool, final Jar jar) throws Exception {
+            tool.removeIgnoredFiles();
+            tool.shadeFiles();
+            tool.movePublicFiles();
+            tool.removeIgnoredFiles();
+            tool.synthesizeMavenFiles(jar.pom);
+        }
+    }
+
+    @Benchmark
+    public GwtArchiveMakerTool read(final Jar jar) throws Exception {
+        try (final GwtArchiveMakerTool tool = jar.read()) {
+            return tool;
+        }
+    }
+
+    @Benchmark
+    public GwtArchiveMakerTool removeIgnoredFiles(final Read state) {
+        state.tool.removeIgnoredFiles();
+        return state.tool;
+    }
+
+    /**
+     * Shades the content of every java source, as each is shaded while the archive is written.
+     */
+    @Benchmark
+    public void shade(final Jar jar,
+                      final Blackhole blackhole) {
+        final GwtArchiveMakerToolContext context = jar.context;
+        final JarArchiveShadeIndex shadeIndex = jar.shadeIndex;
+
+        for (final byte[] source : jar.sources) {
+            blackhole.consume(
+                    context.shade(
+                            source,
+                            shadeIndex
+                    )
+            );
+        }
+    }
+
+    @Benchmark
+    public GwtArchiveMakerTool movePublicFiles(final MovePublic state) {
+        state.tool.movePublicFiles();
+        return state.tool;
+    }
+
+    @Benchmark
+    public GwtArchiveMakerTool createArchiveAndWrite(final Write state,
+                                                     final Jar jar) throws Exception {
+        state.tool.createArchiveAndWrite(jar.output);
+        return state.tool;
+    }
+
+    /**
+     * Makes the archive with the context of the trial, so the pool and parsed files are not created again.
+     */
+    @Benchmark
+    public GwtArchiveMakerTool make(final Jar jar) throws Exception {
+        return GwtArchiveMakerTool.make(
+                GwtArchiveMakerToolArchive.with(
+                        jar.input,
+                        jar.output,
+                        jar.pom
+                ),
+                jar.context
+        );
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import walkingkooka.j2cl.maven.J2clArtifact;
+import walkingkooka.j2cl.maven.J2clArtifactShadeFile;
+import walkingkooka.javashader.JavaShaders;
+import walkingkooka.reflect.PackageName;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Compares {@link JarArchiveJavaShader} with {@link JavaShaders} over the java sources of a synthetic jar. The setup
+ * fails if the byte level shader produces any source different from the java shader.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JarArchiveJavaShaderBenchmark {
+
+    @Param({"10000"})
+    public int entries;
+
+    @Param({"8"})
+    public int shadeMappings;
+
+    List<byte[]> sources;
+
+    JarArchiveShadeIndex index;
+
+    BiFunction<byte[], Map<PackageName, PackageName>, byte[]> javaShaders;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final Path jar = Files.createTempFile("gwt-archive-maker-shader-benchmark", ".jar");
+        try {
+            SyntheticJ2clJarGenerator.with(
+                    this.entries,
+                    1,
+                    this.shadeMappings,
+                    1
+            ).write(jar);
+
+            final List<byte[]> sources = new ArrayList<>();
+            try (final JarFile file = new JarFile(jar.toFile())) {
+                final Enumeration<JarEntry> entries = file.entries();
+                while (entries.hasMoreElements()) {
+                    final JarEntry entry = entries.nextElement();
+                    try (final InputStream input = file.getInputStream(entry)) {
+                        if (entry.getName().endsWith(".java")) {
+                            sources.add(input.readAllBytes());
+                        } else if (J2clArtifact.SHADE_FILE.equals(entry.getName())) {
+                            this.index = JarArchiveShadeIndex.with(
+                                    J2clArtifactShadeFile.readShadeFile(input),
+                                    Charset.defaultCharset()
+                            );
+                        }
+                    }
+                }
+            }
+            this.sources = sources;
+        } finally {
+            Files.delete(jar);
+        }
+
+        this.javaShaders = JavaShaders.javaFilePackageShader(Charset.defaultCharset());
+        this.verify();
+    }
+
+    /**
+     * Fails if any source shaded by the byte level shader is different from the java shader.
+     */
+    private void verify() {
+        final JarArchiveJavaShader javaShader = this.index.javaShader();
+        if (null == javaShader) {
+            throw new IllegalStateException("Byte level shader unsupported for " + this.index + " or charset " + Charset.defaultCharset());
+        }
+
+        int fallbacks = 0;
+        for (final byte[] source : this.sources) {
+            final byte[] shaded = javaShader.shade(source);
+            if (null == shaded) {
+                fallbacks++;
+            } else {
+                final byte[] expected = this.javaShaders.apply(
+                        source,
+                        this.index.shadings()
+                );
+                if (false == Arrays.equals(expected, shaded)) {
+                    throw new IllegalStateException("Byte level shader different from java shader for\n" + new String(source, Charset.defaultCharset()));
+                }
+            }
+        }
+
+        if (fallbacks > 0) {
+            System.err.println(fallbacks + " of " + this.sources.size() + " sources fell back to the java shader");
+        }
+    }
+
+    @Benchmark
+    public void javaShader(final Blackhole blackhole) {
+        final JarArchiveJavaShader javaShader = this.index.javaShader();
+        for (final byte[] source : this.sources) {
+            blackhole.consume(
+                    javaShader.shade(source)
+            );
+        }
+    }
+
+    @Benchmark
+    public void javaShaders(final Blackhole blackhole) {
+        final Map<PackageName, PackageName> shadings = this.index.shadings();
+        for (final byte[] source : this.sources) {
+            blackhole.consume(
+                    this.javaShaders.apply(source, shadings)
+            );
+        }
+    }
+}
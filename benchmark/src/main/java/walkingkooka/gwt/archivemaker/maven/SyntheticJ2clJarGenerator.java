@@ -0,0 +1,298 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.j2cl.maven.J2clArtifact;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Generates a synthetic J2CL jar with a GWT module, shade file, ignored and public files, with a configurable number
+ * of entries, mix of *.java and *.class files, number of shade mappings and number of glob patterns. The same
+ * parameters always produce the same jar.
+ * <pre>
+ * java walkingkooka.gwt.archivemaker.maven.SyntheticJ2clJarGenerator output.jar entries source-ratio shade-mappings glob-patterns
+ * </pre>
+ */
+public final class SyntheticJ2clJarGenerator {
+
+    public static void main(final String[] arguments) throws IOException {
+        if (5 != arguments.length) {
+            System.err.println("Expected 5 arguments: output-jar-path, entries, source-ratio, shade-mappings, glob-patterns");
+            return;
+        }
+
+        SyntheticJ2clJarGenerator.with(
+                Integer.parseInt(arguments[1]),
+                Double.parseDouble(arguments[2]),
+                Integer.parseInt(arguments[3]),
+                Integer.parseInt(arguments[4])
+        ).write(Paths.get(arguments[0]));
+    }
+
+    /**
+     * The directory holding the GWT module.
+     */
+    final static String MODULE_DIRECTORY = "bench";
+
+    /**
+     * The number of packages that are never shaded.
+     */
+    private final static int PLAIN_PACKAGES = 16;
+
+    /**
+     * One in this many entries is a public file and one in this many is ignored.
+     */
+    private final static int PUBLIC_AND_IGNORED_EVERY = 100;
+
+    static SyntheticJ2clJarGenerator with(final int entries,
+                                          final double sourceRatio,
+                                          final int shadeMappings,
+                                          final int globPatterns) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("Invalid entries " + entries + " < 1");
+        }
+        if (sourceRatio < 0 || sourceRatio > 1) {
+            throw new IllegalArgumentException("Invalid sourceRatio " + sourceRatio + " not between 0 and 1");
+        }
+        if (shadeMappings < 0) {
+            throw new IllegalArgumentException("Invalid shadeMappings " + shadeMappings + " < 0");
+        }
+        if (globPatterns < 1) {
+            throw new IllegalArgumentException("Invalid globPatterns " + globPatterns + " < 1");
+        }
+
+        return new SyntheticJ2clJarGenerator(
+                entries,
+                sourceRatio,
+                shadeMappings,
+                globPatterns
+        );
+    }
+
+    private SyntheticJ2clJarGenerator(final int entries,
+                                      final double sourceRatio,
+                                      final int shadeMappings,
+                                      final int globPatterns) {
+        this.entries = entries;
+        this.sourceRatio = sourceRatio;
+        this.shadeMappings = shadeMappings;
+        this.globPatterns = globPatterns;
+    }
+
+    /**
+     * Writes the jar to the given path.
+     */
+    void write(final Path path) throws IOException {
+        final Random random = new Random(this.entries);
+
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+
+        try (final JarOutputStream jar = new JarOutputStream(Files.newOutputStream(path), manifest)) {
+            write(
+                    jar,
+                    MODULE_DIRECTORY + "/Bench.gwt.xml",
+                    "<module>\n" +
+                            "  <source path=\"\"/>\n" +
+                            "  <super-source path=\"super\"/>\n" +
+                            "  <public path=\"public\"/>\n" +
+                            "</module>\n"
+            );
+            write(jar, J2clArtifact.SHADE_FILE, this.shadeFile());
+            write(jar, J2clArtifact.IGNORED_FILES, this.globFile("Ignored*.txt"));
+            write(jar, J2clArtifact.PUBLIC_FILES, this.globFile("Public*.css"));
+
+            for (int i = 0; i < this.entries; i++) {
+                final String directory = this.packageName(i).replace('.', '/');
+
+                if (0 == i % PUBLIC_AND_IGNORED_EVERY) {
+                    write(jar, plainDirectory(i) + "/Public" + i + ".css", "body { margin: " + i + "px; }\n");
+                } else if (1 == i % PUBLIC_AND_IGNORED_EVERY) {
+                    write(jar, plainDirectory(i) + "/Ignored" + i + ".txt", "ignored " + i + "\n");
+                } else if (random.nextDouble() < this.sourceRatio) {
+                    write(jar, directory + "/Type" + i + ".java", this.javaSource(i));
+                } else {
+                    write(jar, directory + "/Type" + i + ".class", classFile(random));
+                }
+            }
+        }
+    }
+
+    /**
+     * One in four entries is in a shaded package, the remainder are in one of the plain packages.
+     */
+    private String packageName(final int i) {
+        final int shadeMappings = this.shadeMappings;
+
+        return shadeMappings > 0 && 0 == i % 4 ?
+                MODULE_DIRECTORY + ".shaded" + (i / 4) % shadeMappings :
+                MODULE_DIRECTORY + ".plain" + i % PLAIN_PACKAGES;
+    }
+
+    /**
+     * Public and ignored files are always in a plain package, where the glob patterns match.
+     */
+    private static String plainDirectory(final int i) {
+        return MODULE_DIRECTORY + "/plain" + (i / PUBLIC_AND_IGNORED_EVERY) % PLAIN_PACKAGES;
+    }
+
+    private String shadeFile() {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < this.shadeMappings; i++) {
+            text.append(MODULE_DIRECTORY)
+                    .append(".shaded")
+                    .append(i)
+                    .append("=java.shaded")
+                    .append(i)
+                    .append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * A glob file with one matching pattern for each package followed by patterns that never match, up to the
+     * requested number of patterns.
+     */
+    private String globFile(final String fileName) {
+        final StringBuilder text = new StringBuilder();
+
+        int count = 0;
+        for (int i = 0; i < PLAIN_PACKAGES && count < this.globPatterns; i++) {
+            text.append(MODULE_DIRECTORY)
+                    .append("/plain")
+                    .append(i)
+                    .append('/')
+                    .append(fileName)
+                    .append('\n');
+            count++;
+        }
+        for (int i = 0; count < this.globPatterns; i++) {
+            text.append(MODULE_DIRECTORY)
+                    .append("/unmatched")
+                    .append(i)
+                    .append("/*.")
+                    .append(i)
+                    .append('\n');
+            count++;
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * A java source of about 2k, importing a shaded and plain package.
+     */
+    private String javaSource(final int i) {
+        final StringBuilder text = new StringBuilder();
+        text.append("package ").append(this.packageName(i)).append(";\n\n");
+        if (this.shadeMappings > 0) {
+            text.append("import ").append(MODULE_DIRECTORY).append(".shaded").append(i % this.shadeMappings).append(".Type0;\n");
+        }
+        text.append("import ").append(MODULE_DIRECTORY).append(".plain").append(i % PLAIN_PACKAGES).append(".Type1;\n\n");
+        text.append("/**\n * Synthetic type ").append(i).append("\n */\n");
+        text.append("public final class Type").append(i).append(" {\n");
+        for (int m = 0; m < 16; m++) {
+            text.append("\n    // method ").append(m).append(" returns a \"string\" literal\n");
+            text.append("    public static String method").append(m).append("(final int value) {\n");
+            text.append("        return \"value=\" + (value + ").append(m).append(");\n");
+            text.append("    }\n");
+        }
+        text.append("}\n");
+        return text.toString();
+    }
+
+    /**
+     * About 1.5k of bytes from a small alphabet, which compresses similar to real class files.
+     */
+    private static byte[] classFile(final Random random) {
+        final byte[] content = new byte[1024 + random.nextInt(1024)];
+        content[0] = (byte) 0xCA;
+        content[1] = (byte) 0xFE;
+        content[2] = (byte) 0xBA;
+        content[3] = (byte) 0xBE;
+        for (int i = 4; i < content.length; i++) {
+            content[i] = (byte) random.nextInt(32);
+        }
+        return content;
+    }
+
+    private static void write(final JarOutputStream jar,
+                              final String path,
+                              final String content) throws IOException {
+        write(
+                jar,
+                path,
+                content.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    private static void write(final JarOutputStream jar,
+                              final String path,
+                              final byte[] content) throws IOException {
+        final JarEntry entry = new JarEntry(path);
+        entry.setTime(0);
+        jar.putNextEntry(entry);
+        jar.write(content);
+        jar.closeEntry();
+    }
+
+    /**
+     * Writes a replacement pom for the synthetic jar.
+     */
+    static void writePom(final Path path) throws IOException {
+        try (final OutputStream output = Files.newOutputStream(path)) {
+            output.write(
+                    ("<project>\n" +
+                            "  <modelVersion>4.0.0</modelVersion>\n" +
+                            "  <groupId>bench</groupId>\n" +
+                            "  <artifactId>bench-gwt</artifactId>\n" +
+                            "  <version>1.0</version>\n" +
+                            "</project>\n").getBytes(StandardCharsets.UTF_8)
+            );
+        }
+    }
+
+    private final int entries;
+
+    private final double sourceRatio;
+
+    private final int shadeMappings;
+
+    private final int globPatterns;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return "entries=" + this.entries +
+                " sourceRatio=" + this.sourceRatio +
+                " shadeMappings=" + this.shadeMappings +
+                " globPatterns=" + this.globPatterns;
+    }
+}
@@ -17,48 +17,113 @@
 
 package walkingkooka.gwt.archivemaker.maven;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import walkingkooka.collect.iterable.Iterables;
-import walkingkooka.collect.iterator.Iterators;
 import walkingkooka.collect.list.Lists;
-import walkingkooka.file.Files2;
+import walkingkooka.collect.map.Maps;
 import walkingkooka.j2cl.maven.J2clArtifact;
-import walkingkooka.j2cl.maven.J2clArtifactShadeFile;
-import walkingkooka.javashader.JavaShaders;
 import walkingkooka.reflect.PackageName;
-import walkingkooka.text.CaseSensitivity;
 import walkingkooka.text.CharSequences;
 import walkingkooka.text.LineEnding;
 
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.ByteArrayInputStream;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Iterator;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 import java.util.jar.Attributes;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
 
-public final class GwtArchiveMakerTool {
+public final class GwtArchiveMakerTool implements AutoCloseable {
 
     public static void main(final String[] arguments) throws Exception {
         final int argumentCount = arguments.length;
 
+        if (argumentCount >= 4 && WATCH_ARGUMENT.equals(arguments[0])) {
+            GwtArchiveMakerToolOptions options = GwtArchiveMakerToolOptions.DEFAULT;
+
+            switch (argumentCount) {
+                case 6:
+                    options = options.setOutputFormat(
+                            GwtArchiveMakerToolOutputFormat.parse(arguments[5])
+                    );
+                    // fall through
+                case 5:
+                    options = options.setThreads(
+                            Integer.parseInt(arguments[4])
+                    );
+                    // fall through
+                case 4:
+                    GwtArchiveMakerToolWatcher.with(
+                            GwtArchiveMakerToolArchive.with(
+                                    Paths.get(arguments[1]),
+                                    Paths.get(arguments[2]),
+                                    Paths.get(arguments[3])
+                            ),
+                            options,
+                            System.out
+                    ).run();
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    break;
+            }
+            return;
+        }
+
+        if (argumentCount >= 2 && MANIFEST_ARGUMENT.equals(arguments[0])) {
+            switch (argumentCount) {
+                case 2:
+                    GwtArchiveMakerTool.makeAll(
+                            readManifest(Paths.get(arguments[1])),
+                            GwtArchiveMakerToolOptions.DEFAULT
+                    );
+                    break;
+                case 3:
+                    GwtArchiveMakerTool.makeAll(
+                            readManifest(Paths.get(arguments[1])),
+                            GwtArchiveMakerToolOptions.DEFAULT.setThreads(
+                                    Integer.parseInt(arguments[2])
+                            )
+                    );
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    break;
+            }
+            return;
+        }
+
         switch (argumentCount) {
             case 3:
                 GwtArchiveMakerTool.make(
@@ -67,223 +132,529 @@ public final class GwtArchiveMakerTool {
                         Paths.get(arguments[2])
                 );
                 break;
+            case 4:
+                GwtArchiveMakerTool.make(
+                        Paths.get(arguments[0]),
+                        Paths.get(arguments[1]),
+                        Paths.get(arguments[2]),
+                        GwtArchiveMakerToolOptions.DEFAULT.setThreads(
+                                Integer.parseInt(arguments[3])
+                        )
+                );
+                break;
             default:
-                System.err.println("Expected 3 arguments: input-jar-path, output-jar-path, module-gwt-xml-path");
+                System.err.println(USAGE);
                 break;
         }
     }
 
+    private final static String MANIFEST_ARGUMENT = "--manifest";
+
+    private final static String WATCH_ARGUMENT = "--watch";
+
+    private final static String USAGE = "Expected 3 or 4 arguments: input-jar-path, output-jar-path, module-gwt-xml-path, [threads]" + LineEnding.SYSTEM +
+            "or " + MANIFEST_ARGUMENT + " manifest-file-path [threads]" + LineEnding.SYSTEM +
+            "or " + WATCH_ARGUMENT + " input-jar-or-directory-path, output-path, module-gwt-xml-path, [threads [jar|directory]]";
+
+    /**
+     * Reads a manifest file with one archive per line, each line holding the input jar, output jar and pom separated by
+     * whitespace. Empty lines and lines beginning with # are ignored, and relative paths are resolved against the
+     * directory holding the manifest file.
+     */
+    static List<GwtArchiveMakerToolArchive> readManifest(final Path manifest) throws IOException {
+        final Path base = manifest.toAbsolutePath()
+                .getParent();
+        final List<GwtArchiveMakerToolArchive> archives = Lists.array();
+
+        int lineNumber = 0;
+        for (final String line : Files.readAllLines(manifest, Charset.defaultCharset())) {
+            lineNumber++;
+
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+
+            final String[] paths = trimmed.split("\\s+");
+            if (3 != paths.length) {
+                throw new IllegalArgumentException("Invalid line " + lineNumber + " in " + manifest + " expected input-jar-path, output-jar-path, module-gwt-xml-path but got " + CharSequences.quoteAndEscape(line));
+            }
+
+            archives.add(
+                    GwtArchiveMakerToolArchive.with(
+                            base.resolve(paths[0]),
+                            base.resolve(paths[1]),
+                            base.resolve(paths[2])
+                    )
+            );
+        }
+
+        return archives;
+    }
+
     private final static String META_INF = "META-INF";
     private final static String MANIFEST_PATH = META_INF + "/MANIFEST.MF";
 
     static GwtArchiveMakerTool make(final Path archiveIn,
                                     final Path archiveOut,
                                     final Path pom) throws Exception {
+        return make(
+                archiveIn,
+                archiveOut,
+                pom,
+                GwtArchiveMakerToolOptions.DEFAULT
+        );
+    }
+
+    static GwtArchiveMakerTool make(final Path archiveIn,
+                                    final Path archiveOut,
+                                    final Path pom,
+                                    final GwtArchiveMakerToolOptions options) throws Exception {
+        try (final GwtArchiveMakerToolContext context = GwtArchiveMakerToolContext.with(options)) {
+            return make(
+                    GwtArchiveMakerToolArchive.with(
+                            archiveIn,
+                            archiveOut,
+                            pom
+                    ),
+                    context
+            );
+        }
+    }
+
+    /**
+     * Makes all the given archives concurrently, sharing the worker threads, XML readers and parsed glob and shade
+     * files. Every archive is attempted, and the first failure is thrown with any others suppressed. The metrics of each
+     * archive are returned in the same order as the archives.
+     */
+    static List<GwtArchiveMakerToolMetrics> makeAll(final List<GwtArchiveMakerToolArchive> archives,
+                                                    final GwtArchiveMakerToolOptions options) throws Exception {
+        Objects.requireNonNull(archives, "archives");
+
+        final List<GwtArchiveMakerToolMetrics> metrics = Lists.array();
+
+        try (final GwtArchiveMakerToolContext context = GwtArchiveMakerToolContext.with(options)) {
+            final int concurrent = Math.min(
+                    archives.size(),
+                    options.threads()
+            );
+
+            if (concurrent <= 1) {
+                for (final GwtArchiveMakerToolArchive archive : archives) {
+                    metrics.add(
+                            make(archive, context)
+                                    .metrics()
+                    );
+                }
+            } else {
+                // archives are made by their own pool, which waits upon entries prepared by the context pool.
+                final ExecutorService executor = Executors.newFixedThreadPool(concurrent);
+                try {
+                    final List<Future<GwtArchiveMakerTool>> futures = Lists.array();
+                    for (final GwtArchiveMakerToolArchive archive : archives) {
+                        futures.add(
+                                executor.submit(
+                                        () -> make(archive, context)
+                                )
+                        );
+                    }
+
+                    Exception failure = null;
+                    for (int i = 0; i < futures.size(); i++) {
+                        try {
+                            metrics.add(
+                                    futures.get(i)
+                                            .get()
+                                            .metrics()
+                            );
+                        } catch (final ExecutionException cause) {
+                            final Throwable wrapped = cause.getCause();
+                            final Exception archiveFailure = new IllegalStateException(
+                                    "Unable to make " + archives.get(i).output() + ": " + wrapped.getMessage(),
+                                    wrapped
+                            );
+                            if (null == failure) {
+                                failure = archiveFailure;
+                            } else {
+                                failure.addSuppressed(archiveFailure);
+                            }
+                        }
+                    }
+
+                    if (null != failure) {
+                        throw failure;
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        }
+
+        return metrics;
+    }
+
+    static GwtArchiveMakerTool make(final GwtArchiveMakerToolArchive archive,
+                                    final GwtArchiveMakerToolContext context) throws Exception {
+        checkArchive(archive);
+
+        try (final GwtArchiveMakerTool tool = read(archive.input(), archive.sources(), context)) {
+            tool.transform(archive);
+
+            switch (context.options().outputFormat()) {
+                case JAR:
+                    tool.createArchiveAndWrite(archive.output());
+                    break;
+                case DIRECTORY:
+                    tool.createDirectoryAndWrite(archive.output());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown output format " + context.options().outputFormat());
+            }
+            return tool;
+        }
+    }
+
+    /**
+     * Returns the plan for each of the given archives without writing anything, reading only the central directory and
+     * control files of each input jar.
+     */
+    static List<GwtArchiveMakerToolPlan> planAll(final List<GwtArchiveMakerToolArchive> archives,
+                                                 final GwtArchiveMakerToolOptions options) throws Exception {
+        Objects.requireNonNull(archives, "archives");
+
+        final List<GwtArchiveMakerToolPlan> plans = Lists.array();
+
+        try (final GwtArchiveMakerToolContext context = GwtArchiveMakerToolContext.with(options)) {
+            for (final GwtArchiveMakerToolArchive archive : archives) {
+                checkArchive(archive);
+
+                try (final GwtArchiveMakerTool tool = read(archive.input(), archive.sources(), context)) {
+                    tool.transform(archive);
+                    plans.add(
+                            tool.plan()
+                    );
+                }
+            }
+        }
+
+        return plans;
+    }
+
+    private static void checkArchive(final GwtArchiveMakerToolArchive archive) {
+        final Path archiveIn = archive.input();
+
         if (false == archiveIn.toFile().exists()) {
-            throw new IllegalArgumentException("Unable to find input *.jar file: " + archiveIn.toAbsolutePath());
+            throw new IllegalArgumentException("Unable to find input *.jar file or directory: " + archiveIn.toAbsolutePath());
         }
-        if (!pom.toFile().exists()) {
+        if (!archive.pom().toFile().exists()) {
             throw new IllegalArgumentException("Unable to find replacement POM.XML for built jar file: " + archiveIn.toAbsolutePath());
         }
+    }
+
+    /**
+     * Performs all phases before the archive is written, which decide the fate of every entry without inflating any,
+     * except those merged from other jars with the same path.
+     */
+    private void transform(final GwtArchiveMakerToolArchive archive) throws Exception {
+        this.transformFiles();
+        this.synthesizeMavenFiles(archive.pom());
+
+        final List<Path> merge = archive.merge();
+        if (false == merge.isEmpty()) {
+            this.mergeFiles(
+                    merge,
+                    archive.mergeModule()
+            );
+        }
+    }
+
+    /**
+     * Removes ignored files, shades and moves public files, the phases performed upon every input and merged jar.
+     */
+    private void transformFiles() {
+        this.removeIgnoredFiles();
+        this.shadeFiles();
+        this.movePublicFiles();
+        this.removeIgnoredFiles();
+    }
 
-        return new GwtArchiveMakerTool(
+    static GwtArchiveMakerTool read(final Path archiveIn,
+                                    final GwtArchiveMakerToolContext context) throws Exception {
+        return read(
                 archiveIn,
-                archiveOut,
-                pom
+                Lists.empty(),
+                context
         );
     }
 
-    private GwtArchiveMakerTool(final Path archiveIn,
-                                final Path archiveOut,
-                                final Path pom) throws Exception {
+    /**
+     * Opens the jar file or directories reading only their metadata files, returning a tool ready for the remaining
+     * phases. The jar file remains open until the tool is closed, all other entries are streamed one at a time by
+     * {@link #createArchiveAndWrite(Path)}.
+     */
+    static GwtArchiveMakerTool read(final Path archiveIn,
+                                    final List<Path> sources,
+                                    final GwtArchiveMakerToolContext context) throws Exception {
+        final GwtArchiveMakerToolMetrics metrics = GwtArchiveMakerToolMetrics.with(archiveIn);
+        final GwtArchiveMakerToolMetrics.Phase phase = metrics.begin(GwtArchiveMakerToolPhase.READ);
+
+        final JarArchiveSource jarFile = JarArchiveSource.open(archiveIn, sources);
+        try {
+            final GwtArchiveMakerTool tool = new GwtArchiveMakerTool(
+                    jarFile,
+                    context,
+                    metrics
+            );
+
+            int entries = 0;
+            long size = 0;
+            long compressedSize = 0;
+            for (final JarArchiveReaderEntry entry : jarFile.entries()) {
+                if (false == entry.isDirectory()) {
+                    entries++;
+                    size += entry.size();
+                    compressedSize += entry.compressedSize();
+                }
+            }
+
+            phase.end(
+                    entries,
+                    tool.entries(),
+                    size,
+                    tool.bytes(),
+                    compressedSize,
+                    size
+            );
+
+            // the excluded entries are reported as their own phase, which measures what they would have cost
+            if (tool.excludedEntries > 0) {
+                metrics.begin(GwtArchiveMakerToolPhase.EXCLUDE)
+                        .end(
+                                tool.entries() + tool.excludedEntries,
+                                tool.entries(),
+                                tool.bytes() + tool.excludedBytes,
+                                tool.bytes(),
+                                tool.excludedCompressedBytes,
+                                tool.excludedBytes
+                        );
+            }
+            return tool;
+        } catch (final Exception cause) {
+            jarFile.close();
+            throw cause;
+        }
+    }
+
+    private GwtArchiveMakerTool(final JarArchiveSource jarFile,
+                                final GwtArchiveMakerToolContext context,
+                                final GwtArchiveMakerToolMetrics metrics) throws Exception {
+        this.jarFile = jarFile;
+        this.context = context;
+        this.options = context.options();
+        this.metrics = metrics;
+
         final List<JarArchiveFileEntry> files = Lists.array();
 
         Manifest manifest = null;
-        Map<PackageName, PackageName> shadings = null;
+        JarArchiveShadeIndex shadeIndex = null;
+        String shadeFileHash = null;
         Predicate<String> ignoreFiles = null;
         Predicate<String> publicFiles = null;
-        String publicOutput = null;
-        String superOutput = null;
-
-        try (final JarFile jarFile = new JarFile(archiveIn.toFile())) {
-            for (final JarEntry entry : Iterables.iterator(Iterators.enumeration(jarFile.entries()))) {
-                if (entry.isDirectory()) {
-                    continue;
-                }
-
-                final byte[] content = jarFile.getInputStream(entry)
-                        .readAllBytes();
-
-                final String name = entry.getName();
-                if (name.startsWith(META_INF)) {
-                    switch (name) {
-                        case MANIFEST_PATH:
-                            manifest = manifest(
-                                    new ByteArrayInputStream(content)
-                            );
-                            break;
-                        default:
-                            // ignore the POM.properties and POM.xml
-                    }
-                    continue;
-                }
+        final JarArchiveGwtModules modules = JarArchiveGwtModules.empty();
+        final GwtArchiveMakerToolOptions options = this.options;
+        int excludedEntries = 0;
+        long excludedBytes = 0;
+        long excludedCompressedBytes = 0;
+
+        for (final JarArchiveReaderEntry entry : jarFile.entries()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
 
-                // all other files.
+            final String name = entry.name();
+            if (name.startsWith(META_INF)) {
                 switch (name) {
-                    case J2clArtifact.CLASSPATH_REQUIRED_FILE:
-                    case J2clArtifact.IGNORED_DEPENDENCY_FILE:
-                    case J2clArtifact.JAVASCRIPT_SOURCE_REQUIRED_FILE:
-                        // ignore these files...
-                        break;
-                    case J2clArtifact.IGNORED_FILES:
-                        ignoreFiles = globPattern(content);
-                        break;
-                    case J2clArtifact.PUBLIC_FILES:
-                        publicFiles = globPattern(content);
-                        break;
-                    case J2clArtifact.SHADE_FILE:
-                        shadings = J2clArtifactShadeFile.readShadeFile(
-                                new ByteArrayInputStream(content)
+                    case MANIFEST_PATH:
+                        manifest = manifest(
+                                new ByteArrayInputStream(
+                                        jarFile.content(entry)
+                                )
                         );
+                        this.remove(name, GwtArchiveMakerToolPlanAction.CONTROL);
                         break;
                     default:
-                        if (name.endsWith(".gwt.xml")) {
-                            publicOutput = publicDirectory(name, content);
-                            superOutput = superSourceDirectory(name, content);
-                        }
+                        // ignore the POM.properties and POM.xml
+                        this.remove(name, GwtArchiveMakerToolPlanAction.DROP);
+                }
+                continue;
+            }
 
-                        files.add(
-                                JarArchiveFileEntry.with(
+            // all other files.
+            switch (name) {
+                case J2clArtifact.CLASSPATH_REQUIRED_FILE:
+                case J2clArtifact.IGNORED_DEPENDENCY_FILE:
+                case J2clArtifact.JAVASCRIPT_SOURCE_REQUIRED_FILE:
+                    // ignore these files...
+                    this.remove(name, GwtArchiveMakerToolPlanAction.CONTROL);
+                    break;
+                case J2clArtifact.IGNORED_FILES:
+                    ignoreFiles = context.globPattern(
+                            jarFile.content(entry)
+                    );
+                    this.remove(name, GwtArchiveMakerToolPlanAction.CONTROL);
+                    break;
+                case J2clArtifact.PUBLIC_FILES:
+                    publicFiles = context.globPattern(
+                            jarFile.content(entry)
+                    );
+                    this.remove(name, GwtArchiveMakerToolPlanAction.CONTROL);
+                    break;
+                case J2clArtifact.SHADE_FILE:
+                    final byte[] shadeFile = jarFile.content(entry);
+                    shadeIndex = context.shadeIndex(shadeFile);
+                    shadeFileHash = GwtArchiveMakerToolFingerprint.hex(
+                            GwtArchiveMakerToolFingerprint.sha256()
+                                    .digest(shadeFile)
+                    );
+                    this.remove(name, GwtArchiveMakerToolPlanAction.CONTROL);
+                    break;
+                default:
+                    if (name.endsWith(GWT_XML)) {
+                        modules.add(
+                                JarArchiveGwtModule.parse(
                                         name,
-                                        entry.getTime(),
-                                        content
+                                        context.xmlStreamReader(
+                                                new ByteArrayInputStream(
+                                                        jarFile.content(entry)
+                                                )
+                                        )
                                 )
                         );
+                    }
+
+                    // excluded entries are never inflated, modules are always kept
+                    if (options.isExcluded(name) && false == name.endsWith(GWT_XML)) {
+                        this.remove(name, GwtArchiveMakerToolPlanAction.EXCLUDE);
+                        excludedEntries++;
+                        excludedBytes += entry.size();
+                        excludedCompressedBytes += entry.compressedSize();
                         break;
-                }
+                    }
+
+                    files.add(
+                            JarArchiveFileEntry.source(entry)
+                    );
+                    break;
             }
         }
 
         this.files = files;
+        this.excludedEntries = excludedEntries;
+        this.excludedBytes = excludedBytes;
+        this.excludedCompressedBytes = excludedCompressedBytes;
 
         if (null == manifest) {
-            throw new IllegalArgumentException("Manifest missing from source jar file");
-        }
-        this.manifest = manifest;
-
-        if (null == publicOutput) {
-            throw new IllegalArgumentException("Required GWT module file (*.gwt.xml) missing");
-        }
+            if (jarFile.isJarFile()) {
+                throw new IllegalArgumentException("Manifest missing from source jar file");
+            }
 
-        if (null != ignoreFiles) {
-            this.removeIgnoredFiles(
-                    ignoreFiles
+            // directories such as target/classes never have a manifest
+            manifest = manifest(
+                    new ByteArrayInputStream(
+                            "Manifest-Version: 1.0\r\n".getBytes(StandardCharsets.UTF_8)
+                    )
             );
         }
+        this.manifest = manifest;
 
-        if (null != shadings && shadings.size() > 0) {
-            this.shadeFiles(
-                    shadings,
-                    superOutput
-            );
+        if (modules.isEmpty()) {
+            throw new IllegalArgumentException("Required GWT module file (*.gwt.xml) missing");
         }
 
-        if (null != publicFiles) {
-            this.movePublicFiles(
-                    publicFiles,
-                    publicOutput
-            );
-        }
+        this.ignoreFiles = ignoreFiles;
+        this.shadeIndex = null != shadeIndex && false == shadeIndex.isEmpty() ?
+                shadeIndex :
+                null;
+        this.shadeFileHash = shadeFileHash;
+        this.publicFiles = publicFiles;
+        this.modules = modules;
+    }
 
-        if (null != ignoreFiles) {
-            this.removeIgnoredFiles(
-                    ignoreFiles
-            );
-        }
+    private final JarArchiveSource jarFile;
 
-        this.synthesizeMavenFiles(pom);
+    private final GwtArchiveMakerToolContext context;
 
-        this.createArchiveAndWrite(
-                archiveOut
-        );
-    }
+    private final GwtArchiveMakerToolOptions options;
 
-    private static Predicate<String> globPattern(final byte[] contents) {
-        return Files2.globPatterns(
-                new String(
-                        contents,
-                        Charset.defaultCharset()
-                ),
-                CaseSensitivity.SENSITIVE
-        );
+    /**
+     * Records the time, entries and bytes of each phase.
+     */
+    GwtArchiveMakerToolMetrics metrics() {
+        return this.metrics;
     }
 
+    private final GwtArchiveMakerToolMetrics metrics;
 
     private final Manifest manifest;
 
-    private final List<JarArchiveFileEntry> files;
+    private List<JarArchiveFileEntry> files;
 
     /**
-     * Reads the module gwt xml to get the public directory.
+     * The number, uncompressed and compressed size of entries excluded by the profile or excludes of the options.
      */
-    private static String publicDirectory(final String moduleGwtXml,
-                                          final byte[] content) throws Exception {
-        final String moduleParentDirectory = moduleXmlParentDirectory(moduleGwtXml);
-        return moduleParentDirectory + "/" + elementPathAttributeOrDefault(
-                content,
-                "public",
-                "public"
-        );
-    }
+    private final int excludedEntries;
+
+    private final long excludedBytes;
+
+    private final long excludedCompressedBytes;
 
     /**
-     * Reads the module gwt xml to get the super source directory.
+     * Source entries that will not be written, in the order they were removed.
      */
-    private static String superSourceDirectory(final String moduleGwtXml,
-                                               final byte[] content) throws Exception {
-        final String moduleParentDirectory = moduleXmlParentDirectory(moduleGwtXml);
-        return moduleParentDirectory + "/" + elementPathAttributeOrDefault(
-                content,
-                "super-source",
-                "super"
+    private final List<GwtArchiveMakerToolPlanEntry> removed = Lists.array();
+
+    private void remove(final String path,
+                        final GwtArchiveMakerToolPlanAction action) {
+        this.removed.add(
+                GwtArchiveMakerToolPlanEntry.with(
+                        Optional.of(path),
+                        Optional.empty(),
+                        action
+                )
         );
     }
 
-    private static String moduleXmlParentDirectory(final String moduleGwtXmlPath) {
-        final int parentDirectoryEnd = moduleGwtXmlPath.lastIndexOf('/');
-        if (-1 == parentDirectoryEnd) {
-            throw new IllegalArgumentException("GWT Module may not be in the root of the jar file.");
-        }
+    /**
+     * True once {@link #removeIgnoredFiles()} has tested every file.
+     */
+    private boolean ignoredFilesRemoved;
 
-        return moduleGwtXmlPath.substring(0, parentDirectoryEnd);
-    }
+    /**
+     * Tests paths that should be removed, will be null if the jar file did not include an ignored files file.
+     */
+    private final Predicate<String> ignoreFiles;
 
-    private static String elementPathAttributeOrDefault(final byte[] content,
-                                                        final String tagName,
-                                                        final String defaultValue) throws Exception {
-        try (final ByteArrayInputStream inputStream = new ByteArrayInputStream(content)) {
-            final Document document = DocumentBuilderFactory.newInstance()
-                    .newDocumentBuilder()
-                    .parse(inputStream);
+    /**
+     * The shadings read from the shade file, which will be null if the jar file did not include a shade file or it was
+     * empty. This is required when *.java files are written and need to be shaded.
+     */
+    private final JarArchiveShadeIndex shadeIndex;
 
-            final NodeList tags = document.getDocumentElement().getElementsByTagName(tagName);
+    /**
+     * A hash of the shade file, part of the key of shaded java sources in the output index.
+     */
+    private final String shadeFileHash;
 
-            final String result;
-            switch (tags.getLength()) {
-                case 0:
-                    result = defaultValue;
-                    break;
-                case 1:
-                    final Element element = (Element) tags.item(0);
-                    result = element.getAttribute("path");
-                    break;
-                default:
-                    throw new IllegalArgumentException("Got " + tags.getLength() + " " + CharSequences.quoteAndEscape(tagName) + " expected only 0 or 1");
-            }
+    /**
+     * Tests paths that should be moved to the public directory of the {@link JarArchiveGwtModule} owning them, will be
+     * null if the jar file did not include a public files file.
+     */
+    private final Predicate<String> publicFiles;
 
-            return result;
-        }
-    }
+    /**
+     * The GWT modules found in the jar file, each owning the public and super source directories of the files under it.
+     */
+    private final JarArchiveGwtModules modules;
 
     // Manifest-Version: 1.0
     // Created-By: Maven Jar Plugin 3.2.0
@@ -299,108 +670,152 @@ public final class GwtArchiveMakerTool {
     }
 
     /**
-     * All files are first checked and moved to match the first mapping.
-     * After that all *.java and *.clas files are then shaded as necessary.
+     * All files are first checked and moved to match the first mapping, using a {@link JarArchiveShadeIndex} so each
+     * file is visited once regardless of the number of mappings.
+     * After that all *.java and *.clas files are then shaded as necessary. The content of *.java files is shaded as
+     * each is written by {@link #createArchiveAndWrite(Path)}.
      */
-    private void shadeFiles(final Map<PackageName, PackageName> shadings,
-                            final String superDirectory) {
-        for (final Map.Entry<PackageName, PackageName> mapping : shadings.entrySet()) {
-            final String fromPackage = mapping.getKey().value();
-            final String toPackage = mapping.getValue().value();
+    void shadeFiles() {
+        final int entriesIn = this.entries();
+        final long bytesIn = this.bytes();
+        final GwtArchiveMakerToolMetrics.Phase phase = this.metrics.begin(GwtArchiveMakerToolPhase.SHADE);
+
+        final JarArchiveShadeIndex index = this.shadeIndex;
+        if (null != index) {
+            this.shadeFiles0(index);
+        }
 
-            final String fromDirectory = fromPackage.replace('.', '/');
+        phase.end(
+                entriesIn,
+                this.entries(),
+                bytesIn,
+                this.bytes()
+        );
+    }
 
-            // only try and move files that havent been moved before
-            this.files.stream()
-                    .filter(f -> !f.hasMoved())
-                    .filter(f -> {
-                        final String path = f.path();
-                        return path.startsWith(fromDirectory) && path.endsWith(".java");
-                    })
-                    .forEach(f -> {
-                                final String path = f.path();
-
-                                final String base;
-                                if (!fromPackage.equals(toPackage)) {
-                                    base = superDirectory + "/";
-                                } else {
-                                    base = "";
-                                }
-
-                                final String toDirectory = base + toPackage.replace('.', '/');
-                                f.setPath(
-                                        toDirectory + path.substring(fromDirectory.length())
-                                );
-                            }
-                    );
+    private void shadeFiles0(final JarArchiveShadeIndex index) {
+        final JarArchiveGwtModules modules = this.modules;
 
+        for (final JarArchiveFileEntry f : this.files) {
             // only try and move files that havent been moved before
-            this.files.stream()
-                    .filter(f -> !f.hasMoved())
-                    .filter(f -> {
-                        final String path = f.path();
-                        return path.startsWith(fromDirectory) && path.endsWith(".class");
-                    })
-                    .forEach(f -> {
-                                final String path = f.path();
-
-                                final String base;
-                                if (!fromPackage.equals(toPackage)) {
-                                    f.setContent(null);
-                                }
-
-                                final String toDirectory = toPackage.replace('.', '/');
-                                f.setPath(
-                                        toDirectory + path.substring(fromDirectory.length())
-                                );
-                            }
-                    );
+            if (f.hasMoved()) {
+                continue;
+            }
+
+            final String path = f.path();
+            final boolean java = path.endsWith(".java");
+            if (false == java && false == path.endsWith(".class")) {
+                continue;
+            }
+
+            final JarArchiveShadeIndex.Mapping mapping = index.mapping(path);
+            if (null == mapping) {
+                continue;
+            }
+
+            if (java) {
+                final String base;
+                if (mapping.isShaded()) {
+                    base = modules.module(path)
+                            .superSourceDirectory() + "/";
+                } else {
+                    base = "";
+                }
+
+                f.setPath(
+                        base + mapping.toPath(path)
+                );
+            } else {
+                if (mapping.isShaded()) {
+                    f.setContent(null);
+                }
+
+                f.setPath(
+                        mapping.toPath(path)
+                );
+            }
         }
 
         this.files.sort(
                 (final JarArchiveFileEntry l, final JarArchiveFileEntry r) -> l.path().compareTo(r.path())
         );
+    }
 
-        for (final JarArchiveFileEntry entry : this.files) {
-            final String path = entry.path();
-            if (path.endsWith(".java")) {
-                entry.setContent(
-                        JavaShaders.javaFilePackageShader(Charset.defaultCharset())
-                                .apply(
-                                        entry.content(),
-                                        shadings
-                                )
-                );
+    /**
+     * Removes files matching the ignored files patterns in a single pass producing a new list. This is performed before
+     * and after files are shaded and moved to the public directory, and later passes only test files that have moved.
+     */
+    void removeIgnoredFiles() {
+        final int entriesIn = this.entries();
+        final long bytesIn = this.bytes();
+        final GwtArchiveMakerToolMetrics.Phase phase = this.metrics.begin(GwtArchiveMakerToolPhase.IGNORE);
+
+        final Predicate<String> ignored = this.ignoreFiles;
+        if (null != ignored) {
+            final List<JarArchiveFileEntry> kept = Lists.array();
+
+            final boolean all = false == this.ignoredFilesRemoved;
+
+            for (final JarArchiveFileEntry file : this.files) {
+                // files that have not moved were already tested the first time
+                final boolean test = all || file.hasMoved();
+                if (false == test || false == ignored.test(file.path())) {
+                    kept.add(file);
+                } else {
+                    this.remove(
+                            file.sourcePath(),
+                            GwtArchiveMakerToolPlanAction.IGNORE
+                    );
+                }
             }
+
+            this.files = kept;
+            this.ignoredFilesRemoved = true;
         }
+
+        phase.end(
+                entriesIn,
+                this.entries(),
+                bytesIn,
+                this.bytes()
+        );
     }
 
-    private void removeIgnoredFiles(final Predicate<String> ignored) {
-        final Iterator<JarArchiveFileEntry> entries = this.files.iterator();
+    void movePublicFiles() {
+        final int entriesIn = this.entries();
+        final long bytesIn = this.bytes();
+        final GwtArchiveMakerToolMetrics.Phase phase = this.metrics.begin(GwtArchiveMakerToolPhase.PUBLIC);
 
-        while (entries.hasNext()) {
-            if (ignored.test(
-                    entries.next()
-                            .path()
-            )) {
-                entries.remove();
-            }
+        final Predicate<String> publicFiles = this.publicFiles;
+        if (null != publicFiles) {
+            final JarArchiveGwtModules modules = this.modules;
+
+            this.files.stream()
+                    .filter(f -> publicFiles.test(f.path()))
+                    .forEach(f ->
+                            f.setPath(
+                                    modules.module(f.path())
+                                            .publicDirectory() + "/" + f.path()
+                            )
+                    );
         }
-    }
 
-    private void movePublicFiles(final Predicate<String> publicFiles,
-                                 final String publicOutput) {
-        this.files.stream()
-                .filter(f -> publicFiles.test(f.path()))
-                .forEach(f ->
-                        f.setPath(publicOutput + "/" + f.path())
-                );
+        phase.end(
+                entriesIn,
+                this.entries(),
+                bytesIn,
+                this.bytes()
+        );
     }
 
     /**
      * Creates the MAVEN pom.properties and copies pom.xml to the files.
      */
-    private void synthesizeMavenFiles(final Path pom) throws Exception {
+    void synthesizeMavenFiles(final Path pom) throws Exception {
+        final int entriesIn = this.entries();
+        final long bytesIn = this.bytes();
+        final GwtArchiveMakerToolMetrics.Phase phase = this.metrics.begin(GwtArchiveMakerToolPhase.MAVEN);
+
         // <project xmlns="http://maven.apache.org/POM/4.0.0"
         //         xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
         //         xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd">
@@ -410,33 +825,22 @@ public final class GwtArchiveMakerTool {
         //    <artifactId>walkingkooka-gwt-archive-maker-maven-plugin</artifactId>
         //    <version>1.0-SNAPSHOT</version>
         //
-        // first read the POM to extract the groupId, artifactId and versionId.
-        String groupId = null;
-        String artifactId = null;
-        String version = null;
-
-        try (final FileInputStream fileInputStream = new FileInputStream(pom.toFile())) {
-            final Document document = DocumentBuilderFactory.newInstance()
-                    .newDocumentBuilder()
-                    .parse(fileInputStream);
-
-            final Element root = document.getDocumentElement();
-            groupId = elementTextOrFail(root, "groupId");
-            artifactId = elementTextOrFail(root, "artifactId");
-            version = elementTextOrFail(root, "version");
+        // first read the POM to extract the groupId, artifactId and versionId, stopping once all three have been read.
+        final GwtArchiveMakerToolPom mavenPom;
+        try (final InputStream inputStream = Files.newInputStream(pom)) {
+            mavenPom = GwtArchiveMakerToolPom.parse(
+                    this.context.xmlStreamReader(inputStream)
+            );
         }
 
-        if (CharSequences.isNullOrEmpty(groupId)) {
-            throw new IllegalArgumentException("POM file missing \"groupdId\"");
-        }
-        if (CharSequences.isNullOrEmpty(artifactId)) {
-            throw new IllegalArgumentException("POM file missing \"artifactId\"");
-        }
-        if (CharSequences.isNullOrEmpty(version)) {
-            throw new IllegalArgumentException("POM file missing \"version\"");
-        }
+        final String groupId = mavenPom.groupId();
+        final String artifactId = mavenPom.artifactId();
+        final String version = mavenPom.version();
 
         final String mavenDir = META_INF + "/maven/" + groupId + "/" + artifactId + "/";
+        final LineEnding lineEnding = this.options.isReproducible() ?
+                LineEnding.NL :
+                LineEnding.SYSTEM;
 
         // artifactId=walkingkooka-spreadsheet
         // groupId=walkingkooka
@@ -445,10 +849,12 @@ public final class GwtArchiveMakerTool {
         this.files.add(
                 JarArchiveFileEntry.with(
                         mavenDir + "pom.properties",
-                        System.currentTimeMillis(),
-                        ("artifactId=" + artifactId + LineEnding.SYSTEM +
-                                "groupId=" + groupId + LineEnding.SYSTEM +
-                                "version=" + version + LineEnding.SYSTEM).getBytes(StandardCharsets.UTF_8)
+                        this.now(),
+                        ByteBuffer.wrap(
+                                ("artifactId=" + artifactId + lineEnding +
+                                        "groupId=" + groupId + lineEnding +
+                                        "version=" + version + lineEnding).getBytes(StandardCharsets.UTF_8)
+                        )
                 )
         );
 
@@ -456,52 +862,902 @@ public final class GwtArchiveMakerTool {
         this.files.add(
                 JarArchiveFileEntry.with(
                         mavenDir + "pom.xml",
-                        System.currentTimeMillis(),
-                        Files.readAllBytes(pom)
+                        this.now(),
+                        ByteBuffer.wrap(
+                                Files.readAllBytes(pom)
+                        )
                 )
         );
+
+        phase.end(
+                entriesIn,
+                this.entries(),
+                bytesIn,
+                this.bytes()
+        );
     }
 
-    private String elementTextOrFail(final Element parent,
-                                     final String tagName) {
-        final NodeList children = parent.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            final Node child = children.item(i);
-            if (child instanceof Element) {
-                final Element childElement = (Element) child;
-                if (childElement.getTagName().equals(tagName)) {
-                    return childElement.getTextContent();
+    /**
+     * Reads and transforms the given jars concurrently, adding their files to the files of this archive. Files with
+     * the same path and content are only written once, while a file with the same path and different content fails.
+     * When a module name is present a GWT module inheriting every module of the merged archive is also created.
+     */
+    void mergeFiles(final List<Path> jars,
+                    final Optional<String> mergeModule) throws Exception {
+        final GwtArchiveMakerToolMetrics.Phase phase = this.metrics.begin(GwtArchiveMakerToolPhase.MERGE);
+
+        final List<GwtArchiveMakerTool> merged = this.readAndTransform(jars);
+        this.merged.addAll(merged);
+
+        int entriesIn = this.entries();
+        long bytesIn = this.bytes();
+
+        final Map<String, JarArchiveFileEntry> pathToFile = Maps.hash();
+        for (final JarArchiveFileEntry file : this.files) {
+            if (false == file.isEmpty()) {
+                pathToFile.put(file.path(), file);
+            }
+        }
+
+        for (final GwtArchiveMakerTool tool : merged) {
+            entriesIn += tool.entries();
+            bytesIn += tool.bytes();
+
+            for (final JarArchiveFileEntry file : tool.files) {
+                if (false == file.isEmpty()) {
+                    final String path = file.path();
+                    final JarArchiveFileEntry existing = pathToFile.putIfAbsent(path, file);
+
+                    if (null != existing) {
+                        final GwtArchiveMakerTool owner = this.owner(existing);
+                        if (false == owner.hash(existing).equals(tool.hash(file))) {
+                            throw new IllegalArgumentException("Conflicting entry " + CharSequences.quoteAndEscape(path) + " in " + owner.metrics.archive() + " and " + tool.metrics.archive());
+                        }
+
+                        tool.remove(file.sourcePath(), GwtArchiveMakerToolPlanAction.DROP);
+                        continue;
+                    }
                 }
+
+                this.files.add(file);
+                this.owners.put(file, tool);
+            }
+
+            this.metrics.add(tool.metrics());
+        }
+
+        if (mergeModule.isPresent()) {
+            final String module = mergeModule.get();
+            final String modulePath = module.replace('.', '/') + GWT_XML;
+            if (pathToFile.containsKey(modulePath)) {
+                throw new IllegalArgumentException("Merge module " + CharSequences.quoteAndEscape(module) + " already present in " + this.owner(pathToFile.get(modulePath)).metrics.archive());
             }
+
+            this.files.add(
+                    JarArchiveFileEntry.with(
+                            modulePath,
+                            this.now(),
+                            ByteBuffer.wrap(
+                                    this.mergeModule(pathToFile.keySet())
+                            )
+                    )
+            );
         }
 
-        throw new IllegalArgumentException("Missing " + CharSequences.quoteAndEscape(tagName));
+        phase.end(
+                entriesIn,
+                this.entries(),
+                bytesIn,
+                this.bytes()
+        );
+    }
+
+    /**
+     * Reads and transforms each jar using the pool of the context, failing with the first failure with any others
+     * suppressed. The jars are returned in the given order, and all are closed if any fails.
+     */
+    private List<GwtArchiveMakerTool> readAndTransform(final List<Path> jars) throws Exception {
+        final GwtArchiveMakerToolContext context = this.context;
+        final ExecutorService executor = context.executor();
+
+        final List<Callable<GwtArchiveMakerTool>> tasks = Lists.array();
+        for (final Path jar : jars) {
+            tasks.add(
+                    () -> {
+                        if (false == Files.exists(jar)) {
+                            throw new IllegalArgumentException("Unable to find merge *.jar file or directory: " + jar.toAbsolutePath());
+                        }
+
+                        final GwtArchiveMakerTool tool = read(jar, context);
+                        try {
+                            tool.transformFiles();
+                        } catch (final RuntimeException cause) {
+                            tool.close();
+                            throw cause;
+                        }
+                        return tool;
+                    }
+            );
+        }
+
+        final List<GwtArchiveMakerTool> tools = Lists.array();
+        Exception failure = null;
+
+        if (null == executor) {
+            for (int i = 0; null == failure && i < tasks.size(); i++) {
+                try {
+                    tools.add(
+                            tasks.get(i)
+                                    .call()
+                    );
+                } catch (final Exception cause) {
+                    failure = mergeFailure(jars.get(i), cause);
+                }
+            }
+        } else {
+            final List<Future<GwtArchiveMakerTool>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    tools.add(
+                            futures.get(i)
+                                    .get()
+                    );
+                } catch (final ExecutionException cause) {
+                    final Exception mergeFailure = mergeFailure(jars.get(i), cause.getCause());
+                    if (null == failure) {
+                        failure = mergeFailure;
+                    } else {
+                        failure.addSuppressed(mergeFailure);
+                    }
+                }
+            }
+        }
+
+        if (null != failure) {
+            for (final GwtArchiveMakerTool tool : tools) {
+                tool.close();
+            }
+            throw failure;
+        }
+
+        return tools;
+    }
+
+    private static Exception mergeFailure(final Path jar,
+                                          final Throwable cause) {
+        return new IllegalStateException(
+                "Unable to merge " + jar + ": " + cause.getMessage(),
+                cause
+        );
+    }
+
+    /**
+     * Returns a hash of the content of the file as it will be written, which compares files merged from different jars.
+     */
+    private String hash(final JarArchiveFileEntry file) throws IOException {
+        return GwtArchiveMakerToolFingerprint.hex(
+                GwtArchiveMakerToolFingerprint.sha256()
+                        .digest(
+                                this.content(file, this.jarFile)
+                        )
+        );
+    }
+
+    /**
+     * Creates a GWT module that inherits the module of every given path ending with *.gwt.xml.
+     */
+    private byte[] mergeModule(final Set<String> paths) {
+        final LineEnding lineEnding = this.options.isReproducible() ?
+                LineEnding.NL :
+                LineEnding.SYSTEM;
+
+        final StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append(lineEnding)
+                .append("<module>")
+                .append(lineEnding);
+
+        paths.stream()
+                .filter(p -> p.endsWith(GWT_XML))
+                .sorted()
+                .forEach(p -> xml.append("    <inherits name=\"")
+                        .append(
+                                p.substring(0, p.length() - GWT_XML.length())
+                                        .replace('/', '.')
+                        ).append("\"/>")
+                        .append(lineEnding)
+                );
+
+        xml.append("</module>")
+                .append(lineEnding);
+
+        return xml.toString()
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private final static String GWT_XML = ".gwt.xml";
+
+    /**
+     * The tools of jars merged into this archive, which are closed with this tool.
+     */
+    private final List<GwtArchiveMakerTool> merged = Lists.array();
+
+    /**
+     * The tool owning each file merged from another jar, which reads, shades and compresses the file.
+     */
+    private final Map<JarArchiveFileEntry, GwtArchiveMakerTool> owners = Maps.hash();
+
+    private GwtArchiveMakerTool owner(final JarArchiveFileEntry file) {
+        return this.owners.getOrDefault(
+                file,
+                this
+        );
     }
 
     /**
      * Creates an archive from the files field. This assumes that magic files have been removed and actioned if necessary.
+     * Entries are read from the source jar file, shaded if necessary and compressed by a pool of {@link GwtArchiveMakerToolOptions#threads()}
+     * and then written in their original order, so the archive is identical to one produced by a single thread. Only a
+     * bounded window of entries is ever held in memory. Entries whose content is unchanged have their raw compressed
+     * bytes copied without being inflated and deflated again.
      */
-    private void createArchiveAndWrite(final Path path) throws IOException {
-        try (final FileOutputStream jarFile = new FileOutputStream(path.toFile())) {
-            try (final JarOutputStream jar = new JarOutputStream(jarFile, this.manifest)) {
-                for (final JarArchiveFileEntry entry : this.files) {
+    void createArchiveAndWrite(final Path path) throws Exception {
+        final int entriesIn = this.entries();
+        final long bytesIn = this.bytes();
+        final GwtArchiveMakerToolMetrics.Phase phase = this.metrics.begin(GwtArchiveMakerToolPhase.WRITE);
+
+        // reproducible archives always have their entries in a canonical order.
+        if (this.options.isReproducible()) {
+            this.files.sort(
+                    (final JarArchiveFileEntry l, final JarArchiveFileEntry r) -> l.path().compareTo(r.path())
+            );
+        }
 
-                    // shaded class files will have a NULL content, dont write them back out.
-                    final byte[] content = entry.content();
-                    if (null == content) {
-                        continue;
+        final int threads = this.options.threads();
+        final ExecutorService executor = this.context.executor();
+
+        // reproducible archives use UTC so the MSDOS times within the archive do not depend on the local time zone.
+        final ZoneId zone = this.options.isReproducible() ?
+                ZoneOffset.UTC :
+                ZoneId.systemDefault();
+
+        final int window = threads * 4;
+        final Deque<Future<JarArchiveWriterEntry>> pending = new ArrayDeque<>(window);
+
+        final int entriesOut;
+        final long compressedBytes;
+        final long uncompressedBytes;
+
+        // incremental archives are written to a temporary file, so the previous output may be read while writing
+        final boolean incremental = this.options.isIncremental();
+        final String indexHeader = incremental ?
+                this.indexHeader() :
+                null;
+        final JarArchiveOutputIndex previous = incremental ?
+                JarArchiveOutputIndex.open(path, indexHeader)
+                        .orElse(null) :
+                null;
+        final Map<String, String> pathToKey = incremental ?
+                new ConcurrentHashMap<>() :
+                null;
+        final Map<String, Long> pathToCrc = incremental ?
+                new ConcurrentHashMap<>() :
+                null;
+        final Path output = incremental ?
+                path.resolveSibling(path.getFileName() + ".tmp") :
+                path;
+
+        try (final JarArchiveWriter jar = JarArchiveWriter.with(FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), zone)) {
+            jar.write(
+                    MANIFEST_PATH,
+                    this.now(),
+                    ByteBuffer.wrap(
+                            manifestBytes(this.manifest)
+                    ),
+                    this.options.compressionLevel(MANIFEST_PATH)
+            );
+
+
+            for (final JarArchiveFileEntry entry : this.files) {
+
+                // shaded class files will have a NULL content, dont write them back out.
+                if (entry.isEmpty()) {
+                    continue;
+                }
+
+                final GwtArchiveMakerTool owner = this.owner(entry);
+                if (null == executor) {
+                    owner.prepare(entry, owner.jarFile, previous, pathToKey, pathToCrc)
+                            .write(jar);
+                } else {
+                    pending.add(
+                            executor.submit(
+                                    () -> owner.prepare(entry, owner.jarFile, previous, pathToKey, pathToCrc)
+                            )
+                    );
+                    if (pending.size() >= window) {
+                        writePending(pending, jar);
+                    }
+                }
+            }
+
+            while (false == pending.isEmpty()) {
+                writePending(pending, jar);
+            }
+
+            entriesOut = jar.entries();
+            compressedBytes = jar.compressedBytes();
+            uncompressedBytes = jar.uncompressedBytes();
+        } catch (final Exception cause) {
+            // never leave a partially written temporary file behind
+            if (incremental) {
+                deleteTemporary(output, cause);
+            }
+            throw cause;
+        } finally {
+            // cancel any entries still pending after a failure
+            for (final Future<JarArchiveWriterEntry> future : pending) {
+                future.cancel(true);
+            }
+
+            if (null != previous) {
+                previous.close();
+            }
+        }
+
+        if (incremental) {
+            try {
+                Files.move(
+                        output,
+                        path,
+                        StandardCopyOption.REPLACE_EXISTING
+                );
+            } catch (final IOException cause) {
+                deleteTemporary(output, cause);
+                throw cause;
+            }
+            JarArchiveOutputIndex.write(
+                    path,
+                    indexHeader,
+                    pathToKey,
+                    pathToCrc
+            );
+        } else {
+            JarArchiveOutputIndex.delete(path);
+        }
+
+        phase.end(
+                entriesIn,
+                entriesOut,
+                bytesIn,
+                uncompressedBytes,
+                compressedBytes,
+                uncompressedBytes
+        );
+    }
+
+    /**
+     * Deletes the temporary file of a failed incremental write, recording any failure to delete it upon the cause.
+     */
+    private static void deleteTemporary(final Path temporary,
+                                        final Exception cause) {
+        try {
+            Files.deleteIfExists(temporary);
+        } catch (final IOException failed) {
+            cause.addSuppressed(failed);
+        }
+    }
+
+    /**
+     * Writes the files to an exploded directory, which may be read by the GWT codeserver. Only files whose content is
+     * different from the file already present are written, and files written by the previous run, as recorded by its
+     * {@link JarArchiveDirectoryIndex}, that are no longer present are removed, so repeated runs with small changes
+     * write very little. Other files in the directory are never touched. Files are prepared and compared by the pool
+     * of {@link GwtArchiveMakerToolOptions#threads()} in any order.
+     */
+    void createDirectoryAndWrite(final Path directory) throws Exception {
+        final int entriesIn = this.entries();
+        final long bytesIn = this.bytes();
+        final GwtArchiveMakerToolMetrics.Phase phase = this.metrics.begin(GwtArchiveMakerToolPhase.WRITE);
+
+        final List<String> previous = JarArchiveDirectoryIndex.previous(directory);
+        Files.createDirectories(directory);
+
+        final Set<String> written = ConcurrentHashMap.newKeySet();
+        final AtomicLong bytesOut = new AtomicLong();
+
+        final List<Callable<Void>> tasks = Lists.array();
+        tasks.add(
+                () -> {
+                    this.writeIfChanged(
+                            directory,
+                            MANIFEST_PATH,
+                            manifestBytes(this.manifest),
+                            written,
+                            bytesOut
+                    );
+                    return null;
+                }
+        );
+
+        for (final JarArchiveFileEntry entry : this.files) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+            final GwtArchiveMakerTool owner = this.owner(entry);
+            tasks.add(
+                    () -> {
+                        this.writeIfChanged(
+                                directory,
+                                entry.path(),
+                                owner.content(entry, owner.jarFile),
+                                written,
+                                bytesOut
+                        );
+                        return null;
                     }
-                    final JarEntry targetJarFileEntry = new JarEntry(entry.path());
+            );
+        }
+
+        final ExecutorService executor = this.context.executor();
+        if (null == executor) {
+            for (final Callable<Void> task : tasks) {
+                task.call();
+            }
+        } else {
+            final List<Future<Void>> futures = executor.invokeAll(tasks);
+            for (final Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException cause) {
+                    final Throwable wrapped = cause.getCause();
+                    throw wrapped instanceof Exception ?
+                            (Exception) wrapped :
+                            cause;
+                }
+            }
+        }
 
-                    // write the file lastModified and then its content.
-                    targetJarFileEntry.setTime(entry.lastModified());
-                    jar.putNextEntry(targetJarFileEntry);
-                    jar.write(content);
-                    jar.closeEntry();
+        removeStale(
+                directory,
+                previous,
+                written
+        );
+        JarArchiveDirectoryIndex.write(
+                directory,
+                written
+        );
+
+        phase.end(
+                entriesIn,
+                written.size(),
+                bytesIn,
+                bytesOut.get()
+        );
+    }
+
+    /**
+     * Returns the content of the file, which is shaded for *.java files when required.
+     */
+    private byte[] content(final JarArchiveFileEntry entry,
+                           final JarArchiveSource jarFile) throws IOException {
+        final byte[] content;
+
+        final JarArchiveReaderEntry source = entry.source();
+        if (null != source) {
+            final byte[] read = jarFile.content(source);
+            content = GwtArchiveMakerToolPlanAction.SHADE == this.action(entry) ?
+                    this.context.shade(
+                            read,
+                            this.shadeIndex
+                    ) :
+                    read;
+        } else {
+            final ByteBuffer buffer = entry.content();
+            content = new byte[buffer.remaining()];
+            buffer.get(content);
+        }
+
+        return content;
+    }
+
+    /**
+     * Writes the content unless the file already holds identical content. Paths that would be outside the directory
+     * such as <code>../x</code> fail.
+     */
+    private void writeIfChanged(final Path directory,
+                                final String path,
+                                final byte[] content,
+                                final Set<String> written,
+                                final AtomicLong bytesOut) throws IOException {
+        final Path file = JarArchiveDirectoryIndex.resolve(directory, path);
+        written.add(path);
+        bytesOut.addAndGet(content.length);
+
+        if (false == isUnchanged(file, content)) {
+            Files.createDirectories(file.getParent());
+            Files.write(file, content);
+        }
+    }
+
+    /**
+     * Compares by reading the file, rather than mapping it, because a live mapping prevents the file being replaced
+     * on some platforms.
+     */
+    private static boolean isUnchanged(final Path file,
+                                       final byte[] content) throws IOException {
+        return Files.isRegularFile(file) &&
+                Files.size(file) == content.length &&
+                Arrays.equals(
+                        Files.readAllBytes(file),
+                        content
+                );
+    }
+
+    /**
+     * Removes files written by the previous run that were not written by this run, followed by their parent
+     * directories that are left empty.
+     */
+    private static void removeStale(final Path directory,
+                                    final List<String> previous,
+                                    final Set<String> written) throws IOException {
+        final Path root = directory.toAbsolutePath()
+                .normalize();
+
+        for (final String path : previous) {
+            if (written.contains(path)) {
+                continue;
+            }
+
+            Path file = JarArchiveDirectoryIndex.resolve(directory, path);
+            Files.deleteIfExists(file);
+
+            for (file = file.getParent(); false == root.equals(file); file = file.getParent()) {
+                try (final Stream<Path> children = Files.list(file)) {
+                    if (children.findAny().isPresent()) {
+                        break;
+                    }
+                } catch (final NoSuchFileException missing) {
+                    continue;
                 }
+                Files.delete(file);
+            }
+        }
+    }
 
-                jarFile.flush();
+    /**
+     * The number of files that will be written, which excludes shaded class files.
+     */
+    private int entries() {
+        int entries = 0;
+        for (final JarArchiveFileEntry file : this.files) {
+            if (false == file.isEmpty()) {
+                entries++;
             }
         }
+        return entries;
+    }
+
+    /**
+     * The total uncompressed size of all files.
+     */
+    private long bytes() {
+        long bytes = 0;
+        for (final JarArchiveFileEntry file : this.files) {
+            bytes += file.size();
+        }
+        return bytes;
+    }
+
+    /**
+     * When incremental, returns the compressed bytes of the entry in the previous output if its key is unchanged,
+     * otherwise prepares the entry, recording the key and CRC of every entry for the next build.
+     */
+    private JarArchiveWriterEntry prepare(final JarArchiveFileEntry entry,
+                                          final JarArchiveSource jarFile,
+                                          final JarArchiveOutputIndex previous,
+                                          final Map<String, String> pathToKey,
+                                          final Map<String, Long> pathToCrc) throws IOException {
+        final JarArchiveWriterEntry prepared;
+
+        if (null != pathToKey) {
+            final String path = entry.path();
+            final String key = this.key(entry);
+
+            final JarArchiveReaderEntry reusable = null != previous ?
+                    previous.reusable(path, key) :
+                    null;
+            prepared = null != reusable ?
+                    JarArchiveWriterEntry.raw(
+                            path,
+                            this.options.outputTimestamp()
+                                    .map(Instant::toEpochMilli)
+                                    .orElseGet(reusable::lastModified),
+                            reusable,
+                            previous.rawContent(reusable)
+                    ) :
+                    this.prepare(entry, jarFile);
+
+            pathToKey.put(path, key);
+            pathToCrc.put(path, prepared.crc());
+        } else {
+            prepared = this.prepare(entry, jarFile);
+        }
+
+        return prepared;
+    }
+
+    /**
+     * A hash of everything that produces the entry, read from metadata alone, the source path, size and CRC or last
+     * modified, the action and compression level and for shaded sources the shade file. Created entries such as the
+     * maven files hash their content.
+     */
+    private String key(final JarArchiveFileEntry entry) {
+        final String path = entry.path();
+        final GwtArchiveMakerToolPlanAction action = this.action(entry);
+
+        final StringBuilder key = new StringBuilder();
+        key.append(action.label)
+                .append(' ')
+                .append(this.options.compressionLevel(path));
+
+        final JarArchiveReaderEntry source = entry.source();
+        if (null != source) {
+            key.append(' ')
+                    .append(source.name())
+                    .append(' ')
+                    .append(source.size())
+                    .append(' ')
+                    .append(source.isCrcKnown() ?
+                            source.crc() :
+                            source.lastModified());
+            if (GwtArchiveMakerToolPlanAction.SHADE == action) {
+                key.append(' ')
+                        .append(this.shadeFileHash);
+            }
+        } else {
+            final CRC32 crc = new CRC32();
+            crc.update(entry.content());
+            key.append(' ')
+                    .append(crc.getValue());
+        }
+
+        return GwtArchiveMakerToolFingerprint.hex(
+                GwtArchiveMakerToolFingerprint.sha256()
+                        .digest(
+                                key.toString()
+                                        .getBytes(StandardCharsets.UTF_8)
+                        )
+        ).substring(0, 32);
+    }
+
+    /**
+     * The first line of the output index, an index with a different header is never used.
+     */
+    private String indexHeader() throws IOException {
+        return "plugin-jar=" + GwtArchiveMakerToolFingerprint.codeSource(GwtArchiveMakerTool.class) +
+                " charset=" + Charset.defaultCharset() +
+                " " + this.options.fingerprint();
+    }
+
+    /**
+     * Reads the entry and shades *.java files, returning the raw compressed bytes when the content is unchanged,
+     * otherwise the content compressed with its CRC so the writer only copies bytes. This may be called concurrently
+     * for different entries.
+     */
+    private JarArchiveWriterEntry prepare(final JarArchiveFileEntry entry,
+                                          final JarArchiveSource jarFile) throws IOException {
+        final String entryPath = entry.path();
+        final JarArchiveReaderEntry source = entry.source();
+        final int level = this.options.compressionLevel(entryPath);
+        final JarArchiveDeflater deflater = this.context.deflater();
+
+        final JarArchiveWriterEntry prepared;
+        switch (this.action(entry)) {
+            case SHADE:
+                final ByteBuffer raw = jarFile.rawContent(source);
+                final byte[] content = JarArchiveReader.content(source, raw);
+                final byte[] shaded = this.context.shade(
+                        content,
+                        this.shadeIndex
+                );
+
+                prepared = content != shaded ?
+                        deflater.deflate(
+                                entryPath,
+                                this.now(),
+                                ByteBuffer.wrap(shaded),
+                                level
+                        ) :
+                        isRecompressRequired(source, level) ?
+                                deflater.deflate(
+                                        entryPath,
+                                        this.lastModified(entry),
+                                        ByteBuffer.wrap(content),
+                                        level
+                                ) :
+                                JarArchiveWriterEntry.raw(
+                                        entryPath,
+                                        this.lastModified(entry),
+                                        source,
+                                        raw
+                                );
+                break;
+            case RECOMPRESS:
+                prepared = deflater.deflate(
+                        entryPath,
+                        this.lastModified(entry),
+                        ByteBuffer.wrap(
+                                jarFile.content(source)
+                        ),
+                        level
+                );
+                break;
+            case COPY:
+                // content unchanged copy the compressed bytes
+                prepared = JarArchiveWriterEntry.raw(
+                        entryPath,
+                        this.lastModified(entry),
+                        source,
+                        jarFile.rawContent(source)
+                );
+                break;
+            case CREATE:
+                prepared = deflater.deflate(
+                        entryPath,
+                        this.lastModified(entry),
+                        entry.content(),
+                        level
+                );
+                break;
+            default:
+                throw new IllegalStateException("Unable to write " + CharSequences.quoteAndEscape(entryPath));
+        }
+
+        return prepared;
+    }
+
+    /**
+     * Decides the fate of a file from its metadata alone, without reading its content.
+     */
+    private GwtArchiveMakerToolPlanAction action(final JarArchiveFileEntry entry) {
+        final JarArchiveReaderEntry source = entry.source();
+        final String path = entry.path();
+
+        return entry.isEmpty() ?
+                GwtArchiveMakerToolPlanAction.DROP :
+                null == source ?
+                        GwtArchiveMakerToolPlanAction.CREATE :
+                        null != this.shadeIndex && path.endsWith(".java") ?
+                                GwtArchiveMakerToolPlanAction.SHADE :
+                                isRecompressRequired(source, this.options.compressionLevel(path)) ?
+                                        GwtArchiveMakerToolPlanAction.RECOMPRESS :
+                                        GwtArchiveMakerToolPlanAction.COPY;
+    }
+
+    /**
+     * Returns the plan of every entry, which is followed by {@link #createArchiveAndWrite(Path)}. This should be called
+     * after all other phases.
+     */
+    GwtArchiveMakerToolPlan plan() {
+        final List<GwtArchiveMakerToolPlanEntry> entries = Lists.array();
+        entries.addAll(this.removed);
+        for (final GwtArchiveMakerTool merged : this.merged) {
+            entries.addAll(merged.removed);
+        }
+
+        final List<JarArchiveFileEntry> files = Lists.array();
+        files.addAll(this.files);
+        if (this.options.isReproducible()) {
+            files.sort(
+                    (final JarArchiveFileEntry l, final JarArchiveFileEntry r) -> l.path().compareTo(r.path())
+            );
+        }
+
+        entries.add(
+                GwtArchiveMakerToolPlanEntry.with(
+                        Optional.empty(),
+                        Optional.of(MANIFEST_PATH),
+                        GwtArchiveMakerToolPlanAction.CREATE
+                )
+        );
+
+        for (final JarArchiveFileEntry file : files) {
+            final GwtArchiveMakerToolPlanAction action = this.owner(file)
+                    .action(file);
+
+            entries.add(
+                    GwtArchiveMakerToolPlanEntry.with(
+                            Optional.ofNullable(
+                                    file.sourcePath()
+                            ),
+                            GwtArchiveMakerToolPlanAction.DROP == action ?
+                                    Optional.empty() :
+                                    Optional.of(file.path()),
+                            action
+                    )
+            );
+        }
+
+        return GwtArchiveMakerToolPlan.with(
+                this.metrics.archive(),
+                entries
+        );
+    }
+
+    /**
+     * Unchanged entries keep their existing compression, unless the level requires a different method, or the best
+     * compression which the source may not have used. Files read from a directory have no CRC and are always compressed.
+     */
+    private static boolean isRecompressRequired(final JarArchiveReaderEntry source,
+                                                final int level) {
+        final int method = GwtArchiveMakerToolCompressionRule.STORED == level ?
+                ZipEntry.STORED :
+                ZipEntry.DEFLATED;
+        return false == source.isCrcKnown() ||
+                method != source.method() ||
+                Deflater.BEST_COMPRESSION == level;
+    }
+
+    /**
+     * Waits for the oldest pending entry and writes it, preserving the original order.
+     */
+    private static void writePending(final Deque<Future<JarArchiveWriterEntry>> pending,
+                                     final JarArchiveWriter jar) throws Exception {
+        try {
+            pending.removeFirst()
+                    .get()
+                    .write(jar);
+        } catch (final ExecutionException cause) {
+            final Throwable wrapped = cause.getCause();
+            throw wrapped instanceof Exception ?
+                    (Exception) wrapped :
+                    cause;
+        }
+    }
+
+    /**
+     * The time for new or modified entries, which is the output timestamp for reproducible archives.
+     */
+    private long now() {
+        return this.options.outputTimestamp()
+                .map(Instant::toEpochMilli)
+                .orElseGet(System::currentTimeMillis);
+    }
+
+    /**
+     * The time written for the given entry, which is the output timestamp for reproducible archives.
+     */
+    private long lastModified(final JarArchiveFileEntry entry) {
+        return this.options.outputTimestamp()
+                .map(Instant::toEpochMilli)
+                .orElseGet(entry::lastModified);
+    }
+
+    private static byte[] manifestBytes(final Manifest manifest) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        manifest.write(bytes);
+        return bytes.toByteArray();
+    }
+
+    // AutoCloseable....................................................................................................
+
+    /**
+     * Closes the source jar file or directories and those of any merged jars.
+     */
+    @Override
+    public void close() throws IOException {
+        this.jarFile.close();
+
+        for (final GwtArchiveMakerTool merged : this.merged) {
+            merged.close();
+        }
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.jarFile.toString();
     }
 }
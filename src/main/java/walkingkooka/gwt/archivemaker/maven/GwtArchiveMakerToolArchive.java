@@ -0,0 +1,177 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.list.Lists;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * The input jar, output gwt jar and replacement pom for a single archive. This is also the type of each element of the
+ * Mojo {@code archives} parameter, which maven populates using the public no arguments constructor.
+ */
+public final class GwtArchiveMakerToolArchive {
+
+    public static GwtArchiveMakerToolArchive with(final Path input,
+                                                  final Path output,
+                                                  final Path pom) {
+        return with(
+                input,
+                Lists.empty(),
+                output,
+                pom
+        );
+    }
+
+    public static GwtArchiveMakerToolArchive with(final Path input,
+                                                  final List<Path> sources,
+                                                  final Path output,
+                                                  final Path pom) {
+        Objects.requireNonNull(input, "input");
+        Objects.requireNonNull(sources, "sources");
+        Objects.requireNonNull(output, "output");
+        Objects.requireNonNull(pom, "pom");
+
+        final GwtArchiveMakerToolArchive archive = new GwtArchiveMakerToolArchive();
+        archive.input = input.toFile();
+        archive.sources = sources.stream()
+                .map(Path::toFile)
+                .collect(Collectors.toList());
+        archive.output = output.toFile();
+        archive.pomFile = pom.toFile();
+        return archive;
+    }
+
+    /**
+     * Returns a copy of this archive with jars whose entries are transformed and merged into the output, and the name of
+     * an optional GWT module created to inherit every module of the merged output.
+     */
+    public GwtArchiveMakerToolArchive setMerge(final List<Path> merge,
+                                               final Optional<String> mergeModule) {
+        Objects.requireNonNull(merge, "merge");
+        Objects.requireNonNull(mergeModule, "mergeModule");
+
+        final GwtArchiveMakerToolArchive archive = new GwtArchiveMakerToolArchive();
+        archive.input = this.input;
+        archive.sources = this.sources;
+        archive.output = this.output;
+        archive.pomFile = this.pomFile;
+        archive.merge = merge.stream()
+                .map(Path::toFile)
+                .collect(Collectors.toList());
+        archive.mergeModule = mergeModule.orElse(null);
+        return archive;
+    }
+
+    /**
+     * Required by maven.
+     */
+    public GwtArchiveMakerToolArchive() {
+        super();
+    }
+
+    /**
+     * The input jar file or directory such as <code>target/classes</code> that needs to be transformed into a gwt jar.
+     */
+    public Path input() {
+        return required(this.input, "input").toPath();
+    }
+
+    private File input;
+
+    /**
+     * Additional directories such as <code>src/main/java</code> merged with a directory input, which is never empty.
+     */
+    public List<Path> sources() {
+        final List<File> sources = this.sources;
+        return null == sources ?
+                Lists.empty() :
+                sources.stream()
+                        .map(File::toPath)
+                        .collect(Collectors.toList());
+    }
+
+    private List<File> sources;
+
+    /**
+     * The output gwt jar file that will be created
+     */
+    public Path output() {
+        return required(this.output, "output").toPath();
+    }
+
+    private File output;
+
+    /**
+     * Path to the pom.xml file for the gwt archive.
+     */
+    public Path pom() {
+        return required(this.pomFile, "pom-file").toPath();
+    }
+
+    private File pomFile;
+
+    /**
+     * Additional J2CL jars or directories, each transformed like the input with their entries merged into the output.
+     */
+    public List<Path> merge() {
+        final List<File> merge = this.merge;
+        return null == merge ?
+                Lists.empty() :
+                merge.stream()
+                        .map(File::toPath)
+                        .collect(Collectors.toList());
+    }
+
+    private List<File> merge;
+
+    /**
+     * The name of a GWT module such as <code>example.Merged</code> created within a merged output, which inherits every
+     * other module.
+     */
+    public Optional<String> mergeModule() {
+        return Optional.ofNullable(this.mergeModule);
+    }
+
+    private String mergeModule;
+
+    private static File required(final File file,
+                                 final String name) {
+        if (null == file) {
+            throw new IllegalArgumentException("Archive missing " + name);
+        }
+        return file;
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.input +
+                (null == this.sources || this.sources.isEmpty() ? "" : " " + this.sources) +
+                " " + this.output +
+                " " + this.pomFile +
+                (null == this.merge || this.merge.isEmpty() ? "" : " merge " + this.merge) +
+                (null == this.mergeModule ? "" : " " + this.mergeModule);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.text.CharSequences;
+
+import java.util.zip.Deflater;
+
+/**
+ * The global speed versus size trade off used to compress entries not matched by a {@link GwtArchiveMakerToolCompressionRule}.
+ */
+public enum GwtArchiveMakerToolCompressionPreset {
+
+    /**
+     * The fastest deflate level, entries copied unchanged from the input jar keep their existing compression.
+     */
+    SPEED(Deflater.BEST_SPEED),
+
+    /**
+     * The default deflate level, entries copied unchanged from the input jar keep their existing compression.
+     */
+    DEFAULT(Deflater.DEFAULT_COMPRESSION),
+
+    /**
+     * The best deflate level, every entry is compressed again even if it is unchanged.
+     */
+    SIZE(Deflater.BEST_COMPRESSION);
+
+    GwtArchiveMakerToolCompressionPreset(final int level) {
+        this.level = level;
+    }
+
+    /**
+     * The deflate level.
+     */
+    final int level;
+
+    /**
+     * Parses the name of a preset ignoring case, eg <code>speed</code>.
+     */
+    public static GwtArchiveMakerToolCompressionPreset parse(final String text) {
+        CharSequences.failIfNullOrEmpty(text, "text");
+
+        for (final GwtArchiveMakerToolCompressionPreset preset : values()) {
+            if (preset.name().equalsIgnoreCase(text)) {
+                return preset;
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid compression " + CharSequences.quoteAndEscape(text) + " expected speed, default or size");
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.text.CharSequences;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+
+/**
+ * A glob pattern, using the same syntax as the ignored and public files, and the compression of matching entries.
+ * This is also the type of each element of the Mojo {@code compression-rules} parameter, which maven populates using
+ * the public no arguments constructor.
+ */
+public final class GwtArchiveMakerToolCompressionRule {
+
+    /**
+     * The level of entries that are stored without compression.
+     */
+    final static int STORED = Deflater.NO_COMPRESSION;
+
+    public static GwtArchiveMakerToolCompressionRule with(final String pattern,
+                                                          final String level) {
+        final GwtArchiveMakerToolCompressionRule rule = new GwtArchiveMakerToolCompressionRule();
+        rule.pattern = CharSequences.failIfNullOrEmpty(pattern, "pattern");
+        rule.level = CharSequences.failIfNullOrEmpty(level, "level");
+        rule.level();
+        return rule;
+    }
+
+    /**
+     * Required by maven.
+     */
+    public GwtArchiveMakerToolCompressionRule() {
+        super();
+    }
+
+    /**
+     * The glob pattern matched against the path of each entry in the output, eg <code>**&#47;*.png</code>.
+     */
+    public String pattern() {
+        final String pattern = this.pattern;
+        if (CharSequences.isNullOrEmpty(pattern)) {
+            throw new IllegalArgumentException("Compression rule missing pattern");
+        }
+        return pattern;
+    }
+
+    private String pattern;
+
+    /**
+     * Either <code>stored</code>, <code>speed</code>, <code>default</code>, <code>size</code> or a deflate level
+     * between 0 and 9, where 0 is the same as stored.
+     */
+    public int level() {
+        final String level = this.level;
+        if (CharSequences.isNullOrEmpty(level)) {
+            throw new IllegalArgumentException("Compression rule missing level");
+        }
+
+        final int value;
+        switch (level.toLowerCase()) {
+            case "stored":
+                value = STORED;
+                break;
+            case "speed":
+                value = Deflater.BEST_SPEED;
+                break;
+            case "default":
+                value = Deflater.DEFAULT_COMPRESSION;
+                break;
+            case "size":
+                value = Deflater.BEST_COMPRESSION;
+                break;
+            default:
+                if (1 != level.length() || level.charAt(0) < '0' || level.charAt(0) > '9') {
+                    throw new IllegalArgumentException("Invalid compression level " + CharSequences.quoteAndEscape(level) + " expected stored, speed, default, size or 0-9");
+                }
+                value = level.charAt(0) - '0';
+                break;
+        }
+
+        return value;
+    }
+
+    private String level;
+
+    /**
+     * Tests if the given entry path matches this rule, using the same {@link JarArchiveGlobPatterns} as the ignored and
+     * public files.
+     */
+    boolean test(final String path) {
+        Predicate<String> matcher = this.matcher;
+        if (null == matcher) {
+            matcher = JarArchiveGlobPatterns.parse(
+                    this.pattern()
+            );
+            this.matcher = matcher;
+        }
+        return matcher.test(path);
+    }
+
+    private volatile Predicate<String> matcher;
+
+    // Object...........................................................................................................
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.pattern, this.level);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other ||
+                other instanceof GwtArchiveMakerToolCompressionRule && this.equals0((GwtArchiveMakerToolCompressionRule) other);
+    }
+
+    private boolean equals0(final GwtArchiveMakerToolCompressionRule other) {
+        return Objects.equals(this.pattern, other.pattern) &&
+                Objects.equals(this.level, other.level);
+    }
+
+    @Override
+    public String toString() {
+        return this.pattern + "=" + this.level;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.j2cl.maven.J2clArtifactShadeFile;
+import walkingkooka.javashader.JavaShaders;
+import walkingkooka.reflect.PackageName;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Infrastructure shared by every archive made by one or more {@link GwtArchiveMakerTool}, including the worker threads,
+ * XML readers, the java shader and caches of parsed glob and shade files. All methods may be called concurrently.
+ */
+final class GwtArchiveMakerToolContext implements AutoCloseable {
+
+    static GwtArchiveMakerToolContext with(final GwtArchiveMakerToolOptions options) throws IOException {
+        Objects.requireNonNull(options, "options");
+
+        final Optional<Path> shadeCache = options.shadeCache();
+        return new GwtArchiveMakerToolContext(
+                options,
+                shadeCache.isPresent() ?
+                        JarArchiveShadeCache.with(
+                                shadeCache.get(),
+                                options.shadeCacheMaxSize()
+                        ) :
+                        null
+        );
+    }
+
+    private GwtArchiveMakerToolContext(final GwtArchiveMakerToolOptions options,
+                                       final JarArchiveShadeCache shadeCache) {
+        this.options = options;
+        this.shadeCache = shadeCache;
+
+        final int threads = options.threads();
+        this.executor = threads > 1 ?
+                Executors.newFixedThreadPool(threads) :
+                null;
+    }
+
+    GwtArchiveMakerToolOptions options() {
+        return this.options;
+    }
+
+    private final GwtArchiveMakerToolOptions options;
+
+    /**
+     * The pool used to read and shade entries, which will be null when {@link GwtArchiveMakerToolOptions#threads()} is 1.
+     */
+    ExecutorService executor() {
+        return this.executor;
+    }
+
+    private final ExecutorService executor;
+
+    /**
+     * Returns a compiled {@link JarArchiveGlobPatterns} for the given glob file content, reusing the patterns for
+     * identical files.
+     */
+    Predicate<String> globPattern(final byte[] content) {
+        return cached(
+                this.globPatterns,
+                new String(
+                        content,
+                        Charset.defaultCharset()
+                ),
+                JarArchiveGlobPatterns::parse
+        );
+    }
+
+    private final Map<String, JarArchiveGlobPatterns> globPatterns = cache();
+
+    /**
+     * Returns a {@link JarArchiveShadeIndex} for the given shade file content, reusing the index for identical files.
+     */
+    JarArchiveShadeIndex shadeIndex(final byte[] content) {
+        return cached(
+                this.shadeIndices,
+                new String(
+                        content,
+                        Charset.defaultCharset()
+                ),
+                (text) -> {
+                    try (final InputStream inputStream = new ByteArrayInputStream(content)) {
+                        return JarArchiveShadeIndex.with(
+                                J2clArtifactShadeFile.readShadeFile(inputStream),
+                                Charset.defaultCharset()
+                        );
+                    } catch (final IOException cause) {
+                        throw new UncheckedIOException(cause);
+                    }
+                }
+        );
+    }
+
+    private final Map<String, JarArchiveShadeIndex> shadeIndices = cache();
+
+    /**
+     * The most glob or shade files kept, a watcher shares a context across every build and each edit of one of these
+     * files adds another.
+     */
+    private final static int CACHE_SIZE = 32;
+
+    /**
+     * Creates a cache keyed by file content which discards the least recently used entry when full.
+     */
+    private static <V> Map<String, V> cache() {
+        return Collections.synchronizedMap(
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(final Map.Entry<String, V> eldest) {
+                        return this.size() > CACHE_SIZE;
+                    }
+                }
+        );
+    }
+
+    /**
+     * Returns the cached value or creates one outside the lock, so files are parsed concurrently. Two threads may
+     * both create a value for the same content, but only the first is kept and returned.
+     */
+    private static <V> V cached(final Map<String, V> cache,
+                                final String content,
+                                final Function<String, V> create) {
+        V value = cache.get(content);
+        if (null == value) {
+            value = create.apply(content);
+
+            final V existing = cache.putIfAbsent(content, value);
+            if (null != existing) {
+                value = existing;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Shades the given java source, first trying the byte level {@link JarArchiveJavaShader} and then the java shader
+     * using the shade cache when one is present. Sources that contain no shaded package are returned immediately. The
+     * same content array is returned if the source is unchanged, so callers only need to compare references.
+     */
+    byte[] shade(final byte[] content,
+                 final JarArchiveShadeIndex index) {
+        final JarArchiveShadeMatcher matcher = index.matcher();
+        return null == matcher || matcher.test(content) ?
+                this.shade0(
+                        content,
+                        index
+                ) :
+                content;
+    }
+
+    private byte[] shade0(final byte[] content,
+                          final JarArchiveShadeIndex index) {
+        final JarArchiveJavaShader javaShader = index.javaShader();
+
+        byte[] shaded = null != javaShader ?
+                javaShader.shade(content) :
+                null;
+        // fallback to the java shader for anything the byte level shader does not support, the cache is only worth
+        // hashing and reading a file for this slower shader.
+        if (null == shaded) {
+            final JarArchiveShadeCache shadeCache = this.shadeCache;
+            shaded = null != shadeCache ?
+                    shadeCache.shade(
+                            content,
+                            index,
+                            (c) -> this.javaShade(c, index)
+                    ) :
+                    this.javaShade(
+                            content,
+                            index
+                    );
+        }
+
+        return shaded;
+    }
+
+    private byte[] javaShade(final byte[] content,
+                             final JarArchiveShadeIndex index) {
+        final byte[] maybeShaded = this.shader.apply(
+                content,
+                index.shadings()
+        );
+        return Arrays.equals(content, maybeShaded) ?
+                content :
+                maybeShaded;
+    }
+
+    private final JarArchiveShadeCache shadeCache;
+
+    /**
+     * The java shader, shared by all *.java files.
+     */
+    private final BiFunction<byte[], Map<PackageName, PackageName>, byte[]> shader = JavaShaders.javaFilePackageShader(Charset.defaultCharset());
+
+    /**
+     * Returns the {@link JarArchiveDeflater} for the current thread, so entries may be compressed concurrently.
+     */
+    JarArchiveDeflater deflater() {
+        return this.deflaters.get();
+    }
+
+    private final ThreadLocal<JarArchiveDeflater> deflaters = ThreadLocal.withInitial(this::createDeflater);
+
+    private JarArchiveDeflater createDeflater() {
+        final JarArchiveDeflater deflater = JarArchiveDeflater.with();
+        this.allDeflaters.add(deflater);
+        return deflater;
+    }
+
+    /**
+     * Every {@link JarArchiveDeflater} created by any thread, so they may be closed with this context.
+     */
+    private final Queue<JarArchiveDeflater> allDeflaters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Returns a streaming reader for the given XML, using a {@link XMLInputFactory} for each thread. DTDs and external
+     * entities are never loaded.
+     */
+    XMLStreamReader xmlStreamReader(final InputStream content) throws XMLStreamException {
+        return this.xmlInputFactories.get()
+                .createXMLStreamReader(content);
+    }
+
+    private final ThreadLocal<XMLInputFactory> xmlInputFactories = ThreadLocal.withInitial(GwtArchiveMakerToolContext::xmlInputFactory);
+
+    private static XMLInputFactory xmlInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    // AutoCloseable....................................................................................................
+
+    @Override
+    public void close() {
+        final ExecutorService executor = this.executor;
+        if (null != executor) {
+            executor.shutdownNow();
+        }
+
+        for (final JarArchiveDeflater deflater : this.allDeflaters) {
+            deflater.close();
+        }
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.options.toString();
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.map.Maps;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A fingerprint of everything that contributes to a gwt archive, the content of the input jar or directories (which
+ * includes the shade, ignored and public files), the replacement pom, any merged jars, the plugin version and options
+ * that change the archive. The fingerprint is saved next to the output after a successful build, and compared by later
+ * builds to skip rebuilding an unchanged archive.
+ */
+final class GwtArchiveMakerToolFingerprint {
+
+    /**
+     * The suffix added to the output file name giving the fingerprint file.
+     */
+    final static String FILE_SUFFIX = ".fingerprint";
+
+    static GwtArchiveMakerToolFingerprint with(final GwtArchiveMakerToolArchive archive,
+                                               final String pluginVersion,
+                                               final GwtArchiveMakerToolOptions options) throws IOException {
+        Objects.requireNonNull(archive, "archive");
+        Objects.requireNonNull(options, "options");
+
+        final Map<String, String> values = Maps.ordered();
+        values.put("plugin-version", String.valueOf(pluginVersion));
+        values.put("plugin-jar", codeSource(GwtArchiveMakerToolFingerprint.class));
+        values.put("input", sha256(archive.input()));
+
+        int i = 0;
+        for (final Path sources : archive.sources()) {
+            values.put("sources-" + i, sha256(sources));
+            i++;
+        }
+
+        values.put("pom", sha256(archive.pom()));
+
+        i = 0;
+        for (final Path merge : archive.merge()) {
+            values.put("merge-" + i, sha256(merge));
+            i++;
+        }
+        values.put("merge-module", archive.mergeModule().orElse(""));
+
+        values.put("options", options.fingerprint());
+        // sources are read and shaded using the default charset
+        values.put("charset", Charset.defaultCharset().name());
+
+        return new GwtArchiveMakerToolFingerprint(values);
+    }
+
+    private GwtArchiveMakerToolFingerprint(final Map<String, String> values) {
+        this.values = values;
+    }
+
+    /**
+     * Returns the reason why the given output must be rebuilt, or empty if the output is up to date.
+     */
+    Optional<String> outOfDate(final Path output) throws IOException {
+        final Path file = file(output);
+
+        final String reason;
+        if (false == Files.exists(output)) {
+            reason = "output missing " + output;
+        } else if (false == Files.isRegularFile(file)) {
+            reason = "fingerprint missing " + file;
+        } else {
+            final Map<String, String> previous = parse(
+                    Files.readString(file, StandardCharsets.UTF_8)
+            );
+            final Map<String, String> current = Maps.ordered();
+            current.putAll(this.values);
+            current.putAll(outputValues(output));
+
+            String changed = null;
+            for (final Map.Entry<String, String> value : current.entrySet()) {
+                if (false == value.getValue().equals(previous.get(value.getKey()))) {
+                    changed = value.getKey() + " changed";
+                    break;
+                }
+            }
+            reason = changed;
+        }
+
+        return Optional.ofNullable(reason);
+    }
+
+    /**
+     * Writes this fingerprint for the given freshly built output.
+     */
+    void write(final Path output) throws IOException {
+        final Map<String, String> values = Maps.ordered();
+        values.putAll(this.values);
+        values.putAll(outputValues(output));
+
+        final StringBuilder text = new StringBuilder();
+        for (final Map.Entry<String, String> value : values.entrySet()) {
+            text.append(value.getKey())
+                    .append('=')
+                    .append(value.getValue())
+                    .append('\n');
+        }
+
+        Files.writeString(
+                file(output),
+                text,
+                StandardCharsets.UTF_8
+        );
+    }
+
+    /**
+     * Removes any previous fingerprint, so a failed build is never considered up to date.
+     */
+    static void delete(final Path output) throws IOException {
+        Files.deleteIfExists(file(output));
+    }
+
+    static Path file(final Path output) {
+        return output.resolveSibling(output.getFileName() + FILE_SUFFIX);
+    }
+
+    private final Map<String, String> values;
+
+    /**
+     * The size and last modified of the output are recorded, so a deleted or replaced output is always rebuilt. For a
+     * directory the size and last modified of every file it was written with are recorded instead, so editing or
+     * deleting any of them also causes a rebuild.
+     */
+    private static Map<String, String> outputValues(final Path output) throws IOException {
+        final Map<String, String> values = Maps.ordered();
+        if (Files.isDirectory(output)) {
+            values.put(
+                    "output-files",
+                    JarArchiveDirectoryIndex.fingerprint(output)
+                            .orElse("missing")
+            );
+        } else {
+            values.put("output-size", String.valueOf(Files.size(output)));
+            values.put("output-last-modified", String.valueOf(Files.getLastModifiedTime(output).toMillis()));
+        }
+        return values;
+    }
+
+    private static Map<String, String> parse(final String text) {
+        final Map<String, String> values = Maps.ordered();
+
+        for (final String line : text.split("\n")) {
+            final int equals = line.indexOf('=');
+            if (equals > 0) {
+                values.put(
+                        line.substring(0, equals),
+                        line.substring(equals + 1)
+                );
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * SNAPSHOT versions of a jar may change without a version change, so the size and last modified of the jar
+     * holding the given class is returned, or an empty string if the class was not loaded from a jar file.
+     */
+    static String codeSource(final Class<?> type) throws IOException {
+        String jar = "";
+
+        final CodeSource codeSource = type.getProtectionDomain()
+                .getCodeSource();
+        if (null != codeSource && null != codeSource.getLocation()) {
+            try {
+                final Path path = Paths.get(codeSource.getLocation().toURI());
+                if (Files.isRegularFile(path)) {
+                    jar = Files.size(path) + "@" + Files.getLastModifiedTime(path).toMillis();
+                }
+            } catch (final URISyntaxException | IllegalArgumentException ignore) {
+                // not a file, leave empty
+            }
+        }
+
+        return jar;
+    }
+
+    /**
+     * Hashes the content of a file, or the path and content of every file below a directory in path order.
+     */
+    static String sha256(final Path file) throws IOException {
+        final MessageDigest digest = sha256();
+
+        if (Files.isDirectory(file)) {
+            final List<Path> files;
+            try (final Stream<Path> walk = Files.walk(file)) {
+                files = walk.filter(Files::isRegularFile)
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+
+            for (final Path f : files) {
+                digest.update(
+                        file.relativize(f)
+                                .toString()
+                                .getBytes(StandardCharsets.UTF_8)
+                );
+                digest.update((byte) 0);
+                digest.update(
+                        sha256(f).getBytes(StandardCharsets.US_ASCII)
+                );
+            }
+
+            return hex(digest.digest());
+        }
+
+        try (final InputStream input = Files.newInputStream(file)) {
+            final byte[] buffer = new byte[64 * 1024];
+            for (; ; ) {
+                final int read = input.read(buffer);
+                if (-1 == read) {
+                    break;
+                }
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        return hex(digest.digest());
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException cause) {
+            throw new IllegalStateException(cause.getMessage(), cause);
+        }
+    }
+
+    static String hex(final byte[] bytes) {
+        final char[] hex = new char[bytes.length * 2];
+
+        int i = 0;
+        for (final byte b : bytes) {
+            hex[i++] = Character.forDigit((b >> 4) & 0xF, 16);
+            hex[i++] = Character.forDigit(b & 0xF, 16);
+        }
+
+        return new String(hex);
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.values.toString();
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.list.Lists;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Collects the {@link GwtArchiveMakerToolPhaseMetrics} of each phase while making a single archive, also committing a
+ * {@link GwtArchiveMakerToolPhaseEvent} for each phase.
+ */
+final class GwtArchiveMakerToolMetrics {
+
+    static GwtArchiveMakerToolMetrics with(final Path archive) {
+        return new GwtArchiveMakerToolMetrics(
+                Objects.requireNonNull(archive, "archive")
+        );
+    }
+
+    private GwtArchiveMakerToolMetrics(final Path archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * The input jar of the archive.
+     */
+    Path archive() {
+        return this.archive;
+    }
+
+    private final Path archive;
+
+    /**
+     * Starts measuring a phase, which is recorded when {@link Phase#end(int, int, long, long, long, long)} is called.
+     */
+    Phase begin(final GwtArchiveMakerToolPhase phase) {
+        return new Phase(phase);
+    }
+
+    /**
+     * A phase that has begun but not ended.
+     */
+    final class Phase {
+
+        private Phase(final GwtArchiveMakerToolPhase phase) {
+            this.phase = phase;
+
+            this.event = new GwtArchiveMakerToolPhaseEvent();
+            this.event.begin();
+
+            this.start = System.nanoTime();
+        }
+
+        void end(final int entriesIn,
+                 final int entriesOut,
+                 final long bytesIn,
+                 final long bytesOut) {
+            this.end(
+                    entriesIn,
+                    entriesOut,
+                    bytesIn,
+                    bytesOut,
+                    0,
+                    0
+            );
+        }
+
+        void end(final int entriesIn,
+                 final int entriesOut,
+                 final long bytesIn,
+                 final long bytesOut,
+                 final long compressedBytes,
+                 final long uncompressedBytes) {
+            final long nanos = System.nanoTime() - this.start;
+
+            final GwtArchiveMakerToolPhaseEvent event = this.event;
+            if (event.shouldCommit()) {
+                event.archive = GwtArchiveMakerToolMetrics.this.archive.toString();
+                event.phase = this.phase.label;
+                event.entriesIn = entriesIn;
+                event.entriesOut = entriesOut;
+                event.bytesIn = bytesIn;
+                event.bytesOut = bytesOut;
+                event.compressedBytes = compressedBytes;
+                event.uncompressedBytes = uncompressedBytes;
+                event.commit();
+            }
+
+            GwtArchiveMakerToolMetrics.this.phases.merge(
+                    this.phase,
+                    GwtArchiveMakerToolPhaseMetrics.with(
+                            this.phase,
+                            nanos,
+                            entriesIn,
+                            entriesOut,
+                            bytesIn,
+                            bytesOut,
+                            compressedBytes,
+                            uncompressedBytes
+                    ),
+                    GwtArchiveMakerToolPhaseMetrics::merge
+            );
+        }
+
+        private final GwtArchiveMakerToolPhase phase;
+        private final GwtArchiveMakerToolPhaseEvent event;
+        private final long start;
+    }
+
+    /**
+     * Adds the phases of another archive, such as a jar merged into this archive, to the phases of this archive.
+     */
+    void add(final GwtArchiveMakerToolMetrics other) {
+        for (final GwtArchiveMakerToolPhaseMetrics phase : other.phases.values()) {
+            this.phases.merge(
+                    phase.phase(),
+                    phase,
+                    GwtArchiveMakerToolPhaseMetrics::add
+            );
+        }
+    }
+
+    /**
+     * The measured phases in the order they are performed.
+     */
+    List<GwtArchiveMakerToolPhaseMetrics> phases() {
+        final List<GwtArchiveMakerToolPhaseMetrics> phases = Lists.array();
+        phases.addAll(this.phases.values());
+        return Lists.immutable(phases);
+    }
+
+    private final Map<GwtArchiveMakerToolPhase, GwtArchiveMakerToolPhaseMetrics> phases = new EnumMap<>(GwtArchiveMakerToolPhase.class);
+
+    /**
+     * The total time of all phases.
+     */
+    long nanos() {
+        return this.phases.values()
+                .stream()
+                .mapToLong(GwtArchiveMakerToolPhaseMetrics::nanos)
+                .sum();
+    }
+
+    /**
+     * Writes a JSON report for all the given archives, replacing any existing file.
+     * <pre>
+     * {"archives": [{"archive": "input.jar", "nanos": 1, "millis": 0, "phases": [{"phase": "read", ...}]}]}
+     * </pre>
+     */
+    static void writeJson(final List<GwtArchiveMakerToolMetrics> metrics,
+                          final Path file) throws IOException {
+        final StringBuilder json = new StringBuilder();
+        json.append("{\"archives\": [");
+
+        String separator = "";
+        for (final GwtArchiveMakerToolMetrics archive : metrics) {
+            json.append(separator);
+            archive.appendJson(json);
+            separator = ", ";
+        }
+
+        json.append("]}\n");
+
+        final Path parent = file.toAbsolutePath()
+                .getParent();
+        if (null != parent) {
+            Files.createDirectories(parent);
+        }
+        Files.write(
+                file,
+                json.toString()
+                        .getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    private void appendJson(final StringBuilder json) {
+        final long nanos = this.nanos();
+
+        json.append("{\"archive\": ");
+        appendJsonString(this.archive.toString(), json);
+        json.append(", \"nanos\": ").append(nanos)
+                .append(", \"millis\": ").append(nanos / 1_000_000)
+                .append(", \"phases\": [");
+
+        String separator = "";
+        for (final GwtArchiveMakerToolPhaseMetrics phase : this.phases.values()) {
+            json.append(separator);
+            phase.appendJson(json);
+            separator = ", ";
+        }
+
+        json.append("]}");
+    }
+
+    private static void appendJsonString(final String text,
+                                         final StringBuilder json) {
+        json.append('"');
+
+        for (final char c : text.toCharArray()) {
+            switch (c) {
+                case '"':
+                case '\\':
+                    json.append('\\').append(c);
+                    break;
+                default:
+                    if (c < ' ') {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                    break;
+            }
+        }
+
+        json.append('"');
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.archive + " " + this.nanos() / 1_000_000 + "ms";
+    }
+}
@@ -17,13 +17,29 @@
 
 package walkingkooka.gwt.archivemaker.maven;
 
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.text.CharSequences;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * A plugin that packages a walkingkooka J2CL archive into a correct GWT archive.
@@ -32,19 +48,27 @@ import java.io.File;
 public class GwtArchiveMakerToolMojo extends AbstractMojo {
 
     /**
-     * The input jar file that needs to be transformed into a gwt jar.
+     * The input jar file or directory such as target/classes that needs to be transformed into a gwt jar. This and
+     * output and pom-file are required unless archives are configured. A directory avoids packaging a temporary jar.
      */
     @Parameter(
-            required = true,
             alias = "input"
     )
     private File input;
 
     /**
-     * The output gwt jar file that will be created
+     * Additional directories such as src/main/java whose files are merged with a directory input, files in the input
+     * win over files with the same path.
+     */
+    @Parameter(
+            alias = "sources"
+    )
+    private List<File> sources;
+
+    /**
+     * The output gwt jar file or directory that will be created
      */
     @Parameter(
-            required = true,
             alias = "output"
     )
     private File output;
@@ -53,21 +77,430 @@ public class GwtArchiveMakerToolMojo extends AbstractMojo {
      * Path to the pom.xml file for the gwt archive.
      */
     @Parameter(
-            required = true,
             alias = "pom-file"
     )
     private File pomFile;
 
+    /**
+     * Dependencies given as groupId:artifactId, where either may be *, whose J2CL jars are transformed concurrently and
+     * merged into the output of input. Identical entries are written once and different entries with the same path
+     * fail.
+     */
+    @Parameter(
+            alias = "merge"
+    )
+    private List<String> merge;
+
+    /**
+     * The name of a GWT module such as example.Merged created within a merged output, which inherits every other module.
+     */
+    @Parameter(
+            alias = "merge-module"
+    )
+    private String mergeModule;
+
+    /**
+     * Additional archives each with an input, output and pom-file, all archives are made concurrently.
+     */
+    @Parameter(
+            alias = "archives"
+    )
+    private List<GwtArchiveMakerToolArchive> archives;
+
+    /**
+     * The number of threads used to read and shade entries, when zero or less one thread per available processor is used.
+     */
+    @Parameter(
+            alias = "threads",
+            defaultValue = "0"
+    )
+    private int threads;
+
+    /**
+     * When true the output is always rebuilt, even if the fingerprint of the inputs is unchanged.
+     */
+    @Parameter(
+            alias = "force",
+            property = "gwt-archive-maker.force",
+            defaultValue = "false"
+    )
+    private boolean force;
+
+    /**
+     * When true the plan of every entry of each archive is printed and nothing is written. Only the central directory
+     * and control files of each input jar are read.
+     */
+    @Parameter(
+            alias = "dry-run",
+            property = "gwt-archive-maker.dry-run",
+            defaultValue = "false"
+    )
+    private boolean dryRun;
+
+    /**
+     * When set the archive is reproducible, with all entries having this time. The value is either an ISO-8601
+     * date time with an offset, eg 2023-01-01T00:00:00Z, or seconds since the epoch, following maven-archiver.
+     */
+    @Parameter(
+            alias = "output-timestamp",
+            defaultValue = "${project.build.outputTimestamp}"
+    )
+    private String outputTimestamp;
+
+    /**
+     * The directory holding shaded java sources from previous builds, shared by all projects. An empty value disables
+     * the cache.
+     */
+    @Parameter(
+            alias = "shade-cache-directory",
+            property = "gwt-archive-maker.shade-cache-directory",
+            defaultValue = "${settings.localRepository}/../gwt-archive-maker/shade-cache"
+    )
+    private File shadeCacheDirectory;
+
+    /**
+     * The maximum size of the shade cache in megabytes, the least recently used sources are removed when exceeded.
+     */
+    @Parameter(
+            alias = "shade-cache-max-size",
+            property = "gwt-archive-maker.shade-cache-max-size",
+            defaultValue = "256"
+    )
+    private long shadeCacheMaxSize;
+
+    /**
+     * The compression of entries not matched by a compression rule, either speed, default or size. Speed and default
+     * copy unchanged entries with their existing compression, size compresses every entry again with the best level.
+     */
+    @Parameter(
+            alias = "compression",
+            property = "gwt-archive-maker.compression",
+            defaultValue = "default"
+    )
+    private String compression;
+
+    /**
+     * Rules each with a glob pattern and level, either stored, speed, default, size or 0-9, the first rule matching an
+     * entry path selects its compression.
+     */
+    @Parameter(
+            alias = "compression-rules"
+    )
+    private List<GwtArchiveMakerToolCompressionRule> compressionRules;
+
+    /**
+     * Either jar or directory, a directory holds the exploded GWT jar for the dev mode codeserver and only files whose
+     * content changed are written.
+     */
+    @Parameter(
+            alias = "output-format",
+            property = "gwt-archive-maker.output-format",
+            defaultValue = "jar"
+    )
+    private String outputFormat;
+
+    /**
+     * When true an index of every entry is written next to the output jar, and later builds copy the compressed bytes
+     * of unchanged entries from the previous output jar instead of shading and compressing them again.
+     */
+    @Parameter(
+            alias = "incremental",
+            property = "gwt-archive-maker.incremental",
+            defaultValue = "false"
+    )
+    private boolean incremental;
+
+    /**
+     * Either full or slim, slim writes only what GWT client compilation needs, excluding class files without inflating
+     * them.
+     */
+    @Parameter(
+            alias = "profile",
+            property = "gwt-archive-maker.profile",
+            defaultValue = "full"
+    )
+    private String profile;
+
+    /**
+     * Glob patterns of additional entries excluded from every archive without inflating them.
+     */
+    @Parameter(
+            alias = "excludes"
+    )
+    private List<String> excludes;
+
+    /**
+     * When set a JSON report with the time, entries and bytes of each phase of each archive is written to this file.
+     */
+    @Parameter(
+            alias = "metrics-report",
+            property = "gwt-archive-maker.metrics-report"
+    )
+    private File metricsReport;
+
+    /**
+     * The project, whose resolved dependencies are searched for the jars to merge.
+     */
+    @Parameter(
+            defaultValue = "${project}",
+            readonly = true
+    )
+    private MavenProject project;
+
+    /**
+     * The version of this plugin, which is part of the fingerprint.
+     */
+    @Parameter(
+            defaultValue = "${plugin.version}",
+            readonly = true
+    )
+    private String pluginVersion;
+
     @Override
     public void execute() throws MojoFailureException {
         try {
-            GwtArchiveMakerTool.make(
-                    this.input.toPath(),
-                    this.output.toPath(),
-                    this.pomFile.toPath()
+            final GwtArchiveMakerToolOptions options = this.options();
+
+            final Charset charset = Charset.defaultCharset();
+            if (false == JarArchiveJavaShader.isSupported(charset)) {
+                this.getLog().warn("Default charset " + charset + " is not UTF-8, shading java sources will be slower, set file.encoding=UTF-8 to enable the byte level shader");
+            }
+
+            if (this.dryRun) {
+                this.logPlans(
+                        GwtArchiveMakerTool.planAll(
+                                this.allArchives(),
+                                options
+                        )
+                );
+                return;
+            }
+
+            final List<GwtArchiveMakerToolArchive> make = Lists.array();
+            final Map<GwtArchiveMakerToolArchive, GwtArchiveMakerToolFingerprint> fingerprints = Maps.ordered();
+
+            for (final GwtArchiveMakerToolArchive archive : this.allArchives()) {
+                final Path output = archive.output();
+
+                final GwtArchiveMakerToolFingerprint fingerprint = GwtArchiveMakerToolFingerprint.with(
+                        archive,
+                        this.pluginVersion,
+                        options
+                );
+
+                if (false == this.force) {
+                    final Optional<String> outOfDate = fingerprint.outOfDate(output);
+                    if (false == outOfDate.isPresent()) {
+                        this.getLog().info("Skipping " + output + " is up to date, input, pom-file and plugin version unchanged");
+                        continue;
+                    }
+                    this.getLog().info("Building " + output + " " + outOfDate.get());
+                }
+
+                GwtArchiveMakerToolFingerprint.delete(output);
+
+                make.add(archive);
+                fingerprints.put(archive, fingerprint);
+            }
+
+            final List<GwtArchiveMakerToolMetrics> metrics = GwtArchiveMakerTool.makeAll(
+                    make,
+                    options
             );
+
+            for (final Map.Entry<GwtArchiveMakerToolArchive, GwtArchiveMakerToolFingerprint> archiveAndFingerprint : fingerprints.entrySet()) {
+                archiveAndFingerprint.getValue()
+                        .write(
+                                archiveAndFingerprint.getKey()
+                                        .output()
+                        );
+            }
+
+            this.logMetrics(metrics);
         } catch (final Exception cause) {
             throw new MojoFailureException("Gwt archive maker \"build\" failed: " + cause.getMessage(), cause);
         }
     }
+
+    /**
+     * Logs the action of every entry of each archive followed by a summary.
+     */
+    private void logPlans(final List<GwtArchiveMakerToolPlan> plans) {
+        final Log log = this.getLog();
+
+        for (final GwtArchiveMakerToolPlan plan : plans) {
+            for (final GwtArchiveMakerToolPlanEntry entry : plan.entries()) {
+                log.info("  " + entry);
+            }
+            log.info(plan.toString());
+        }
+    }
+
+    /**
+     * Logs a summary of each phase of each archive and writes the report if one was requested.
+     */
+    private void logMetrics(final List<GwtArchiveMakerToolMetrics> metrics) throws IOException {
+        final Log log = this.getLog();
+
+        for (final GwtArchiveMakerToolMetrics archive : metrics) {
+            log.info(archive.toString());
+
+            for (final GwtArchiveMakerToolPhaseMetrics phase : archive.phases()) {
+                log.info("  " + phase);
+            }
+        }
+
+        final File metricsReport = this.metricsReport;
+        if (null != metricsReport) {
+            GwtArchiveMakerToolMetrics.writeJson(
+                    metrics,
+                    metricsReport.toPath()
+            );
+            log.info("Metrics report written to " + metricsReport);
+        }
+    }
+
+    /**
+     * Returns the archive from input, output and pom-file if present and all archives.
+     */
+    private List<GwtArchiveMakerToolArchive> allArchives() {
+        final List<GwtArchiveMakerToolArchive> archives = Lists.array();
+
+        if (null != this.input || null != this.output || null != this.pomFile) {
+            if (null == this.input || null == this.output || null == this.pomFile) {
+                throw new IllegalArgumentException("input, output and pom-file must all be present");
+            }
+            archives.add(
+                    GwtArchiveMakerToolArchive.with(
+                            this.input.toPath(),
+                            null == this.sources ?
+                                    Lists.empty() :
+                                    this.sources.stream()
+                                            .map(File::toPath)
+                                            .collect(Collectors.toList()),
+                            this.output.toPath(),
+                            this.pomFile.toPath()
+                    ).setMerge(
+                            this.mergeJars(),
+                            Optional.ofNullable(this.mergeModule)
+                    )
+            );
+        } else {
+            if (null != this.merge && false == this.merge.isEmpty()) {
+                throw new IllegalArgumentException("merge requires input, output and pom-file");
+            }
+        }
+
+        if (null != this.archives) {
+            archives.addAll(this.archives);
+        }
+
+        if (archives.isEmpty()) {
+            throw new IllegalArgumentException("Missing input, output and pom-file or archives");
+        }
+
+        return archives;
+    }
+
+    /**
+     * Returns the file of every resolved dependency matching a merge pattern, in dependency order. A pattern that
+     * matches no dependency fails.
+     */
+    private List<Path> mergeJars() {
+        final List<Path> jars = Lists.array();
+
+        final List<String> merge = this.merge;
+        if (null != merge) {
+            for (final String pattern : merge) {
+                final int colon = pattern.indexOf(':');
+                if (-1 == colon || colon != pattern.lastIndexOf(':')) {
+                    throw new IllegalArgumentException("Invalid merge " + CharSequences.quoteAndEscape(pattern) + " expected groupId:artifactId");
+                }
+                final String groupId = pattern.substring(0, colon);
+                final String artifactId = pattern.substring(colon + 1);
+
+                boolean matched = false;
+                for (final Artifact artifact : this.project.getArtifacts()) {
+                    if ((WILDCARD.equals(groupId) || groupId.equals(artifact.getGroupId())) &&
+                            (WILDCARD.equals(artifactId) || artifactId.equals(artifact.getArtifactId())) &&
+                            null != artifact.getFile()) {
+                        final Path jar = artifact.getFile().toPath();
+                        if (false == jars.contains(jar)) {
+                            jars.add(jar);
+                        }
+                        matched = true;
+                    }
+                }
+
+                if (false == matched) {
+                    throw new IllegalArgumentException("Merge " + CharSequences.quoteAndEscape(pattern) + " matched no dependency");
+                }
+            }
+        }
+
+        return jars;
+    }
+
+    private final static String WILDCARD = "*";
+
+    private GwtArchiveMakerToolOptions options() {
+        GwtArchiveMakerToolOptions options = GwtArchiveMakerToolOptions.DEFAULT
+                .setOutputTimestamp(
+                        outputTimestamp(this.outputTimestamp)
+                ).setShadeCache(
+                        Optional.ofNullable(this.shadeCacheDirectory)
+                                .map(File::toPath)
+                ).setShadeCacheMaxSize(
+                        this.shadeCacheMaxSize * 1024 * 1024
+                ).setCompression(
+                        GwtArchiveMakerToolCompressionPreset.parse(this.compression)
+                ).setOutputFormat(
+                        GwtArchiveMakerToolOutputFormat.parse(this.outputFormat)
+                ).setIncremental(
+                        this.incremental
+                ).setProfile(
+                        GwtArchiveMakerToolProfile.parse(this.profile)
+                );
+
+        final List<String> excludes = this.excludes;
+        if (null != excludes) {
+            options = options.setExcludes(excludes);
+        }
+
+        final List<GwtArchiveMakerToolCompressionRule> compressionRules = this.compressionRules;
+        if (null != compressionRules) {
+            options = options.setCompressionRules(compressionRules);
+        }
+
+        final int threads = this.threads;
+        if (threads > 0) {
+            options = options.setThreads(threads);
+        }
+
+        return options;
+    }
+
+    /**
+     * Parses project.build.outputTimestamp, empty and single character values such as "-" disable reproducible
+     * archives, digits are seconds since the epoch and everything else must be an ISO-8601 date time with an offset.
+     */
+    static Optional<Instant> outputTimestamp(final String outputTimestamp) {
+        final Optional<Instant> instant;
+
+        if (null == outputTimestamp || outputTimestamp.length() < 2) {
+            instant = Optional.empty();
+        } else {
+            try {
+                instant = Optional.of(
+                        outputTimestamp.chars().allMatch(Character::isDigit) ?
+                                Instant.ofEpochSecond(Long.parseLong(outputTimestamp)) :
+                                OffsetDateTime.parse(outputTimestamp).toInstant()
+                );
+            } catch (final DateTimeParseException | NumberFormatException cause) {
+                throw new IllegalArgumentException("Invalid output-timestamp " + CharSequences.quoteAndEscape(outputTimestamp) + ": " + cause.getMessage(), cause);
+            }
+        }
+
+        return instant;
+    }
 }
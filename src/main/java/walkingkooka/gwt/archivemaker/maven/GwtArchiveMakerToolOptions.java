@@ -0,0 +1,434 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.list.Lists;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Options that control how {@link GwtArchiveMakerTool} performs its work.
+ */
+public final class GwtArchiveMakerToolOptions {
+
+    /**
+     * The default maximum size of the shaded java source cache, 256MB.
+     */
+    public final static long DEFAULT_SHADE_CACHE_MAX_SIZE = 256 * 1024 * 1024;
+
+    /**
+     * Options using one thread for each available processor, without an output timestamp or shade cache, the default
+     * compression and a jar output with every entry that is always written from scratch.
+     */
+    public final static GwtArchiveMakerToolOptions DEFAULT = new GwtArchiveMakerToolOptions(
+            Runtime.getRuntime().availableProcessors(),
+            Optional.empty(),
+            Optional.empty(),
+            DEFAULT_SHADE_CACHE_MAX_SIZE,
+            GwtArchiveMakerToolCompressionPreset.DEFAULT,
+            Lists.empty(),
+            GwtArchiveMakerToolOutputFormat.JAR,
+            false,
+            GwtArchiveMakerToolProfile.FULL,
+            Lists.empty()
+    );
+
+    private GwtArchiveMakerToolOptions(final int threads,
+                                       final Optional<Instant> outputTimestamp,
+                                       final Optional<Path> shadeCache,
+                                       final long shadeCacheMaxSize,
+                                       final GwtArchiveMakerToolCompressionPreset compression,
+                                       final List<GwtArchiveMakerToolCompressionRule> compressionRules,
+                                       final GwtArchiveMakerToolOutputFormat outputFormat,
+                                       final boolean incremental,
+                                       final GwtArchiveMakerToolProfile profile,
+                                       final List<String> excludes) {
+        this.threads = threads;
+        this.outputTimestamp = outputTimestamp;
+        this.shadeCache = shadeCache;
+        this.shadeCacheMaxSize = shadeCacheMaxSize;
+        this.compression = compression;
+        this.compressionRules = compressionRules;
+        this.outputFormat = outputFormat;
+        this.incremental = incremental;
+        this.profile = profile;
+        this.excludes = excludes;
+        this.excludePatterns = excludes.isEmpty() ?
+                null :
+                JarArchiveGlobPatterns.parse(
+                        String.join("\n", excludes)
+                );
+    }
+
+    /**
+     * The number of threads used to read, shade and prepare entries. A value of 1 performs all work on the calling thread.
+     */
+    public int threads() {
+        return this.threads;
+    }
+
+    public GwtArchiveMakerToolOptions setThreads(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid threads " + threads + " < 1");
+        }
+
+        return this.threads == threads ?
+                this :
+                new GwtArchiveMakerToolOptions(
+                        threads,
+                        this.outputTimestamp,
+                        this.shadeCache,
+                        this.shadeCacheMaxSize,
+                        this.compression,
+                        this.compressionRules,
+                        this.outputFormat,
+                        this.incremental,
+                        this.profile,
+                        this.excludes
+                );
+    }
+
+    private final int threads;
+
+    /**
+     * When present the archive is reproducible, every entry has this time, entries are sorted by path and
+     * synthesized files use a fixed line ending, so identical inputs always produce identical bytes.
+     */
+    public Optional<Instant> outputTimestamp() {
+        return this.outputTimestamp;
+    }
+
+    public GwtArchiveMakerToolOptions setOutputTimestamp(final Optional<Instant> outputTimestamp) {
+        Objects.requireNonNull(outputTimestamp, "outputTimestamp");
+
+        return this.outputTimestamp.equals(outputTimestamp) ?
+                this :
+                new GwtArchiveMakerToolOptions(
+                        this.threads,
+                        outputTimestamp,
+                        this.shadeCache,
+                        this.shadeCacheMaxSize,
+                        this.compression,
+                        this.compressionRules,
+                        this.outputFormat,
+                        this.incremental,
+                        this.profile,
+                        this.excludes
+                );
+    }
+
+    private final Optional<Instant> outputTimestamp;
+
+    /**
+     * When present the directory holding shaded java sources from previous builds, keyed by the hash of the source and
+     * shade file.
+     */
+    public Optional<Path> shadeCache() {
+        return this.shadeCache;
+    }
+
+    public GwtArchiveMakerToolOptions setShadeCache(final Optional<Path> shadeCache) {
+        Objects.requireNonNull(shadeCache, "shadeCache");
+
+        return this.shadeCache.equals(shadeCache) ?
+                this :
+                new GwtArchiveMakerToolOptions(
+                        this.threads,
+                        this.outputTimestamp,
+                        shadeCache,
+                        this.shadeCacheMaxSize,
+                        this.compression,
+                        this.compressionRules,
+                        this.outputFormat,
+                        this.incremental,
+                        this.profile,
+                        this.excludes
+                );
+    }
+
+    private final Optional<Path> shadeCache;
+
+    /**
+     * The maximum size in bytes of the {@link #shadeCache()}, when exceeded the least recently used sources are removed.
+     */
+    public long shadeCacheMaxSize() {
+        return this.shadeCacheMaxSize;
+    }
+
+    public GwtArchiveMakerToolOptions setShadeCacheMaxSize(final long shadeCacheMaxSize) {
+        if (shadeCacheMaxSize < 0) {
+            throw new IllegalArgumentException("Invalid shadeCacheMaxSize " + shadeCacheMaxSize + " < 0");
+        }
+
+        return this.shadeCacheMaxSize == shadeCacheMaxSize ?
+                this :
+                new GwtArchiveMakerToolOptions(
+                        this.threads,
+                        this.outputTimestamp,
+                        this.shadeCache,
+                        shadeCacheMaxSize,
+                        this.compression,
+                        this.compressionRules,
+                        this.outputFormat,
+                        this.incremental,
+                        this.profile,
+                        this.excludes
+                );
+    }
+
+    private final long shadeCacheMaxSize;
+
+    /**
+     * The compression of entries that do not match any {@link #compressionRules()}.
+     */
+    public GwtArchiveMakerToolCompressionPreset compression() {
+        return this.compression;
+    }
+
+    public GwtArchiveMakerToolOptions setCompression(final GwtArchiveMakerToolCompressionPreset compression) {
+        Objects.requireNonNull(compression, "compression");
+
+        return this.compression == compression ?
+                this :
+                new GwtArchiveMakerToolOptions(
+                        this.threads,
+                        this.outputTimestamp,
+                        this.shadeCache,
+                        this.shadeCacheMaxSize,
+                        compression,
+                        this.compressionRules,
+                        this.outputFormat,
+                        this.incremental,
+                        this.profile,
+                        this.excludes
+                );
+    }
+
+    private final GwtArchiveMakerToolCompressionPreset compression;
+
+    /**
+     * Rules that select the compression of matching entries, the first matching rule wins.
+     */
+    public List<GwtArchiveMakerToolCompressionRule> compressionRules() {
+        return this.compressionRules;
+    }
+
+    public GwtArchiveMakerToolOptions setCompressionRules(final List<GwtArchiveMakerToolCompressionRule> compressionRules) {
+        Objects.requireNonNull(compressionRules, "compressionRules");
+
+        final List<GwtArchiveMakerToolCompressionRule> copy = Lists.immutable(compressionRules);
+        for (final GwtArchiveMakerToolCompressionRule rule : copy) {
+            rule.pattern();
+            rule.level();
+        }
+
+        return this.compressionRules.equals(copy) ?
+                this :
+                new GwtArchiveMakerToolOptions(
+                        this.threads,
+                        this.outputTimestamp,
+                        this.shadeCache,
+                        this.shadeCacheMaxSize,
+                        this.compression,
+                        copy,
+                        this.outputFormat,
+                        this.incremental,
+                        this.profile,
+                        this.excludes
+                );
+    }
+
+    private final List<GwtArchiveMakerToolCompressionRule> compressionRules;
+
+    /**
+     * Whether a jar file or an exploded directory is written.
+     */
+    public GwtArchiveMakerToolOutputFormat outputFormat() {
+        return this.outputFormat;
+    }
+
+    public GwtArchiveMakerToolOptions setOutputFormat(final GwtArchiveMakerToolOutputFormat outputFormat) {
+        Objects.requireNonNull(outputFormat, "outputFormat");
+
+        return this.outputFormat == outputFormat ?
+                this :
+                new GwtArchiveMakerToolOptions(
+                        this.threads,
+                        this.outputTimestamp,
+                        this.shadeCache,
+                        this.shadeCacheMaxSize,
+                        this.compression,
+                        this.compressionRules,
+                        outputFormat,
+                        this.incremental,
+                        this.profile,
+                        this.excludes
+                );
+    }
+
+    private final GwtArchiveMakerToolOutputFormat outputFormat;
+
+    /**
+     * When true an index of the key and CRC of every entry is written next to the output jar, and later builds copy the
+     * compressed bytes of entries with an unchanged key from the previous output jar.
+     */
+    public boolean isIncremental() {
+        return this.incremental;
+    }
+
+    public GwtArchiveMakerToolOptions setIncremental(final boolean incremental) {
+        return this.incremental == incremental ?
+                this :
+                new GwtArchiveMakerToolOptions(
+                        this.threads,
+                        this.outputTimestamp,
+                        this.shadeCache,
+                        this.shadeCacheMaxSize,
+                        this.compression,
+                        this.compressionRules,
+                        this.outputFormat,
+                        incremental,
+                        this.profile,
+                        this.excludes
+                );
+    }
+
+    private final boolean incremental;
+
+    /**
+     * The categories of entries excluded while reading, such as class files for {@link GwtArchiveMakerToolProfile#SLIM}.
+     */
+    public GwtArchiveMakerToolProfile profile() {
+        return this.profile;
+    }
+
+    public GwtArchiveMakerToolOptions setProfile(final GwtArchiveMakerToolProfile profile) {
+        Objects.requireNonNull(profile, "profile");
+
+        return this.profile == profile ?
+                this :
+                new GwtArchiveMakerToolOptions(
+                        this.threads,
+                        this.outputTimestamp,
+                        this.shadeCache,
+                        this.shadeCacheMaxSize,
+                        this.compression,
+                        this.compressionRules,
+                        this.outputFormat,
+                        this.incremental,
+                        profile,
+                        this.excludes
+                );
+    }
+
+    private final GwtArchiveMakerToolProfile profile;
+
+    /**
+     * Glob patterns of additional entries excluded while reading, eg <code>**&#47;*.txt</code>.
+     */
+    public List<String> excludes() {
+        return this.excludes;
+    }
+
+    public GwtArchiveMakerToolOptions setExcludes(final List<String> excludes) {
+        Objects.requireNonNull(excludes, "excludes");
+
+        final List<String> copy = Lists.immutable(excludes);
+        return this.excludes.equals(copy) ?
+                this :
+                new GwtArchiveMakerToolOptions(
+                        this.threads,
+                        this.outputTimestamp,
+                        this.shadeCache,
+                        this.shadeCacheMaxSize,
+                        this.compression,
+                        this.compressionRules,
+                        this.outputFormat,
+                        this.incremental,
+                        this.profile,
+                        copy
+                );
+    }
+
+    private final List<String> excludes;
+
+    /**
+     * The compiled {@link #excludes()}, which is null when there are none.
+     */
+    private final JarArchiveGlobPatterns excludePatterns;
+
+    /**
+     * Tests if the entry with the given path is excluded by the {@link #profile()} or {@link #excludes()}.
+     */
+    boolean isExcluded(final String path) {
+        final JarArchiveGlobPatterns excludePatterns = this.excludePatterns;
+        return this.profile.isExcluded(path) ||
+                (null != excludePatterns && excludePatterns.test(path));
+    }
+
+    /**
+     * Returns the deflate level for the given entry path from the first matching rule or the preset, where
+     * {@link GwtArchiveMakerToolCompressionRule#STORED} means the entry is stored without compression.
+     */
+    int compressionLevel(final String path) {
+        for (final GwtArchiveMakerToolCompressionRule rule : this.compressionRules) {
+            if (rule.test(path)) {
+                return rule.level();
+            }
+        }
+        return this.compression.level;
+    }
+
+    /**
+     * Returns true if the archive will be reproducible.
+     */
+    boolean isReproducible() {
+        return this.outputTimestamp.isPresent();
+    }
+
+    /**
+     * Returns a text form of only the options that change the archive produced, ignoring options such as threads.
+     */
+    String fingerprint() {
+        return "output-timestamp=" + this.outputTimestamp.map(Instant::toString).orElse("") +
+                " compression=" + this.compression +
+                " compression-rules=" + this.compressionRules +
+                " output-format=" + this.outputFormat +
+                " profile=" + this.profile +
+                " excludes=" + this.excludes;
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return "threads=" + this.threads +
+                this.outputTimestamp.map(t -> " outputTimestamp=" + t).orElse("") +
+                this.shadeCache.map(c -> " shadeCache=" + c + " shadeCacheMaxSize=" + this.shadeCacheMaxSize).orElse("") +
+                " compression=" + this.compression +
+                (this.compressionRules.isEmpty() ? "" : " compressionRules=" + this.compressionRules) +
+                (GwtArchiveMakerToolOutputFormat.JAR == this.outputFormat ? "" : " outputFormat=" + this.outputFormat) +
+                (this.incremental ? " incremental" : "") +
+                (GwtArchiveMakerToolProfile.FULL == this.profile ? "" : " profile=" + this.profile) +
+                (this.excludes.isEmpty() ? "" : " excludes=" + this.excludes);
+    }
+}
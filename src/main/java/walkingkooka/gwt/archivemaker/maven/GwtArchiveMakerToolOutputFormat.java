@@ -0,0 +1,52 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.text.CharSequences;
+
+/**
+ * How the transformed entries are written by {@link GwtArchiveMakerTool}.
+ */
+public enum GwtArchiveMakerToolOutputFormat {
+
+    /**
+     * A GWT jar file, which is rewritten completely every time.
+     */
+    JAR,
+
+    /**
+     * An exploded directory for the GWT dev mode codeserver, only files whose content changed are written and files no
+     * longer present are removed.
+     */
+    DIRECTORY;
+
+    /**
+     * Parses the name of a format ignoring case, eg <code>directory</code>.
+     */
+    public static GwtArchiveMakerToolOutputFormat parse(final String text) {
+        CharSequences.failIfNullOrEmpty(text, "text");
+
+        for (final GwtArchiveMakerToolOutputFormat format : values()) {
+            if (format.name().equalsIgnoreCase(text)) {
+                return format;
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid output-format " + CharSequences.quoteAndEscape(text) + " expected jar or directory");
+    }
+}
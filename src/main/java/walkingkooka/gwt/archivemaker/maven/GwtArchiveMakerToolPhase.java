@@ -0,0 +1,49 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+/**
+ * The phases of {@link GwtArchiveMakerTool} that are measured, in the order they are performed.
+ */
+enum GwtArchiveMakerToolPhase {
+
+    READ("read"),
+
+    EXCLUDE("exclude"),
+
+    IGNORE("ignore"),
+
+    SHADE("shade"),
+
+    PUBLIC("public"),
+
+    MAVEN("maven"),
+
+    MERGE("merge"),
+
+    WRITE("write");
+
+    GwtArchiveMakerToolPhase(final String label) {
+        this.label = label;
+    }
+
+    /**
+     * The label used in the summary, reports and JFR events.
+     */
+    final String label;
+}
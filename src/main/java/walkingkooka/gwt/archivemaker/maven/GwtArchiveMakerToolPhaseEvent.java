@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event recorded for each phase of each archive, with the same values as {@link GwtArchiveMakerToolPhaseMetrics}.
+ * Recording is enabled with eg <code>-XX:StartFlightRecording</code> in <code>MAVEN_OPTS</code>.
+ */
+@Name("walkingkooka.gwt.archivemaker.Phase")
+@Label("GWT Archive Maker Phase")
+@Category({"walkingkooka", "GWT Archive Maker"})
+@Description("A single phase of making a GWT archive")
+@StackTrace(false)
+final class GwtArchiveMakerToolPhaseEvent extends Event {
+
+    @Label("Archive")
+    String archive;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Entries In")
+    int entriesIn;
+
+    @Label("Entries Out")
+    int entriesOut;
+
+    @Label("Bytes In")
+    @DataAmount
+    long bytesIn;
+
+    @Label("Bytes Out")
+    @DataAmount
+    long bytesOut;
+
+    @Label("Compressed Bytes")
+    @DataAmount
+    long compressedBytes;
+
+    @Label("Uncompressed Bytes")
+    @DataAmount
+    long uncompressedBytes;
+}
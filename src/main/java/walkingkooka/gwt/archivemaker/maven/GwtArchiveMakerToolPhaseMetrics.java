@@ -0,0 +1,217 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import java.util.Locale;
+
+/**
+ * The measurements for a single phase of a single archive. Bytes in and out are the uncompressed sizes of the entries
+ * before and after the phase, while compressed and uncompressed bytes are the sizes of the jar entries read by
+ * {@link GwtArchiveMakerToolPhase#READ} or written by {@link GwtArchiveMakerToolPhase#WRITE}.
+ */
+final class GwtArchiveMakerToolPhaseMetrics {
+
+    static GwtArchiveMakerToolPhaseMetrics with(final GwtArchiveMakerToolPhase phase,
+                                                final long nanos,
+                                                final int entriesIn,
+                                                final int entriesOut,
+                                                final long bytesIn,
+                                                final long bytesOut,
+                                                final long compressedBytes,
+                                                final long uncompressedBytes) {
+        return new GwtArchiveMakerToolPhaseMetrics(
+                phase,
+                nanos,
+                entriesIn,
+                entriesOut,
+                bytesIn,
+                bytesOut,
+                compressedBytes,
+                uncompressedBytes
+        );
+    }
+
+    private GwtArchiveMakerToolPhaseMetrics(final GwtArchiveMakerToolPhase phase,
+                                            final long nanos,
+                                            final int entriesIn,
+                                            final int entriesOut,
+                                            final long bytesIn,
+                                            final long bytesOut,
+                                            final long compressedBytes,
+                                            final long uncompressedBytes) {
+        this.phase = phase;
+        this.nanos = nanos;
+        this.entriesIn = entriesIn;
+        this.entriesOut = entriesOut;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        this.compressedBytes = compressedBytes;
+        this.uncompressedBytes = uncompressedBytes;
+    }
+
+    /**
+     * Combines a later run of the same phase, eg the second removal of ignored files, keeping the first inputs and last
+     * outputs and adding the times.
+     */
+    GwtArchiveMakerToolPhaseMetrics merge(final GwtArchiveMakerToolPhaseMetrics later) {
+        return new GwtArchiveMakerToolPhaseMetrics(
+                this.phase,
+                this.nanos + later.nanos,
+                this.entriesIn,
+                later.entriesOut,
+                this.bytesIn,
+                later.bytesOut,
+                this.compressedBytes + later.compressedBytes,
+                this.uncompressedBytes + later.uncompressedBytes
+        );
+    }
+
+    /**
+     * Combines the same phase of another archive such as a merged jar, adding all inputs, outputs and times.
+     */
+    GwtArchiveMakerToolPhaseMetrics add(final GwtArchiveMakerToolPhaseMetrics other) {
+        return new GwtArchiveMakerToolPhaseMetrics(
+                this.phase,
+                this.nanos + other.nanos,
+                this.entriesIn + other.entriesIn,
+                this.entriesOut + other.entriesOut,
+                this.bytesIn + other.bytesIn,
+                this.bytesOut + other.bytesOut,
+                this.compressedBytes + other.compressedBytes,
+                this.uncompressedBytes + other.uncompressedBytes
+        );
+    }
+
+    GwtArchiveMakerToolPhase phase() {
+        return this.phase;
+    }
+
+    private final GwtArchiveMakerToolPhase phase;
+
+    long nanos() {
+        return this.nanos;
+    }
+
+    long millis() {
+        return this.nanos / 1_000_000;
+    }
+
+    private final long nanos;
+
+    int entriesIn() {
+        return this.entriesIn;
+    }
+
+    private final int entriesIn;
+
+    int entriesOut() {
+        return this.entriesOut;
+    }
+
+    private final int entriesOut;
+
+    long bytesIn() {
+        return this.bytesIn;
+    }
+
+    private final long bytesIn;
+
+    long bytesOut() {
+        return this.bytesOut;
+    }
+
+    private final long bytesOut;
+
+    long compressedBytes() {
+        return this.compressedBytes;
+    }
+
+    private final long compressedBytes;
+
+    long uncompressedBytes() {
+        return this.uncompressedBytes;
+    }
+
+    private final long uncompressedBytes;
+
+    /**
+     * True if this phase read or wrote jar entries, and has a compression ratio.
+     */
+    boolean hasCompressionRatio() {
+        return this.uncompressedBytes > 0;
+    }
+
+    /**
+     * The compressed size divided by the uncompressed size of the jar entries read or written.
+     */
+    double compressionRatio() {
+        return this.hasCompressionRatio() ?
+                (double) this.compressedBytes / this.uncompressedBytes :
+                0;
+    }
+
+    /**
+     * Appends this phase as a JSON object.
+     */
+    void appendJson(final StringBuilder json) {
+        json.append("{\"phase\": \"").append(this.phase.label)
+                .append("\", \"nanos\": ").append(this.nanos)
+                .append(", \"millis\": ").append(this.millis())
+                .append(", \"entriesIn\": ").append(this.entriesIn)
+                .append(", \"entriesOut\": ").append(this.entriesOut)
+                .append(", \"bytesIn\": ").append(this.bytesIn)
+                .append(", \"bytesOut\": ").append(this.bytesOut)
+                .append(", \"compressedBytes\": ").append(this.compressedBytes)
+                .append(", \"uncompressedBytes\": ").append(this.uncompressedBytes);
+        if (this.hasCompressionRatio()) {
+            json.append(", \"compressionRatio\": ")
+                    .append(String.format(Locale.ROOT, "%.4f", this.compressionRatio()));
+        }
+        json.append('}');
+    }
+
+    // Object...........................................................................................................
+
+    /**
+     * A single line used by the summary, eg <code>shade 12ms entries 586 -> 580 bytes 1234567 -> 1230000</code>.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder b = new StringBuilder();
+        b.append(String.format(
+                Locale.ROOT,
+                "%-6s %6dms entries %d -> %d bytes %d -> %d",
+                this.phase.label,
+                this.millis(),
+                this.entriesIn,
+                this.entriesOut,
+                this.bytesIn,
+                this.bytesOut
+        ));
+        if (this.hasCompressionRatio()) {
+            b.append(String.format(
+                    Locale.ROOT,
+                    " compressed %d/%d %.1f%%",
+                    this.compressedBytes,
+                    this.uncompressedBytes,
+                    this.compressionRatio() * 100
+            ));
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.list.Lists;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The {@link GwtArchiveMakerToolPlanEntry} of every entry of a single archive, built from the central directory and the
+ * small control files only. {@link GwtArchiveMakerTool#createArchiveAndWrite(Path)} follows this plan, so only entries
+ * whose action inflates are ever decompressed.
+ */
+final class GwtArchiveMakerToolPlan {
+
+    static GwtArchiveMakerToolPlan with(final Path archive,
+                                        final List<GwtArchiveMakerToolPlanEntry> entries) {
+        Objects.requireNonNull(archive, "archive");
+        Objects.requireNonNull(entries, "entries");
+
+        return new GwtArchiveMakerToolPlan(
+                archive,
+                Lists.immutable(entries)
+        );
+    }
+
+    private GwtArchiveMakerToolPlan(final Path archive,
+                                    final List<GwtArchiveMakerToolPlanEntry> entries) {
+        this.archive = archive;
+        this.entries = entries;
+    }
+
+    /**
+     * The input jar of the archive.
+     */
+    Path archive() {
+        return this.archive;
+    }
+
+    private final Path archive;
+
+    /**
+     * Removed entries followed by written entries in the order they will be written.
+     */
+    List<GwtArchiveMakerToolPlanEntry> entries() {
+        return this.entries;
+    }
+
+    private final List<GwtArchiveMakerToolPlanEntry> entries;
+
+    /**
+     * The number of entries for each action, in the order the actions are declared.
+     */
+    Map<GwtArchiveMakerToolPlanAction, Integer> counts() {
+        final Map<GwtArchiveMakerToolPlanAction, Integer> counts = new EnumMap<>(GwtArchiveMakerToolPlanAction.class);
+        for (final GwtArchiveMakerToolPlanEntry entry : this.entries) {
+            counts.merge(
+                    entry.action(),
+                    1,
+                    Integer::sum
+            );
+        }
+        return counts;
+    }
+
+    // Object...........................................................................................................
+
+    /**
+     * A summary line, eg <code>input.jar 586 entries, 12 inflated: copy=560 shade=12 ...</code>.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder b = new StringBuilder();
+        int inflated = 0;
+
+        for (final Map.Entry<GwtArchiveMakerToolPlanAction, Integer> actionAndCount : this.counts().entrySet()) {
+            final GwtArchiveMakerToolPlanAction action = actionAndCount.getKey();
+            final int count = actionAndCount.getValue();
+
+            if (action.inflate) {
+                inflated += count;
+            }
+            b.append(' ')
+                    .append(action.label)
+                    .append('=')
+                    .append(count);
+        }
+
+        return this.archive + " " + this.entries.size() + " entries, " + inflated + " inflated:" + b;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+/**
+ * The fate of a single entry of the source jar file, decided from metadata alone before any content is inflated.
+ */
+enum GwtArchiveMakerToolPlanAction {
+
+    /**
+     * A J2CL control file such as the shade or ignored files file, which is read but not written.
+     */
+    CONTROL("control", false),
+
+    /**
+     * Removed while reading because the profile or excludes of the options exclude it, never inflated.
+     */
+    EXCLUDE("exclude", false),
+
+    /**
+     * Removed because it matched the ignored files patterns, never inflated.
+     */
+    IGNORE("ignore", false),
+
+    /**
+     * Removed without being inflated, eg shaded class files and the maven files replaced by the pom.
+     */
+    DROP("drop", false),
+
+    /**
+     * Written by copying the raw compressed bytes, possibly under a new path.
+     */
+    COPY("copy", false),
+
+    /**
+     * Inflated and compressed again because the compression policy requires a different method or level, or a file read
+     * from a directory that is compressed for the first time.
+     */
+    RECOMPRESS("recompress", true),
+
+    /**
+     * A java source that is inflated so its content can be shaded.
+     */
+    SHADE("shade", true),
+
+    /**
+     * Content created by the tool, eg the manifest and maven files, nothing is inflated.
+     */
+    CREATE("create", false);
+
+    GwtArchiveMakerToolPlanAction(final String label,
+                                  final boolean inflate) {
+        this.label = label;
+        this.inflate = inflate;
+    }
+
+    /**
+     * The label used when the plan is printed.
+     */
+    final String label;
+
+    /**
+     * True if the content of the source entry must be inflated.
+     */
+    final boolean inflate;
+}
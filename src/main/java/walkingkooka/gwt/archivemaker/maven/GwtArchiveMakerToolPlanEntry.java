@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The {@link GwtArchiveMakerToolPlanAction} of a single entry, with its path in the source jar file and the path it
+ * will be written to. Created entries have no source path and removed entries have no output path.
+ */
+final class GwtArchiveMakerToolPlanEntry {
+
+    static GwtArchiveMakerToolPlanEntry with(final Optional<String> source,
+                                             final Optional<String> output,
+                                             final GwtArchiveMakerToolPlanAction action) {
+        Objects.requireNonNull(source, "source");
+        Objects.requireNonNull(output, "output");
+        Objects.requireNonNull(action, "action");
+
+        return new GwtArchiveMakerToolPlanEntry(
+                source,
+                output,
+                action
+        );
+    }
+
+    private GwtArchiveMakerToolPlanEntry(final Optional<String> source,
+                                         final Optional<String> output,
+                                         final GwtArchiveMakerToolPlanAction action) {
+        this.source = source;
+        this.output = output;
+        this.action = action;
+    }
+
+    Optional<String> source() {
+        return this.source;
+    }
+
+    private final Optional<String> source;
+
+    Optional<String> output() {
+        return this.output;
+    }
+
+    private final Optional<String> output;
+
+    GwtArchiveMakerToolPlanAction action() {
+        return this.action;
+    }
+
+    private final GwtArchiveMakerToolPlanAction action;
+
+    // Object...........................................................................................................
+
+    /**
+     * A single line, eg <code>shade walkingkooka/j2cl/java/io/File.java -> walkingkooka/j2cl/java/io/super/java/io/File.java</code>.
+     */
+    @Override
+    public String toString() {
+        final String source = this.source.orElse(null);
+        final String output = this.output.orElse(null);
+
+        return String.format("%-10s ", this.action.label) +
+                (null == source ?
+                        output :
+                        null == output || source.equals(output) ?
+                                source :
+                                source + " -> " + output);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.text.CharSequences;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The groupId, artifactId and version read from the replacement pom in a single streaming pass, which stops as soon as
+ * all three children of the root element have been read.
+ */
+final class GwtArchiveMakerToolPom {
+
+    /**
+     * Reads the pom, the reader is always closed.
+     */
+    static GwtArchiveMakerToolPom parse(final XMLStreamReader reader) throws XMLStreamException {
+        String groupId = null;
+        String artifactId = null;
+        String version = null;
+
+        try {
+            int depth = 0;
+
+            while (reader.hasNext() && (null == groupId || null == artifactId || null == version)) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+
+                        // only children of project
+                        if (2 == depth) {
+                            final String localName = reader.getLocalName();
+                            if ("groupId".equals(localName) && null == groupId) {
+                                groupId = reader.getElementText();
+                                depth--;
+                            } else if ("artifactId".equals(localName) && null == artifactId) {
+                                artifactId = reader.getElementText();
+                                depth--;
+                            } else if ("version".equals(localName) && null == version) {
+                                version = reader.getElementText();
+                                depth--;
+                            }
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        depth--;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return new GwtArchiveMakerToolPom(
+                required(groupId, "groupId"),
+                required(artifactId, "artifactId"),
+                required(version, "version")
+        );
+    }
+
+    private static String required(final String value,
+                                   final String tagName) {
+        if (null == value) {
+            throw new IllegalArgumentException("Missing " + CharSequences.quoteAndEscape(tagName));
+        }
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("POM file missing " + CharSequences.quoteAndEscape(tagName));
+        }
+        return value;
+    }
+
+    private GwtArchiveMakerToolPom(final String groupId,
+                                   final String artifactId,
+                                   final String version) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.version = version;
+    }
+
+    String groupId() {
+        return this.groupId;
+    }
+
+    private final String groupId;
+
+    String artifactId() {
+        return this.artifactId;
+    }
+
+    private final String artifactId;
+
+    String version() {
+        return this.version;
+    }
+
+    private final String version;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.groupId + ":" + this.artifactId + ":" + this.version;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.text.CharSequences;
+
+/**
+ * Selects the categories of entries that {@link GwtArchiveMakerTool} excludes while reading, before any content is
+ * inflated.
+ */
+public enum GwtArchiveMakerToolProfile {
+
+    /**
+     * Every entry is written.
+     */
+    FULL,
+
+    /**
+     * Only what GWT client compilation needs, java sources, *.gwt.xml and public resources, excluding class files.
+     * Other files such as J2CL *.native.js are kept, as they may be resources of the module.
+     */
+    SLIM(
+            ".class"
+    );
+
+    GwtArchiveMakerToolProfile(final String... excludedSuffixes) {
+        this.excludedSuffixes = excludedSuffixes;
+    }
+
+    /**
+     * Tests if the entry with the given path is excluded from its name alone.
+     */
+    boolean isExcluded(final String path) {
+        for (final String suffix : this.excludedSuffixes) {
+            if (path.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final String[] excludedSuffixes;
+
+    /**
+     * Parses the name of a profile ignoring case, eg <code>slim</code>.
+     */
+    public static GwtArchiveMakerToolProfile parse(final String text) {
+        CharSequences.failIfNullOrEmpty(text, "text");
+
+        for (final GwtArchiveMakerToolProfile profile : values()) {
+            if (profile.name().equalsIgnoreCase(text)) {
+                return profile;
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid profile " + CharSequences.quoteAndEscape(text) + " expected full or slim");
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the tool resident, making the archive once and again whenever the input jar or directories or the pom change.
+ * A single {@link GwtArchiveMakerToolContext} is shared by every build so the worker threads, XML readers, deflaters
+ * and parsed glob and shade files stay warm. Bursts of events, such as an IDE saving many files, are coalesced into a
+ * single build once no event has arrived for {@link #QUIET_MILLIS}. Builds are always incremental, so each rebuild
+ * only shades and compresses the entries that changed.
+ */
+final class GwtArchiveMakerToolWatcher {
+
+    /**
+     * The time without any events after which a build begins.
+     */
+    final static long QUIET_MILLIS = 200;
+
+    static GwtArchiveMakerToolWatcher with(final GwtArchiveMakerToolArchive archive,
+                                           final GwtArchiveMakerToolOptions options,
+                                           final PrintStream printer) {
+        return new GwtArchiveMakerToolWatcher(
+                Objects.requireNonNull(archive, "archive"),
+                Objects.requireNonNull(options, "options"),
+                Objects.requireNonNull(printer, "printer")
+        );
+    }
+
+    private GwtArchiveMakerToolWatcher(final GwtArchiveMakerToolArchive archive,
+                                       final GwtArchiveMakerToolOptions options,
+                                       final PrintStream printer) {
+        this.archive = archive;
+        this.options = options.setIncremental(true);
+        this.printer = printer;
+
+        final List<Path> roots = Lists.array();
+        roots.add(
+                archive.input()
+                        .toAbsolutePath()
+        );
+        archive.sources()
+                .forEach(s -> roots.add(s.toAbsolutePath()));
+        archive.merge()
+                .forEach(m -> roots.add(m.toAbsolutePath()));
+        this.roots = roots;
+
+        this.pom = archive.pom()
+                .toAbsolutePath();
+        this.output = archive.output()
+                .toAbsolutePath();
+    }
+
+    /**
+     * Builds the archive and then waits for changes until the thread is interrupted. Failed builds are printed and
+     * watching continues.
+     */
+    void run() throws Exception {
+        try (final GwtArchiveMakerToolContext context = GwtArchiveMakerToolContext.with(this.options);
+             final WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            this.register(watchService);
+            this.make(context);
+
+            for (; ; ) {
+                boolean changed = this.poll(watchService.take());
+
+                // coalesce any further events until it is quiet
+                for (; ; ) {
+                    final WatchKey key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                    if (null == key) {
+                        break;
+                    }
+                    changed |= this.poll(key);
+                }
+
+                if (changed) {
+                    // directories may have been created below a directory input
+                    this.register(watchService);
+                    this.make(context);
+                }
+            }
+        } catch (final InterruptedException stop) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void make(final GwtArchiveMakerToolContext context) {
+        final PrintStream printer = this.printer;
+
+        try {
+            final GwtArchiveMakerToolMetrics metrics = GwtArchiveMakerTool.make(
+                    this.archive,
+                    context
+            ).metrics();
+
+            printer.println(metrics);
+            for (final GwtArchiveMakerToolPhaseMetrics phase : metrics.phases()) {
+                printer.println("  " + phase);
+            }
+        } catch (final Exception cause) {
+            printer.println("Unable to make " + this.output + ": " + cause.getMessage());
+        }
+        printer.println("Watching " + this.roots + " " + this.pom);
+    }
+
+    /**
+     * Registers the directory holding the pom and a jar input, and every directory below directory inputs.
+     */
+    private void register(final WatchService watchService) throws IOException {
+        this.register(
+                this.pom.getParent(),
+                watchService
+        );
+
+        for (final Path root : this.roots) {
+            if (Files.isDirectory(root)) {
+                final List<Path> directories;
+                try (final Stream<Path> walk = Files.walk(root)) {
+                    directories = walk.filter(Files::isDirectory)
+                            .filter(d -> false == d.startsWith(this.output))
+                            .collect(Collectors.toList());
+                }
+                for (final Path directory : directories) {
+                    this.register(
+                            directory,
+                            watchService
+                    );
+                }
+            } else {
+                this.register(
+                        root.getParent(),
+                        watchService
+                );
+            }
+        }
+    }
+
+    private void register(final Path directory,
+                          final WatchService watchService) throws IOException {
+        if (false == this.keyToDirectory.containsValue(directory)) {
+            this.keyToDirectory.put(
+                    directory.register(
+                            watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE,
+                            StandardWatchEventKinds.ENTRY_MODIFY
+                    ),
+                    directory
+            );
+        }
+    }
+
+    /**
+     * Consumes the events of the key, returning true if any touched an input or the pom.
+     */
+    private boolean poll(final WatchKey key) {
+        boolean changed = false;
+
+        final Path directory = this.keyToDirectory.get(key);
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (StandardWatchEventKinds.OVERFLOW == event.kind() || null == directory) {
+                changed = true;
+            } else {
+                changed |= this.isInput(
+                        directory.resolve((Path) event.context())
+                );
+            }
+        }
+
+        if (false == key.reset()) {
+            this.keyToDirectory.remove(key);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Tests if the path is the pom, a jar input or a file below a directory input, ignoring the output which may be
+     * in the same directory.
+     */
+    private boolean isInput(final Path path) {
+        boolean input = path.equals(this.pom) || this.roots.contains(path);
+
+        if (false == input && false == this.isOutput(path)) {
+            for (final Path root : this.roots) {
+                input |= path.startsWith(root);
+            }
+        }
+
+        return input;
+    }
+
+    /**
+     * Tests if the path is the output, a file below a directory output, or a sibling whose name begins with the name of
+     * the output, such as the temporary file and the <code>.entries</code>, <code>.files</code> and
+     * <code>.fingerprint</code> files written next to it.
+     */
+    private boolean isOutput(final Path path) {
+        final Path output = this.output;
+
+        return path.startsWith(output) ||
+                (output.getParent().equals(path.getParent()) &&
+                        path.getFileName()
+                                .toString()
+                                .startsWith(
+                                        output.getFileName()
+                                                .toString()
+                                ));
+    }
+
+    private final GwtArchiveMakerToolArchive archive;
+
+    private final GwtArchiveMakerToolOptions options;
+
+    private final PrintStream printer;
+
+    /**
+     * The absolute input jar or directory followed by any source directories.
+     */
+    private final List<Path> roots;
+
+    private final Path pom;
+
+    private final Path output;
+
+    private final Map<WatchKey, Path> keyToDirectory = Maps.hash();
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.archive.toString();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses entry content ready for {@link JarArchiveWriter}, computing the CRC of each chunk as it is deflated so the
+ * content is only visited once. Instances are not thread safe, but entries may be compressed concurrently using one
+ * instance per thread and then written in order.
+ */
+final class JarArchiveDeflater implements AutoCloseable {
+
+    /**
+     * The content is checksummed and deflated in chunks of this size.
+     */
+    private final static int CHUNK = 64 * 1024;
+
+    static JarArchiveDeflater with() {
+        return new JarArchiveDeflater();
+    }
+
+    private JarArchiveDeflater() {
+        super();
+    }
+
+    /**
+     * Returns an entry holding the compressed content and its CRC, storing the content without a copy when the level
+     * is {@link Deflater#NO_COMPRESSION}.
+     */
+    JarArchiveWriterEntry deflate(final String path,
+                                  final long lastModified,
+                                  final ByteBuffer content,
+                                  final int level) {
+        final CRC32 crc = this.crc;
+        crc.reset();
+
+        final int size = content.remaining();
+
+        final JarArchiveWriterEntry entry;
+        if (Deflater.NO_COMPRESSION == level) {
+            crc.update(content.duplicate());
+
+            entry = JarArchiveWriterEntry.stored(
+                    path,
+                    lastModified,
+                    crc.getValue(),
+                    content
+            );
+        } else {
+            final Deflater deflater = this.deflater;
+            deflater.reset();
+            deflater.setLevel(level);
+
+            ByteBuffer output = this.output;
+            output.clear();
+
+            final ByteBuffer input = content.duplicate();
+            while (input.hasRemaining()) {
+                final int length = Math.min(CHUNK, input.remaining());
+                final ByteBuffer chunk = input.slice()
+                        .limit(length);
+
+                crc.update(chunk.duplicate());
+
+                deflater.setInput(chunk);
+                while (false == deflater.needsInput()) {
+                    output = this.deflate(output);
+                }
+
+                input.position(input.position() + length);
+            }
+
+            deflater.finish();
+            while (false == deflater.finished()) {
+                output = this.deflate(output);
+            }
+
+            this.output = output;
+
+            entry = JarArchiveWriterEntry.deflated(
+                    path,
+                    lastModified,
+                    crc.getValue(),
+                    size,
+                    ByteBuffer.wrap(
+                            Arrays.copyOf(
+                                    output.array(),
+                                    output.position()
+                            )
+                    )
+            );
+        }
+
+        return entry;
+    }
+
+    /**
+     * Deflates into the output growing it when full.
+     */
+    private ByteBuffer deflate(final ByteBuffer output) {
+        ByteBuffer grown = output;
+        if (false == grown.hasRemaining()) {
+            grown = ByteBuffer.allocate(output.capacity() * 2)
+                    .put(output.flip());
+        }
+        this.deflater.deflate(grown);
+        return grown;
+    }
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Compressed bytes are deflated into this buffer, which is reused and only the compressed bytes are copied.
+     */
+    private ByteBuffer output = ByteBuffer.allocate(CHUNK);
+
+    // AutoCloseable....................................................................................................
+
+    @Override
+    public void close() {
+        this.deflater.end();
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.deflater.toString();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.text.CharSequences;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * A sidecar file written next to an exploded output directory holding the relative path of every file written by the
+ * last build. Only files listed here are ever removed from the directory, and a non empty directory without this file
+ * is never written, so a misconfigured output such as <code>src/main/resources</code> is never emptied.
+ * <pre>
+ * # gwt-archive-maker directory
+ * META-INF/MANIFEST.MF
+ * walkingkooka/Example.java
+ * </pre>
+ */
+final class JarArchiveDirectoryIndex {
+
+    /**
+     * The suffix added to the output directory name giving the index file.
+     */
+    final static String FILE_SUFFIX = ".files";
+
+    private final static String HEADER = "# gwt-archive-maker directory";
+
+    static Path file(final Path directory) {
+        return directory.resolveSibling(directory.getFileName() + FILE_SUFFIX);
+    }
+
+    /**
+     * Returns the paths written by the previous build, failing if the directory holds files but has no index.
+     */
+    static List<String> previous(final Path directory) throws IOException {
+        Objects.requireNonNull(directory, "directory");
+
+        final Path file = file(directory);
+
+        final List<String> paths = Lists.array();
+        if (Files.isRegularFile(file)) {
+            final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || false == HEADER.equals(lines.get(0))) {
+                throw new IllegalArgumentException("Invalid directory index " + file);
+            }
+            paths.addAll(lines.subList(1, lines.size()));
+        } else {
+            if (Files.isDirectory(directory)) {
+                try (final Stream<Path> children = Files.list(directory)) {
+                    if (children.findAny().isPresent()) {
+                        throw new IllegalArgumentException("Unable to write to non empty directory " + directory + " which was not written by a previous build, " + file + " missing");
+                    }
+                }
+            }
+        }
+
+        return paths;
+    }
+
+    /**
+     * Writes the index holding every path written to the directory.
+     */
+    static void write(final Path directory,
+                      final Collection<String> paths) throws IOException {
+        final StringBuilder text = new StringBuilder();
+        text.append(HEADER)
+                .append('\n');
+
+        for (final String path : new TreeSet<>(paths)) {
+            text.append(path)
+                    .append('\n');
+        }
+
+        Files.writeString(
+                file(directory),
+                text,
+                StandardCharsets.UTF_8
+        );
+    }
+
+    /**
+     * Resolves the path of an entry within the directory, failing if it would be outside, eg <code>../x</code> or
+     * <code>/etc/x</code>.
+     */
+    static Path resolve(final Path directory,
+                        final String path) {
+        final Path root = directory.toAbsolutePath()
+                .normalize();
+        final Path file = root.resolve(path)
+                .normalize();
+        if (false == file.startsWith(root) || file.equals(root)) {
+            throw new IllegalArgumentException("Entry " + CharSequences.quoteAndEscape(path) + " is outside output directory " + directory);
+        }
+        return file;
+    }
+
+    /**
+     * A hash of the path, size and last modified of every file in the index, which changes when any written file is
+     * edited or deleted, or empty when there is no index.
+     */
+    static Optional<String> fingerprint(final Path directory) throws IOException {
+        final Path file = file(directory);
+
+        String fingerprint = null;
+        if (Files.isRegularFile(file)) {
+            final MessageDigest digest = GwtArchiveMakerToolFingerprint.sha256();
+
+            final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (final String path : lines.subList(Math.min(1, lines.size()), lines.size())) {
+                final Path written = directory.resolve(path);
+                final String sizeAndLastModified = Files.isRegularFile(written) ?
+                        Files.size(written) + "@" + Files.getLastModifiedTime(written).toMillis() :
+                        "missing";
+
+                digest.update(
+                        (path + ' ' + sizeAndLastModified + '\n').getBytes(StandardCharsets.UTF_8)
+                );
+            }
+
+            fingerprint = GwtArchiveMakerToolFingerprint.hex(digest.digest());
+        }
+
+        return Optional.ofNullable(fingerprint);
+    }
+
+    /**
+     * Stop creation
+     */
+    private JarArchiveDirectoryIndex() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.text.CharSequences;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads the files below one or more directories, such as <code>target/classes</code> and the java sources, as
+ * uncompressed entries, avoiding packaging a temporary jar file only to read it again. Each directory is walked by a
+ * parallel stream, and entries are sorted by path so the order never depends on the file system.
+ */
+final class JarArchiveDirectoryReader implements JarArchiveSource {
+
+    static JarArchiveDirectoryReader open(final Path directory,
+                                          final List<Path> directories) throws IOException {
+        final List<Path> all = Lists.array();
+        all.add(directory);
+        all.addAll(directories);
+
+        // earlier directories win
+        final Map<String, Path> nameToFile = Maps.sorted();
+        final Map<String, JarArchiveReaderEntry> nameToEntry = Maps.sorted();
+
+        for (final Path root : all) {
+            if (false == Files.isDirectory(root)) {
+                throw new NoSuchFileException(root.toString(), null, "Directory not found");
+            }
+
+            final List<Map.Entry<Path, JarArchiveReaderEntry>> walked;
+            try (final Stream<Path> files = Files.walk(root)) {
+                walked = files.parallel()
+                        .map(f -> entry(root, f))
+                        .filter(e -> null != e)
+                        .collect(Collectors.toList());
+            } catch (final UncheckedIOException cause) {
+                throw cause.getCause();
+            }
+
+            for (final Map.Entry<Path, JarArchiveReaderEntry> fileAndEntry : walked) {
+                final JarArchiveReaderEntry entry = fileAndEntry.getValue();
+                final String name = entry.name();
+                if (false == nameToEntry.containsKey(name)) {
+                    nameToFile.put(name, fileAndEntry.getKey());
+                    nameToEntry.put(name, entry);
+                }
+            }
+        }
+
+        final List<JarArchiveReaderEntry> entries = Lists.array();
+        entries.addAll(nameToEntry.values());
+
+        return new JarArchiveDirectoryReader(
+                all,
+                nameToFile,
+                Lists.readOnly(entries)
+        );
+    }
+
+    /**
+     * Returns the entry for a regular file, or null for directories.
+     */
+    private static Map.Entry<Path, JarArchiveReaderEntry> entry(final Path root,
+                                                                final Path file) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+            return attributes.isRegularFile() ?
+                    Map.entry(
+                            file,
+                            JarArchiveReaderEntry.file(
+                                    name(root, file),
+                                    attributes.lastModifiedTime()
+                                            .toMillis(),
+                                    attributes.size()
+                            )
+                    ) :
+                    null;
+        } catch (final IOException cause) {
+            throw new UncheckedIOException(cause);
+        }
+    }
+
+    /**
+     * The path relative to the root directory always separated by '/'.
+     */
+    private static String name(final Path root,
+                               final Path file) {
+        final StringBuilder name = new StringBuilder();
+        for (final Path component : root.relativize(file)) {
+            if (name.length() > 0) {
+                name.append('/');
+            }
+            name.append(component);
+        }
+        return name.toString();
+    }
+
+    private JarArchiveDirectoryReader(final List<Path> directories,
+                                      final Map<String, Path> nameToFile,
+                                      final List<JarArchiveReaderEntry> entries) {
+        this.directories = directories;
+        this.nameToFile = nameToFile;
+        this.entries = entries;
+    }
+
+    /**
+     * All files sorted by path.
+     */
+    @Override
+    public List<JarArchiveReaderEntry> entries() {
+        return this.entries;
+    }
+
+    private final List<JarArchiveReaderEntry> entries;
+
+    /**
+     * Reads the file onto the heap. Files are mostly small sources and class files, which are read faster than they are
+     * mapped, and a mapping would keep the file locked on Windows until it is garbage collected.
+     */
+    @Override
+    public ByteBuffer rawContent(final JarArchiveReaderEntry entry) throws IOException {
+        final Path file = this.nameToFile.get(entry.name());
+        if (null == file) {
+            throw new NoSuchFileException(CharSequences.quoteAndEscape(entry.name()).toString());
+        }
+
+        final byte[] content = Files.readAllBytes(file);
+        if (content.length != entry.size()) {
+            throw new IOException("File " + file + " changed while reading, size " + content.length + " expected " + entry.size());
+        }
+        return ByteBuffer.wrap(content)
+                .asReadOnlyBuffer();
+    }
+
+    private final Map<String, Path> nameToFile;
+
+    @Override
+    public boolean isJarFile() {
+        return false;
+    }
+
+    private final List<Path> directories;
+
+    // Closeable........................................................................................................
+
+    /**
+     * There is nothing to close, each file is only open while it is read.
+     */
+    @Override
+    public void close() {
+        // nop
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.entries.size() + " files in " + this.directories;
+    }
+}
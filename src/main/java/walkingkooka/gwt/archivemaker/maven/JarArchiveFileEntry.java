@@ -19,28 +19,59 @@ package walkingkooka.gwt.archivemaker.maven;
 
 import walkingkooka.text.CharSequences;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 final class JarArchiveFileEntry {
 
+    /**
+     * Creates an entry whose content remains within the source jar file and is only read when it is written.
+     */
+    static JarArchiveFileEntry source(final JarArchiveReaderEntry source) {
+        return new JarArchiveFileEntry(
+                source.name(),
+                source.name(),
+                source.lastModified(),
+                null,
+                source
+        );
+    }
+
+    /**
+     * Creates an entry with the given content, which is shared as a read only view and never copied.
+     */
     static JarArchiveFileEntry with(final String path,
                                     final long lastModified,
-                                    final byte[] content) {
+                                    final ByteBuffer content) {
         return new JarArchiveFileEntry(
+                null,
                 path,
                 lastModified,
-                content.clone()
+                content.asReadOnlyBuffer(),
+                null
         );
     }
 
-    private JarArchiveFileEntry(final String path,
+    private JarArchiveFileEntry(final String sourcePath,
+                                final String path,
                                 final long lastModified,
-                                final byte[] content) {
+                                final ByteBuffer content,
+                                final JarArchiveReaderEntry source) {
+        this.sourcePath = sourcePath;
         this.path = path;
         this.lastModified = lastModified;
         this.content = content;
+        this.source = source;
     }
 
+    /**
+     * The path of this entry within the source jar file, which is null for created entries.
+     */
+    String sourcePath() {
+        return this.sourcePath;
+    }
+
+    private final String sourcePath;
+
     String path() {
         return this.path;
     }
@@ -71,19 +102,58 @@ final class JarArchiveFileEntry {
 
     private long lastModified;
 
-    byte[] content() {
-        final byte[] content = this.content;
-        return null != content ? content.clone() : null;
+    /**
+     * Returns a read only view of the content, which may be null if this entry is empty or its content remains in the
+     * source jar file.
+     */
+    ByteBuffer content() {
+        final ByteBuffer content = this.content;
+        return null != content ? content.duplicate() : null;
     }
 
-    void setContent(final byte[] content) {
-        if (false == Arrays.equals(this.content, content)) {
-            this.content = content;
-            this.lastModified = System.currentTimeMillis();
-        }
+    /**
+     * Replaces the content, the new content is always assumed to be different and is never copied.
+     */
+    void setContent(final ByteBuffer content) {
+        this.source = null;
+        this.content = null != content ?
+                content.asReadOnlyBuffer() :
+                null;
+        this.lastModified = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns true if this entry has no content and should not be written, eg shaded class files.
+     */
+    boolean isEmpty() {
+        return null == this.source && null == this.content;
+    }
+
+    /**
+     * The uncompressed size of the content, which is zero when empty.
+     */
+    long size() {
+        final JarArchiveReaderEntry source = this.source;
+        final ByteBuffer content = this.content;
+
+        return null != source ?
+                source.size() :
+                null != content ?
+                        content.remaining() :
+                        0;
+    }
+
+    private ByteBuffer content;
+
+    /**
+     * When not null the content has not been loaded and remains within the source jar file. Unmodified source entries
+     * are copied without inflating and deflating their content.
+     */
+    JarArchiveReaderEntry source() {
+        return this.source;
     }
 
-    private byte[] content;
+    private JarArchiveReaderEntry source;
 
     // Object...........................................................................................................
 
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.set.Sets;
+import walkingkooka.file.Files2;
+import walkingkooka.text.CaseSensitivity;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A compiled form of the glob patterns in an ignored or public files file. Lines without wildcards are tested with a
+ * single hash lookup, while each line with wildcards is only given to its {@link Files2#globPatterns(String, CaseSensitivity)}
+ * predicate when the path starts with its literal prefix, ends with its literal suffix and contains its longest literal.
+ * Comments and blank lines are skipped, as they never match a path.
+ */
+final class JarArchiveGlobPatterns implements Predicate<String> {
+
+    private final static String WILDCARDS = "*?[]{}\\";
+
+    static JarArchiveGlobPatterns parse(final String text) {
+        final Set<String> literals = Sets.hash();
+        final List<Wildcard> wildcards = Lists.array();
+
+        for (final String line : text.split("\\r\\n|\\r|\\n")) {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+
+            if (line.equals(trimmed) && false == hasWildcard(line)) {
+                literals.add(line);
+            } else {
+                wildcards.add(
+                        Wildcard.parse(line)
+                );
+            }
+        }
+
+        return new JarArchiveGlobPatterns(
+                literals,
+                wildcards.toArray(new Wildcard[0])
+        );
+    }
+
+    private static boolean hasWildcard(final String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (-1 != WILDCARDS.indexOf(line.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private JarArchiveGlobPatterns(final Set<String> literals,
+                                   final Wildcard[] wildcards) {
+        this.literals = literals;
+        this.wildcards = wildcards;
+    }
+
+    @Override
+    public boolean test(final String path) {
+        if (this.literals.contains(path)) {
+            return true;
+        }
+
+        for (final Wildcard wildcard : this.wildcards) {
+            if (wildcard.test(path)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private final Set<String> literals;
+
+    private final Wildcard[] wildcards;
+
+    /**
+     * A single line with wildcards and the literal text any matching path must contain.
+     */
+    private final static class Wildcard {
+
+        static Wildcard parse(final String line) {
+            final Predicate<String> predicate = Files2.globPatterns(
+                    line,
+                    CaseSensitivity.SENSITIVE
+            );
+
+            // leading or trailing whitespace may be trimmed by Files2, so only the predicate is trusted.
+            if (false == line.equals(line.trim())) {
+                return new Wildcard(
+                        "",
+                        "",
+                        "",
+                        predicate
+                );
+            }
+
+            final int first = firstWildcard(line);
+            final int last = lastWildcard(line);
+
+            // text within [...] and {a,b} groups or following an escape is not required, so only lines without them
+            // have a longest literal.
+            String longest = "";
+            if (false == hasGroupOrEscape(line)) {
+                int start = first + 1;
+                for (int i = start; i <= last; i++) {
+                    if (i == last || -1 != WILDCARDS.indexOf(line.charAt(i))) {
+                        if (i - start > longest.length()) {
+                            longest = line.substring(start, i);
+                        }
+                        start = i + 1;
+                    }
+                }
+            }
+
+            return new Wildcard(
+                    line.substring(0, first),
+                    line.substring(last + 1),
+                    longest,
+                    predicate
+            );
+        }
+
+        private static boolean hasGroupOrEscape(final String line) {
+            return -1 != line.indexOf('[') ||
+                    -1 != line.indexOf('{') ||
+                    -1 != line.indexOf('\\');
+        }
+
+        private static int firstWildcard(final String line) {
+            int i = 0;
+            while (-1 == WILDCARDS.indexOf(line.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        private static int lastWildcard(final String line) {
+            int i = line.length() - 1;
+            while (-1 == WILDCARDS.indexOf(line.charAt(i))) {
+                i--;
+            }
+            return i;
+        }
+
+        private Wildcard(final String prefix,
+                         final String suffix,
+                         final String longest,
+                         final Predicate<String> predicate) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.longest = longest;
+            this.minLength = prefix.length() + suffix.length();
+            this.predicate = predicate;
+        }
+
+        boolean test(final String path) {
+            return path.length() >= this.minLength &&
+                    path.startsWith(this.prefix) &&
+                    path.endsWith(this.suffix) &&
+                    (this.longest.isEmpty() || path.contains(this.longest)) &&
+                    this.predicate.test(path);
+        }
+
+        private final String prefix;
+        private final String suffix;
+        private final String longest;
+        private final int minLength;
+        private final Predicate<String> predicate;
+
+        @Override
+        public String toString() {
+            return this.predicate.toString();
+        }
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.literals.size() + " literals " + this.wildcards.length + " wildcards";
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.text.CharSequences;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The directories of a single GWT module read from its <code>*.gwt.xml</code> in a single streaming pass.
+ */
+final class JarArchiveGwtModule {
+
+    /**
+     * Reads the public and super source directories, which default to <code>public</code> and <code>super</code>
+     * relative to the directory holding the module.
+     */
+    static JarArchiveGwtModule parse(final String moduleGwtXmlPath,
+                                     final XMLStreamReader reader) throws XMLStreamException {
+        final int parentDirectoryEnd = moduleGwtXmlPath.lastIndexOf('/');
+        if (-1 == parentDirectoryEnd) {
+            throw new IllegalArgumentException("GWT Module may not be in the root of the jar file.");
+        }
+
+        final String directory = moduleGwtXmlPath.substring(0, parentDirectoryEnd);
+
+        String publicPath = null;
+        int publicCount = 0;
+        String superSourcePath = null;
+        int superSourceCount = 0;
+
+        try {
+            while (reader.hasNext()) {
+                if (XMLStreamConstants.START_ELEMENT == reader.next()) {
+                    switch (reader.getLocalName()) {
+                        case PUBLIC:
+                            publicPath = path(reader);
+                            publicCount++;
+                            break;
+                        case SUPER_SOURCE:
+                            superSourcePath = path(reader);
+                            superSourceCount++;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return new JarArchiveGwtModule(
+                directory,
+                directory + "/" + pathOrDefault(publicPath, publicCount, PUBLIC, "public"),
+                directory + "/" + pathOrDefault(superSourcePath, superSourceCount, SUPER_SOURCE, "super")
+        );
+    }
+
+    private final static String PUBLIC = "public";
+
+    private final static String SUPER_SOURCE = "super-source";
+
+    private static String path(final XMLStreamReader reader) {
+        final String path = reader.getAttributeValue(null, "path");
+        return null != path ?
+                path :
+                "";
+    }
+
+    private static String pathOrDefault(final String path,
+                                        final int count,
+                                        final String tagName,
+                                        final String defaultValue) {
+        final String result;
+        switch (count) {
+            case 0:
+                result = defaultValue;
+                break;
+            case 1:
+                result = path;
+                break;
+            default:
+                throw new IllegalArgumentException("Got " + count + " " + CharSequences.quoteAndEscape(tagName) + " expected only 0 or 1");
+        }
+        return result;
+    }
+
+    private JarArchiveGwtModule(final String directory,
+                                final String publicDirectory,
+                                final String superSourceDirectory) {
+        this.directory = directory;
+        this.publicDirectory = publicDirectory;
+        this.superSourceDirectory = superSourceDirectory;
+    }
+
+    /**
+     * The directory holding the <code>*.gwt.xml</code>, files below this directory belong to this module.
+     */
+    String directory() {
+        return this.directory;
+    }
+
+    private final String directory;
+
+    /**
+     * The directory public files are moved to.
+     */
+    String publicDirectory() {
+        return this.publicDirectory;
+    }
+
+    private final String publicDirectory;
+
+    /**
+     * The directory shaded java files are moved to.
+     */
+    String superSourceDirectory() {
+        return this.superSourceDirectory;
+    }
+
+    private final String superSourceDirectory;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.directory + " public=" + this.publicDirectory + " super=" + this.superSourceDirectory;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.map.Maps;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * All the GWT modules within a jar file, indexed by their directory, so each file uses the module whose directory is
+ * the longest prefix of its path. Files outside every module directory use the last module, matching the behaviour
+ * when only a single module was supported.
+ */
+final class JarArchiveGwtModules {
+
+    static JarArchiveGwtModules empty() {
+        return new JarArchiveGwtModules();
+    }
+
+    private JarArchiveGwtModules() {
+        super();
+    }
+
+    void add(final JarArchiveGwtModule module) {
+        final String directory = module.directory();
+        this.directoryToModule.put(
+                directory,
+                module
+        );
+
+        final int length = directory.length();
+        if (Arrays.binarySearch(this.lengths, length) < 0) {
+            final int[] lengths = Arrays.copyOf(this.lengths, this.lengths.length + 1);
+            lengths[lengths.length - 1] = length;
+            Arrays.sort(lengths);
+            this.lengths = lengths;
+        }
+
+        this.last = module;
+    }
+
+    boolean isEmpty() {
+        return null == this.last;
+    }
+
+    /**
+     * Returns the module owning the given path.
+     */
+    JarArchiveGwtModule module(final String path) {
+        final int[] lengths = this.lengths;
+
+        // try the longest directories first
+        for (int i = lengths.length - 1; i >= 0; i--) {
+            final int length = lengths[i];
+            if (length < path.length() && '/' == path.charAt(length)) {
+                final JarArchiveGwtModule module = this.directoryToModule.get(
+                        path.substring(0, length)
+                );
+                if (null != module) {
+                    return module;
+                }
+            }
+        }
+
+        return this.last;
+    }
+
+    private final Map<String, JarArchiveGwtModule> directoryToModule = Maps.sorted();
+
+    /**
+     * The distinct lengths of all module directories in ascending order.
+     */
+    private int[] lengths = new int[0];
+
+    private JarArchiveGwtModule last;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.directoryToModule.values().toString();
+    }
+}
@@ -0,0 +1,430 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.reflect.PackageName;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A shader that rewrites package prefixes of qualified names within the UTF-8 bytes of a java source, skipping comments,
+ * string, character and text block literals, without decoding the source into a String. Only the common case is
+ * handled, and {@link #shade(byte[])} returns null for anything else so the caller falls back to
+ * {@link walkingkooka.javashader.JavaShaders}, including sources with non ASCII identifiers or unicode escapes,
+ * qualified names broken by whitespace and shade files whose mappings overlap.
+ */
+final class JarArchiveJavaShader {
+
+    /**
+     * Returns a shader for the given mappings and the charset of the sources, or null if either is not supported.
+     */
+    static JarArchiveJavaShader with(final Map<PackageName, PackageName> shadings,
+                                     final Charset charset) {
+        JarArchiveJavaShader shader = null;
+
+        if (isSupported(charset)) {
+            final int count = shadings.size();
+            final byte[][] from = new byte[count][];
+            final byte[][] to = new byte[count][];
+
+            int i = 0;
+            for (final Map.Entry<PackageName, PackageName> shading : shadings.entrySet()) {
+                from[i] = ascii(shading.getKey().value());
+                to[i] = ascii(shading.getValue().value());
+                i++;
+            }
+
+            shader = isSupported(from, to) ?
+                    new JarArchiveJavaShader(from, to) :
+                    null;
+        }
+
+        return shader;
+    }
+
+    /**
+     * Only UTF-8 sources are supported, where every ASCII byte is always a character.
+     */
+    static boolean isSupported(final Charset charset) {
+        return StandardCharsets.UTF_8.equals(charset);
+    }
+
+    private static byte[] ascii(final String packageName) {
+        final byte[] bytes = packageName.getBytes(StandardCharsets.UTF_8);
+        return bytes.length == packageName.length() ?
+                bytes :
+                null;
+    }
+
+    /**
+     * Mappings must be ASCII, and no from package may be a prefix of another from package or any to package, so the
+     * result never depends on the order mappings are applied. Identity mappings are never applied by {@link #shade(byte[])},
+     * so their to package is ignored.
+     */
+    private static boolean isSupported(final byte[][] from,
+                                       final byte[][] to) {
+        boolean supported = true;
+
+        for (int i = 0; supported && i < from.length; i++) {
+            supported = null != from[i] && null != to[i] && from[i].length > 0;
+
+            for (int j = 0; supported && j < from.length; j++) {
+                supported = (i == j || false == isPackagePrefix(from[i], from[j])) &&
+                        (null == to[j] || Arrays.equals(from[j], to[j]) || false == isPackagePrefix(from[i], to[j]));
+            }
+        }
+
+        return supported;
+    }
+
+    /**
+     * Tests if the package is equal to or a parent of the other package.
+     */
+    private static boolean isPackagePrefix(final byte[] packageName,
+                                           final byte[] other) {
+        return other.length >= packageName.length &&
+                Arrays.equals(packageName, 0, packageName.length, other, 0, packageName.length) &&
+                (other.length == packageName.length || '.' == other[packageName.length]);
+    }
+
+    private JarArchiveJavaShader(final byte[][] from,
+                                 final byte[][] to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Returns the shaded source, the same array if nothing was shaded, or null if the source must be shaded by
+     * {@link walkingkooka.javashader.JavaShaders}.
+     */
+    byte[] shade(final byte[] content) {
+        final int length = content.length;
+
+        byte[] output = null;
+        int outputLength = 0;
+        int copied = 0;
+
+        int i = 0;
+        while (i < length) {
+            final int b = content[i];
+
+            switch (b) {
+                case '/':
+                    if (i + 1 < length && '/' == content[i + 1]) {
+                        i = skipLineComment(content, i + 2);
+                        continue;
+                    }
+                    if (i + 1 < length && '*' == content[i + 1]) {
+                        i = skipBlockComment(content, i + 2);
+                        if (i < 0) {
+                            return null;
+                        }
+                        continue;
+                    }
+                    break;
+                case '"':
+                    i = i + 2 < length && '"' == content[i + 1] && '"' == content[i + 2] ?
+                            skipTextBlock(content, i + 3) :
+                            skipLiteral(content, i + 1, '"');
+                    if (i < 0) {
+                        return null;
+                    }
+                    continue;
+                case '\'':
+                    i = skipLiteral(content, i + 1, '\'');
+                    if (i < 0) {
+                        return null;
+                    }
+                    continue;
+                case '\\':
+                    // unicode escapes may hide anything
+                    return null;
+                default:
+                    if (b < 0) {
+                        // non ascii identifiers
+                        return null;
+                    }
+                    if (isIdentifierStart(b)) {
+                        final int end = qualifiedNameEnd(content, i);
+                        if (end < content.length && content[end] < 0) {
+                            return null;
+                        }
+
+                        final int mapping = this.mapping(content, i, end);
+                        if (mapping < 0 && isContinued(content, end) && this.isParentPackage(content, i, end)) {
+                            return null;
+                        }
+                        if (mapping >= 0) {
+                            if (isAfterDot(content, i)) {
+                                return null;
+                            }
+
+                            final byte[] to = this.to[mapping];
+                            final int fromLength = this.from[mapping].length;
+                            if (false == Arrays.equals(this.from[mapping], to)) {
+                                if (null == output) {
+                                    output = new byte[length + Math.max(64, length / 8)];
+                                }
+
+                                final int before = i - copied;
+                                output = ensure(output, outputLength + before + to.length);
+                                System.arraycopy(content, copied, output, outputLength, before);
+                                outputLength += before;
+                                System.arraycopy(to, 0, output, outputLength, to.length);
+                                outputLength += to.length;
+                                copied = i + fromLength;
+                            }
+                        }
+
+                        i = end;
+                        continue;
+                    }
+                    if (isIdentifierPart(b)) {
+                        // digits etc within numbers
+                        i = identifierEnd(content, i);
+                        continue;
+                    }
+                    break;
+            }
+
+            i++;
+        }
+
+        if (null == output) {
+            return content;
+        }
+
+        final int remaining = length - copied;
+        output = ensure(output, outputLength + remaining);
+        System.arraycopy(content, copied, output, outputLength, remaining);
+        return Arrays.copyOf(output, outputLength + remaining);
+    }
+
+    /**
+     * Returns the index of the mapping whose from package is a prefix of the qualified name at segment boundaries, or
+     * -1 if none match.
+     */
+    private int mapping(final byte[] content,
+                        final int start,
+                        final int end) {
+        final byte[][] from = this.from;
+
+        for (int m = 0; m < from.length; m++) {
+            final byte[] packageName = from[m];
+            final int packageEnd = start + packageName.length;
+
+            if (packageEnd <= end &&
+                    Arrays.equals(packageName, 0, packageName.length, content, start, packageEnd) &&
+                    (packageEnd == end || '.' == content[packageEnd])) {
+                return m;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the end of identifiers separated by dots without any whitespace.
+     */
+    private static int qualifiedNameEnd(final byte[] content,
+                                        final int start) {
+        final int length = content.length;
+
+        int i = identifierEnd(content, start);
+        while (i + 1 < length && '.' == content[i] && isIdentifierStart(content[i + 1])) {
+            i = identifierEnd(content, i + 1);
+        }
+
+        return i;
+    }
+
+    /**
+     * True if the qualified name ending at the given index may continue after whitespace or a comment, eg
+     * <code>a . b</code> or <code>a./* comment *&#47;b</code>.
+     */
+    private static boolean isContinued(final byte[] content,
+                                       final int end) {
+        final int length = content.length;
+
+        int i = end;
+        final boolean dot = i < length && '.' == content[i];
+        if (dot) {
+            i++;
+        }
+
+        final int afterDot = i;
+        while (i < length && isWhitespace(content[i])) {
+            i++;
+        }
+
+        return i < length &&
+                (dot ?
+                        (i > afterDot && isIdentifierStart(content[i])) || isCommentStart(content, i) :
+                        '.' == content[i] || isCommentStart(content, i));
+    }
+
+    private static boolean isCommentStart(final byte[] content,
+                                          final int i) {
+        return i + 1 < content.length &&
+                '/' == content[i] &&
+                ('/' == content[i + 1] || '*' == content[i + 1]);
+    }
+
+    /**
+     * True if the qualified name is a parent package of any from package, eg <code>a</code> for <code>a.b</code>.
+     */
+    private boolean isParentPackage(final byte[] content,
+                                    final int start,
+                                    final int end) {
+        final int nameLength = end - start;
+
+        for (final byte[] packageName : this.from) {
+            if (packageName.length > nameLength &&
+                    '.' == packageName[nameLength] &&
+                    Arrays.equals(packageName, 0, nameLength, content, start, end)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * True if the name is preceded by a dot, possibly separated by whitespace, making it a member rather than a package.
+     */
+    private static boolean isAfterDot(final byte[] content,
+                                      final int start) {
+        int i = start - 1;
+        while (i >= 0 && isWhitespace(content[i])) {
+            i--;
+        }
+        return i >= 0 && '.' == content[i];
+    }
+
+    private static int identifierEnd(final byte[] content,
+                                     final int start) {
+        int i = start;
+        while (i < content.length && isIdentifierPart(content[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipLineComment(final byte[] content,
+                                       final int start) {
+        int i = start;
+        while (i < content.length && '\n' != content[i] && '\r' != content[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the index after the end of the comment, or -1 if it is unterminated.
+     */
+    private static int skipBlockComment(final byte[] content,
+                                        final int start) {
+        for (int i = start; i + 1 < content.length; i++) {
+            if ('*' == content[i] && '/' == content[i + 1]) {
+                return i + 2;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index after the closing quote of a string or character literal, or -1 if it is unterminated.
+     */
+    private static int skipLiteral(final byte[] content,
+                                   final int start,
+                                   final char quote) {
+        for (int i = start; i < content.length; i++) {
+            final byte b = content[i];
+            if ('\\' == b) {
+                i++;
+            } else if (quote == b) {
+                return i + 1;
+            } else if ('\n' == b || '\r' == b) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index after the closing triple quote of a text block, or -1 if it is unterminated.
+     */
+    private static int skipTextBlock(final byte[] content,
+                                     final int start) {
+        for (int i = start; i < content.length; i++) {
+            final byte b = content[i];
+            if ('\\' == b) {
+                i++;
+            } else if ('"' == b && i + 2 < content.length && '"' == content[i + 1] && '"' == content[i + 2]) {
+                return i + 3;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isIdentifierStart(final int b) {
+        return (b >= 'a' && b <= 'z') ||
+                (b >= 'A' && b <= 'Z') ||
+                '_' == b ||
+                '$' == b;
+    }
+
+    private static boolean isIdentifierPart(final int b) {
+        return isIdentifierStart(b) ||
+                (b >= '0' && b <= '9');
+    }
+
+    private static boolean isWhitespace(final int b) {
+        return ' ' == b || '\t' == b || '\n' == b || '\r' == b || '\f' == b;
+    }
+
+    private static byte[] ensure(final byte[] output,
+                                 final int capacity) {
+        return capacity <= output.length ?
+                output :
+                Arrays.copyOf(output, Math.max(capacity, output.length * 2));
+    }
+
+    private final byte[][] from;
+
+    private final byte[][] to;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < this.from.length; i++) {
+            if (i > 0) {
+                b.append(", ");
+            }
+            b.append(new String(this.from[i], StandardCharsets.US_ASCII))
+                    .append('=')
+                    .append(new String(this.to[i], StandardCharsets.US_ASCII));
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.map.Maps;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * A sidecar file written next to an output jar holding the path, key and CRC of every entry, where the key is a hash
+ * of everything that produced the entry, such as the source CRC and size, the action, compression level and shade file.
+ * When the next build produces an entry with the same path and key, its compressed bytes are copied from the previous
+ * output jar, skipping inflating, shading and deflating it again.
+ * <pre>
+ * # plugin-jar=... output-timestamp=... compression=DEFAULT ...
+ * 1a2b3c4d 9f86d081884c7d659a2feaa0c55ad015 walkingkooka/Example.java
+ * </pre>
+ */
+final class JarArchiveOutputIndex implements Closeable {
+
+    /**
+     * The suffix added to the output file name giving the index file.
+     */
+    final static String FILE_SUFFIX = ".entries";
+
+    static Path file(final Path output) {
+        return output.resolveSibling(output.getFileName() + FILE_SUFFIX);
+    }
+
+    /**
+     * Opens the previous output and its index, returning empty if either is missing or the index was written with a
+     * different header.
+     */
+    static Optional<JarArchiveOutputIndex> open(final Path output,
+                                                final String header) throws IOException {
+        Objects.requireNonNull(output, "output");
+        Objects.requireNonNull(header, "header");
+
+        final Path file = file(output);
+
+        JarArchiveOutputIndex index = null;
+        if (Files.isRegularFile(output) && Files.isRegularFile(file)) {
+            final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (false == lines.isEmpty() && lines.get(0).equals(HEADER_PREFIX + header)) {
+                final Map<String, String> pathToKey = Maps.hash();
+                final Map<String, Long> pathToCrc = Maps.hash();
+
+                for (final String line : lines.subList(1, lines.size())) {
+                    final String[] crcKeyPath = line.split(" ", 3);
+                    if (3 == crcKeyPath.length) {
+                        pathToCrc.put(crcKeyPath[2], Long.parseLong(crcKeyPath[0], 16));
+                        pathToKey.put(crcKeyPath[2], crcKeyPath[1]);
+                    }
+                }
+
+                // the previous output is replaced once the new output is written, so it must not be mapped
+                final JarArchiveReader previous;
+                try {
+                    previous = JarArchiveReader.openUnmapped(output);
+                } catch (final IOException invalid) {
+                    // a damaged previous output is simply rebuilt
+                    return Optional.empty();
+                }
+
+                final Map<String, JarArchiveReaderEntry> pathToEntry = Maps.hash();
+                for (final JarArchiveReaderEntry entry : previous.entries()) {
+                    final String path = entry.name();
+                    final Long crc = pathToCrc.get(path);
+                    if (null != crc && crc == entry.crc()) {
+                        pathToEntry.put(path, entry);
+                    }
+                }
+
+                index = new JarArchiveOutputIndex(
+                        previous,
+                        pathToKey,
+                        pathToEntry
+                );
+            }
+        }
+
+        return Optional.ofNullable(index);
+    }
+
+    private final static String HEADER_PREFIX = "# ";
+
+    /**
+     * Writes the index for a freshly written output, each entry holding its path, key and CRC.
+     */
+    static void write(final Path output,
+                      final String header,
+                      final Map<String, String> pathToKey,
+                      final Map<String, Long> pathToCrc) throws IOException {
+        final StringBuilder text = new StringBuilder();
+        text.append(HEADER_PREFIX)
+                .append(header)
+                .append('\n');
+
+        for (final Map.Entry<String, String> pathAndKey : new TreeMap<>(pathToKey).entrySet()) {
+            final String path = pathAndKey.getKey();
+            final Long crc = pathToCrc.get(path);
+            if (null != crc) {
+                text.append(Long.toHexString(crc))
+                        .append(' ')
+                        .append(pathAndKey.getValue())
+                        .append(' ')
+                        .append(path)
+                        .append('\n');
+            }
+        }
+
+        Files.writeString(
+                file(output),
+                text,
+                StandardCharsets.UTF_8
+        );
+    }
+
+    /**
+     * Removes any previous index, used when the output is written without one.
+     */
+    static void delete(final Path output) throws IOException {
+        Files.deleteIfExists(file(output));
+    }
+
+    private JarArchiveOutputIndex(final JarArchiveReader previous,
+                                  final Map<String, String> pathToKey,
+                                  final Map<String, JarArchiveReaderEntry> pathToEntry) {
+        this.previous = previous;
+        this.pathToKey = pathToKey;
+        this.pathToEntry = pathToEntry;
+    }
+
+    /**
+     * Returns the entry from the previous output with the same path and key, or null if it must be prepared again.
+     */
+    JarArchiveReaderEntry reusable(final String path,
+                                   final String key) {
+        return key.equals(this.pathToKey.get(path)) ?
+                this.pathToEntry.get(path) :
+                null;
+    }
+
+    /**
+     * Reads the compressed bytes of an entry returned by {@link #reusable(String, String)}.
+     */
+    ByteBuffer rawContent(final JarArchiveReaderEntry entry) throws IOException {
+        return this.previous.rawContent(entry);
+    }
+
+    private final JarArchiveReader previous;
+
+    private final Map<String, String> pathToKey;
+
+    private final Map<String, JarArchiveReaderEntry> pathToEntry;
+
+    // Closeable........................................................................................................
+
+    @Override
+    public void close() throws IOException {
+        this.previous.close();
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.previous.toString();
+    }
+}
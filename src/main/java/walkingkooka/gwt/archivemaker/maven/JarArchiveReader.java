@@ -0,0 +1,417 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.text.CharSequences;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Reads a jar file using its central directory, giving access to the raw compressed bytes of each entry, so entries
+ * that are not modified may be copied to another jar without being inflated and deflated again. The jar file is memory
+ * mapped, and the raw bytes of each entry are a slice of the mapping, which is only inflated when its content is
+ * required. Jar files too large for a single mapping are read with positional reads.
+ */
+final class JarArchiveReader implements JarArchiveSource {
+
+    private final static int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private final static int LOCAL_HEADER_LENGTH = 30;
+
+    private final static int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private final static int CENTRAL_HEADER_LENGTH = 46;
+
+    private final static int END_SIGNATURE = 0x06054b50;
+    private final static int END_LENGTH = 22;
+
+    private final static int ZIP64_END_SIGNATURE = 0x06064b50;
+    private final static int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private final static int ZIP64_LOCATOR_LENGTH = 20;
+
+    private final static int ZIP64_EXTRA = 0x0001;
+    private final static int EXTENDED_TIMESTAMP_EXTRA = 0x5455;
+
+    private final static int ENCRYPTED_FLAG = 1;
+
+    private final static long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private final static int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+    static JarArchiveReader open(final Path path) throws IOException {
+        return open(
+                path,
+                true
+        );
+    }
+
+    /**
+     * Opens the jar file without mapping it, for files that will be replaced or deleted while the JVM is running. A
+     * mapping is only released when it is garbage collected, and until then Windows refuses to replace the file.
+     */
+    static JarArchiveReader openUnmapped(final Path path) throws IOException {
+        return open(
+                path,
+                false
+        );
+    }
+
+    private static JarArchiveReader open(final Path path,
+                                         final boolean map) throws IOException {
+        final FileChannel channel = FileChannel.open(
+                path,
+                StandardOpenOption.READ
+        );
+        try {
+            final long size = channel.size();
+            final ByteBuffer mapping = map && size <= Integer.MAX_VALUE ?
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+                            .order(ByteOrder.LITTLE_ENDIAN) :
+                    null;
+
+            final JarArchiveReader reader = new JarArchiveReader(
+                    channel,
+                    mapping
+            );
+            reader.entries = reader.readCentralDirectory();
+            return reader;
+        } catch (final IOException | RuntimeException cause) {
+            channel.close();
+            throw cause;
+        }
+    }
+
+    private JarArchiveReader(final FileChannel channel,
+                             final ByteBuffer mapping) {
+        this.channel = channel;
+        this.mapping = mapping;
+    }
+
+    /**
+     * All entries in central directory order.
+     */
+    @Override
+    public List<JarArchiveReaderEntry> entries() {
+        return this.entries;
+    }
+
+    private List<JarArchiveReaderEntry> entries;
+
+    /**
+     * Reads the raw, possibly compressed bytes of the given entry, returning a read only buffer that may be shared.
+     */
+    @Override
+    public ByteBuffer rawContent(final JarArchiveReaderEntry entry) throws IOException {
+        final ByteBuffer header = this.read(
+                entry.localHeaderOffset(),
+                LOCAL_HEADER_LENGTH
+        );
+        if (LOCAL_HEADER_SIGNATURE != header.getInt(0)) {
+            throw new ZipException("Invalid local header for " + CharSequences.quoteAndEscape(entry.name()));
+        }
+
+        final long dataOffset = entry.localHeaderOffset() +
+                LOCAL_HEADER_LENGTH +
+                unsignedShort(header, 26) +
+                unsignedShort(header, 28);
+
+        return this.read(
+                dataOffset,
+                toInt(entry.compressedSize(), entry)
+        ).asReadOnlyBuffer();
+    }
+
+    @Override
+    public boolean isJarFile() {
+        return true;
+    }
+
+    /**
+     * Inflates the raw bytes previously read by {@link #rawContent(JarArchiveReaderEntry)}, verifying the CRC when it
+     * is known.
+     */
+    static byte[] content(final JarArchiveReaderEntry entry,
+                          final ByteBuffer raw) throws IOException {
+        final byte[] content = new byte[toInt(entry.size(), entry)];
+
+        switch (entry.method()) {
+            case ZipEntry.STORED:
+                if (raw.remaining() != content.length) {
+                    throw new ZipException("Stored size mismatch for " + CharSequences.quoteAndEscape(entry.name()));
+                }
+                raw.duplicate()
+                        .get(content);
+                break;
+            case ZipEntry.DEFLATED:
+                final Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(raw.duplicate());
+
+                    int offset = 0;
+                    while (offset < content.length) {
+                        final int inflated = inflater.inflate(content, offset, content.length - offset);
+                        if (0 == inflated && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new EOFException("Unexpected end of compressed data for " + CharSequences.quoteAndEscape(entry.name()));
+                        }
+                        offset += inflated;
+                    }
+                } catch (final DataFormatException cause) {
+                    throw new ZipException("Invalid compressed data for " + CharSequences.quoteAndEscape(entry.name()) + ": " + cause.getMessage());
+                } finally {
+                    inflater.end();
+                }
+                break;
+            default:
+                throw new ZipException("Unsupported compression method " + entry.method() + " for " + CharSequences.quoteAndEscape(entry.name()));
+        }
+
+        if (entry.isCrcKnown()) {
+            final CRC32 crc = new CRC32();
+            crc.update(content);
+            if (crc.getValue() != entry.crc()) {
+                throw new ZipException("CRC mismatch for " + CharSequences.quoteAndEscape(entry.name()));
+            }
+        }
+
+        return content;
+    }
+
+    /**
+     * Returns a little endian buffer holding the requested bytes starting at position 0, which is a slice of the
+     * mapping when the jar file is mapped.
+     */
+    private ByteBuffer read(final long offset,
+                            final int length) throws IOException {
+        final ByteBuffer mapping = this.mapping;
+        return null != mapping ?
+                slice(mapping, offset, length) :
+                read(this.channel, offset, length);
+    }
+
+    private static ByteBuffer slice(final ByteBuffer mapping,
+                                    final long offset,
+                                    final int length) throws EOFException {
+        if (offset < 0 || offset + length > mapping.capacity()) {
+            throw new EOFException("Unexpected end of jar file reading " + length + " bytes at " + offset);
+        }
+
+        return mapping.duplicate()
+                .position((int) offset)
+                .limit((int) offset + length)
+                .slice()
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private final FileChannel channel;
+
+    /**
+     * The entire jar file mapped into memory, or null if it is too large to be mapped or was opened unmapped.
+     */
+    private final ByteBuffer mapping;
+
+    // central directory................................................................................................
+
+    private List<JarArchiveReaderEntry> readCentralDirectory() throws IOException {
+        final long fileSize = this.channel.size();
+
+        // the end record is followed by a comment of at most 64k
+        final int tailLength = (int) Math.min(fileSize, END_LENGTH + 0xFFFF);
+        final long tailOffset = fileSize - tailLength;
+        final ByteBuffer tail = this.read(tailOffset, tailLength);
+
+        int end = tailLength - END_LENGTH;
+        while (end >= 0 && END_SIGNATURE != tail.getInt(end)) {
+            end--;
+        }
+        if (end < 0) {
+            throw new ZipException("Missing end of central directory, not a jar file");
+        }
+
+        long count = unsignedShort(tail, end + 10);
+        long directorySize = unsignedInt(tail, end + 12);
+        long directoryOffset = unsignedInt(tail, end + 16);
+
+        if (ZIP64_MAGIC_COUNT == count || ZIP64_MAGIC == directorySize || ZIP64_MAGIC == directoryOffset) {
+            final long locatorOffset = tailOffset + end - ZIP64_LOCATOR_LENGTH;
+            if (locatorOffset >= 0) {
+                final ByteBuffer locator = this.read(locatorOffset, ZIP64_LOCATOR_LENGTH);
+                if (ZIP64_LOCATOR_SIGNATURE == locator.getInt(0)) {
+                    final ByteBuffer zip64End = this.read(locator.getLong(8), 56);
+                    if (ZIP64_END_SIGNATURE != zip64End.getInt(0)) {
+                        throw new ZipException("Invalid zip64 end of central directory");
+                    }
+                    count = zip64End.getLong(32);
+                    directorySize = zip64End.getLong(40);
+                    directoryOffset = zip64End.getLong(48);
+                }
+            }
+        }
+
+        if (directorySize > Integer.MAX_VALUE) {
+            throw new ZipException("Central directory too large: " + directorySize);
+        }
+
+        final ByteBuffer directory = this.read(directoryOffset, (int) directorySize);
+        final List<JarArchiveReaderEntry> entries = Lists.array();
+
+        int offset = 0;
+        for (long i = 0; i < count; i++) {
+            if (CENTRAL_HEADER_SIGNATURE != directory.getInt(offset)) {
+                throw new ZipException("Invalid central directory header at " + (directoryOffset + offset));
+            }
+
+            final int flags = unsignedShort(directory, offset + 8);
+            final int method = unsignedShort(directory, offset + 10);
+            final long dosTime = unsignedInt(directory, offset + 12);
+            final long crc = unsignedInt(directory, offset + 16);
+            long compressedSize = unsignedInt(directory, offset + 20);
+            long size = unsignedInt(directory, offset + 24);
+            final int nameLength = unsignedShort(directory, offset + 28);
+            final int extraLength = unsignedShort(directory, offset + 30);
+            final int commentLength = unsignedShort(directory, offset + 32);
+            long localHeaderOffset = unsignedInt(directory, offset + 42);
+
+            final String name = StandardCharsets.UTF_8.decode(
+                    directory.duplicate()
+                            .position(offset + CENTRAL_HEADER_LENGTH)
+                            .limit(offset + CENTRAL_HEADER_LENGTH + nameLength)
+            ).toString();
+            if (ENCRYPTED_FLAG == (flags & ENCRYPTED_FLAG)) {
+                throw new ZipException("Encrypted entries are not supported " + CharSequences.quoteAndEscape(name));
+            }
+
+            long lastModified = JarArchiveReaderEntry.dosToJavaTime(dosTime);
+
+            // walk the extra fields looking for zip64 sizes and offset and the extended timestamp.
+            int extra = offset + CENTRAL_HEADER_LENGTH + nameLength;
+            final int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                final int tag = unsignedShort(directory, extra);
+                final int length = unsignedShort(directory, extra + 2);
+                int data = extra + 4;
+
+                switch (tag) {
+                    case ZIP64_EXTRA:
+                        if (ZIP64_MAGIC == size) {
+                            size = directory.getLong(data);
+                            data += 8;
+                        }
+                        if (ZIP64_MAGIC == compressedSize) {
+                            compressedSize = directory.getLong(data);
+                            data += 8;
+                        }
+                        if (ZIP64_MAGIC == localHeaderOffset) {
+                            localHeaderOffset = directory.getLong(data);
+                        }
+                        break;
+                    case EXTENDED_TIMESTAMP_EXTRA:
+                        // flags followed by the optional modification time in seconds
+                        if (length >= 5 && 1 == (directory.get(data) & 1)) {
+                            lastModified = unsignedInt(directory, data + 1) * 1000;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+
+                extra += 4 + length;
+            }
+
+            entries.add(
+                    JarArchiveReaderEntry.with(
+                            name,
+                            method,
+                            dosTime,
+                            lastModified,
+                            crc,
+                            compressedSize,
+                            size,
+                            localHeaderOffset
+                    )
+            );
+
+            offset += CENTRAL_HEADER_LENGTH + nameLength + extraLength + commentLength;
+        }
+
+        return Lists.readOnly(entries);
+    }
+
+    private static ByteBuffer read(final FileChannel channel,
+                                   final long offset,
+                                   final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (-1 == read) {
+                throw new EOFException("Unexpected end of jar file reading " + length + " bytes at " + offset);
+            }
+            position += read;
+        }
+
+        return buffer.flip();
+    }
+
+    private static int unsignedShort(final ByteBuffer buffer,
+                                     final int offset) {
+        return buffer.getShort(offset) & 0xFFFF;
+    }
+
+    private static long unsignedInt(final ByteBuffer buffer,
+                                    final int offset) {
+        return buffer.getInt(offset) & 0xFFFFFFFFL;
+    }
+
+    private static int toInt(final long size,
+                             final JarArchiveReaderEntry entry) throws ZipException {
+        if (size > Integer.MAX_VALUE) {
+            throw new ZipException("Entry too large " + CharSequences.quoteAndEscape(entry.name()) + " " + size);
+        }
+        return (int) size;
+    }
+
+    // Closeable........................................................................................................
+
+    /**
+     * Closes the channel, the mapping is released once it and any slices are no longer referenced.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.entries.size() + " entries";
+    }
+}
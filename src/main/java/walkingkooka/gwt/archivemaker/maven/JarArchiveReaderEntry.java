@@ -0,0 +1,224 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.text.CharSequences;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.zip.ZipEntry;
+
+/**
+ * A single file entry read from the central directory of a jar file. Only the metadata is held, the content remains
+ * within the jar file until it is read by {@link JarArchiveReader}.
+ */
+final class JarArchiveReaderEntry {
+
+    static JarArchiveReaderEntry with(final String name,
+                                      final int method,
+                                      final long dosTime,
+                                      final long lastModified,
+                                      final long crc,
+                                      final long compressedSize,
+                                      final long size,
+                                      final long localHeaderOffset) {
+        CharSequences.failIfNullOrEmpty(name, "name");
+
+        switch (method) {
+            case ZipEntry.STORED:
+            case ZipEntry.DEFLATED:
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported compression method " + method + " for " + CharSequences.quoteAndEscape(name));
+        }
+
+        return new JarArchiveReaderEntry(
+                name,
+                method,
+                dosTime,
+                lastModified,
+                crc,
+                compressedSize,
+                size,
+                localHeaderOffset
+        );
+    }
+
+    /**
+     * The CRC of files read from a directory, which is only calculated when their content is compressed.
+     */
+    final static long UNKNOWN_CRC = -1;
+
+    /**
+     * An uncompressed file read from a directory, which has no CRC or local header.
+     */
+    static JarArchiveReaderEntry file(final String name,
+                                      final long lastModified,
+                                      final long size) {
+        return with(
+                name,
+                ZipEntry.STORED,
+                javaToDosTime(lastModified, ZoneId.systemDefault()),
+                lastModified,
+                UNKNOWN_CRC,
+                size,
+                size,
+                -1
+        );
+    }
+
+    private JarArchiveReaderEntry(final String name,
+                                  final int method,
+                                  final long dosTime,
+                                  final long lastModified,
+                                  final long crc,
+                                  final long compressedSize,
+                                  final long size,
+                                  final long localHeaderOffset) {
+        this.name = name;
+        this.method = method;
+        this.dosTime = dosTime;
+        this.lastModified = lastModified;
+        this.crc = crc;
+        this.compressedSize = compressedSize;
+        this.size = size;
+        this.localHeaderOffset = localHeaderOffset;
+    }
+
+    String name() {
+        return this.name;
+    }
+
+    private final String name;
+
+    boolean isDirectory() {
+        return this.name.endsWith("/");
+    }
+
+    /**
+     * Either {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}.
+     */
+    int method() {
+        return this.method;
+    }
+
+    private final int method;
+
+    /**
+     * The time and date in MSDOS format as it appears in the central directory.
+     */
+    long dosTime() {
+        return this.dosTime;
+    }
+
+    private final long dosTime;
+
+    /**
+     * The last modified time in milliseconds, taken from the extended timestamp if present otherwise the {@link #dosTime}.
+     */
+    long lastModified() {
+        return this.lastModified;
+    }
+
+    private final long lastModified;
+
+    long crc() {
+        return this.crc;
+    }
+
+    private final long crc;
+
+    /**
+     * Entries read from a directory have no CRC, and must always be compressed before they are written.
+     */
+    boolean isCrcKnown() {
+        return UNKNOWN_CRC != this.crc;
+    }
+
+    long compressedSize() {
+        return this.compressedSize;
+    }
+
+    private final long compressedSize;
+
+    long size() {
+        return this.size;
+    }
+
+    private final long size;
+
+    long localHeaderOffset() {
+        return this.localHeaderOffset;
+    }
+
+    private final long localHeaderOffset;
+
+    // dos time.........................................................................................................
+
+    /**
+     * Converts a MSDOS date and time into milliseconds in the default time zone, matching {@link ZipEntry#getTime()}.
+     */
+    static long dosToJavaTime(final long dosTime) {
+        LocalDateTime dateTime;
+        try {
+            dateTime = LocalDateTime.of(
+                    (int) (((dosTime >> 25) & 0x7f) + 1980),
+                    (int) ((dosTime >> 21) & 0x0f),
+                    (int) ((dosTime >> 16) & 0x1f),
+                    (int) ((dosTime >> 11) & 0x1f),
+                    (int) ((dosTime >> 5) & 0x3f),
+                    (int) ((dosTime << 1) & 0x3e)
+            );
+        } catch (final DateTimeException invalid) {
+            dateTime = LocalDateTime.of(1980, 1, 1, 0, 0);
+        }
+        return dateTime.atZone(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+    }
+
+    /**
+     * Converts milliseconds into a MSDOS date and time in the given time zone, which matches {@link ZipEntry#setTime(long)}
+     * for the default time zone. Times before 1980 are clamped to 1980-01-01.
+     */
+    static long javaToDosTime(final long time,
+                              final ZoneId zone) {
+        final LocalDateTime dateTime = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(time),
+                zone
+        );
+        final int year = dateTime.getYear();
+        return year < 1980 ?
+                (1 << 21) | (1 << 16) :
+                ((long) Math.min(year - 1980, 0x7f) << 25) |
+                        (dateTime.getMonthValue() << 21) |
+                        (dateTime.getDayOfMonth() << 16) |
+                        (dateTime.getHour() << 11) |
+                        (dateTime.getMinute() << 5) |
+                        (dateTime.getSecond() >> 1);
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
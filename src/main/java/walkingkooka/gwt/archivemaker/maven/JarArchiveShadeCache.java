@@ -0,0 +1,302 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.javashader.JavaShaders;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An on disk cache of shaded java sources, keyed by a hash of the source bytes within a directory for each shade file.
+ * An empty cache file records a source the shader leaves unchanged. The last modified time of each file records when
+ * it was last used, and the least recently used files are removed when the cache grows beyond its maximum size.
+ * Files are written to a temporary file and then moved, so several builds may safely share a cache.
+ */
+final class JarArchiveShadeCache {
+
+    /**
+     * When the maximum size is exceeded files are removed until the cache is this fraction of the maximum.
+     */
+    private final static double EVICT_TO = 0.9;
+
+    static JarArchiveShadeCache with(final Path directory,
+                                     final long maxSize) throws IOException {
+        Objects.requireNonNull(directory, "directory");
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Invalid maxSize " + maxSize + " < 0");
+        }
+
+        Files.createDirectories(directory);
+
+        return new JarArchiveShadeCache(
+                directory,
+                maxSize,
+                // shaded sources depend on the shader implementation and the charset used to read sources.
+                GwtArchiveMakerToolFingerprint.codeSource(JavaShaders.class) + "-" + Charset.defaultCharset().name()
+        );
+    }
+
+    private JarArchiveShadeCache(final Path directory,
+                                 final long maxSize,
+                                 final String shader) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.shader = shader;
+    }
+
+    /**
+     * Returns the shaded source, using the cache if possible or calling the shader and saving the result. If the
+     * shader leaves the content unchanged the given content array is returned.
+     */
+    byte[] shade(final byte[] content,
+                 final JarArchiveShadeIndex index,
+                 final UnaryOperator<byte[]> shader) {
+        final Path file = this.file(content, index);
+
+        byte[] shaded = this.read(file);
+        if (null != shaded) {
+            if (0 == shaded.length) {
+                shaded = content;
+            }
+        } else {
+            shaded = shader.apply(content);
+            if (Arrays.equals(content, shaded)) {
+                shaded = content;
+            }
+            this.write(
+                    file,
+                    content == shaded ?
+                            EMPTY :
+                            shaded
+            );
+        }
+
+        return shaded;
+    }
+
+    private final static byte[] EMPTY = new byte[0];
+
+    private Path file(final byte[] content,
+                      final JarArchiveShadeIndex index) {
+        final String contentHash = GwtArchiveMakerToolFingerprint.hex(
+                GwtArchiveMakerToolFingerprint.sha256()
+                        .digest(content)
+        );
+
+        return this.directory.resolve(this.shadeDirectory(index))
+                .resolve(contentHash.substring(0, 2))
+                .resolve(contentHash);
+    }
+
+    /**
+     * Each shade file has its own directory, named after a hash of its mappings and the shader.
+     */
+    private String shadeDirectory(final JarArchiveShadeIndex index) {
+        return this.shadeDirectories.computeIfAbsent(
+                index.fingerprint(),
+                (f) -> GwtArchiveMakerToolFingerprint.hex(
+                        GwtArchiveMakerToolFingerprint.sha256()
+                                .digest((f + "-" + this.shader).getBytes(StandardCharsets.UTF_8))
+                ).substring(0, 32)
+        );
+    }
+
+    private final Map<String, String> shadeDirectories = new ConcurrentHashMap<>();
+
+    private final String shader;
+
+    /**
+     * Reads a cached file marking it as recently used, returning null if the file is absent or cannot be read.
+     */
+    private byte[] read(final Path file) {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+            Files.setLastModifiedTime(
+                    file,
+                    FileTime.fromMillis(System.currentTimeMillis())
+            );
+        } catch (final IOException missing) {
+            // a missing, damaged or concurrently removed file is a cache miss
+            content = null;
+        }
+        return content;
+    }
+
+    /**
+     * Saves the shaded content, failures are ignored as the cache is only an optimisation.
+     */
+    private void write(final Path file,
+                       final byte[] content) {
+        try {
+            final Path parent = file.getParent();
+            Files.createDirectories(parent);
+
+            // a file written concurrently by another build is replaced, and must not be counted twice
+            final long replaced = size(file);
+
+            final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, content);
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (final AtomicMoveNotSupportedException notAtomic) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            if (this.size().addAndGet(content.length - replaced) > this.maxSize) {
+                this.evict();
+            }
+        } catch (final IOException ignore) {
+            // the source will be shaded again next time
+        }
+    }
+
+    /**
+     * Returns the size of the file or zero if it does not exist.
+     */
+    private static long size(final Path file) throws IOException {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (final NoSuchFileException missing) {
+            size = 0;
+        }
+        return size;
+    }
+
+    /**
+     * The total size of the cache, computed when first required.
+     */
+    private AtomicLong size() throws IOException {
+        if (null == this.size) {
+            synchronized (this) {
+                if (null == this.size) {
+                    long total = 0;
+                    for (final CacheFile file : this.files()) {
+                        total += file.size;
+                    }
+                    this.size = new AtomicLong(total);
+                }
+            }
+        }
+        return this.size;
+    }
+
+    private volatile AtomicLong size;
+
+    /**
+     * Removes the least recently used files until the cache is below {@link #EVICT_TO} of its maximum size.
+     */
+    private synchronized void evict() throws IOException {
+        final AtomicLong size = this.size();
+        final long target = (long) (this.maxSize * EVICT_TO);
+
+        if (size.get() > this.maxSize) {
+            final List<CacheFile> files = this.files();
+            files.sort(Comparator.comparingLong(f -> f.lastModified));
+
+            long total = files.stream()
+                    .mapToLong(f -> f.size)
+                    .sum();
+
+            for (final CacheFile file : files) {
+                if (total <= target) {
+                    break;
+                }
+                if (Files.deleteIfExists(file.path)) {
+                    total -= file.size;
+                }
+            }
+
+            size.set(total);
+        }
+    }
+
+    private List<CacheFile> files() throws IOException {
+        try (final Stream<Path> paths = Files.walk(this.directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .map(CacheFile::with)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toCollection(Lists::array));
+        }
+    }
+
+    /**
+     * A file within the cache with its size and last used time.
+     */
+    private final static class CacheFile {
+
+        static CacheFile with(final Path path) {
+            try {
+                return new CacheFile(
+                        path,
+                        Files.size(path),
+                        Files.getLastModifiedTime(path).toMillis()
+                );
+            } catch (final IOException removed) {
+                return null;
+            }
+        }
+
+        private CacheFile(final Path path,
+                          final long size,
+                          final long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        final Path path;
+        final long size;
+        final long lastModified;
+    }
+
+    private final Path directory;
+
+    private final long maxSize;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.directory + " " + this.maxSize;
+    }
+}
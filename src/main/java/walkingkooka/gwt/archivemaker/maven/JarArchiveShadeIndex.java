@@ -0,0 +1,219 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.map.Maps;
+import walkingkooka.collect.set.Sets;
+import walkingkooka.reflect.PackageName;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * An index of the shade file mappings by directory prefix, which finds the first mapping in shade file order whose
+ * directory is a prefix of a path, by testing each distinct prefix length once rather than scanning every mapping.
+ */
+final class JarArchiveShadeIndex {
+
+    static JarArchiveShadeIndex with(final Map<PackageName, PackageName> shadings,
+                                     final Charset charset) {
+        final Map<String, Mapping> directoryToMapping = Maps.hash();
+        final SortedSet<Integer> lengths = Sets.sorted();
+
+        int order = 0;
+        for (final Map.Entry<PackageName, PackageName> shading : shadings.entrySet()) {
+            final Mapping mapping = new Mapping(
+                    shading.getKey(),
+                    shading.getValue(),
+                    order
+            );
+            order++;
+
+            // the first mapping for a directory wins
+            if (null == directoryToMapping.putIfAbsent(mapping.fromDirectory, mapping)) {
+                lengths.add(mapping.fromDirectory.length());
+            }
+        }
+
+        return new JarArchiveShadeIndex(
+                shadings,
+                directoryToMapping,
+                lengths.stream()
+                        .mapToInt(Integer::intValue)
+                        .toArray(),
+                JarArchiveJavaShader.with(shadings, charset),
+                JarArchiveShadeMatcher.with(shadings, charset)
+        );
+    }
+
+    private JarArchiveShadeIndex(final Map<PackageName, PackageName> shadings,
+                                 final Map<String, Mapping> directoryToMapping,
+                                 final int[] lengths,
+                                 final JarArchiveJavaShader javaShader,
+                                 final JarArchiveShadeMatcher matcher) {
+        this.shadings = shadings;
+        this.directoryToMapping = directoryToMapping;
+        this.lengths = lengths;
+        this.javaShader = javaShader;
+        this.matcher = matcher;
+    }
+
+    /**
+     * The shadings as read from the shade file.
+     */
+    Map<PackageName, PackageName> shadings() {
+        return this.shadings;
+    }
+
+    private final Map<PackageName, PackageName> shadings;
+
+    boolean isEmpty() {
+        return this.shadings.isEmpty();
+    }
+
+    /**
+     * The byte level shader for these shadings, or null if they can only be shaded by the java shader.
+     */
+    JarArchiveJavaShader javaShader() {
+        return this.javaShader;
+    }
+
+    private final JarArchiveJavaShader javaShader;
+
+    /**
+     * Matches java sources containing any shaded from package, or null if every source must be shaded.
+     */
+    JarArchiveShadeMatcher matcher() {
+        return this.matcher;
+    }
+
+    private final JarArchiveShadeMatcher matcher;
+
+    /**
+     * A SHA-256 of all mappings in order, which identifies the shade file regardless of its formatting or comments.
+     */
+    String fingerprint() {
+        if (null == this.fingerprint) {
+            final StringBuilder text = new StringBuilder();
+            for (final Map.Entry<PackageName, PackageName> shading : this.shadings.entrySet()) {
+                text.append(shading.getKey().value())
+                        .append('=')
+                        .append(shading.getValue().value())
+                        .append('\n');
+            }
+
+            this.fingerprint = GwtArchiveMakerToolFingerprint.hex(
+                    GwtArchiveMakerToolFingerprint.sha256()
+                            .digest(text.toString().getBytes(StandardCharsets.UTF_8))
+            );
+        }
+        return this.fingerprint;
+    }
+
+    private volatile String fingerprint;
+
+    /**
+     * Returns the first mapping in shade file order whose from directory is a prefix of the given path, or null if
+     * none match.
+     */
+    Mapping mapping(final String path) {
+        final Map<String, Mapping> directoryToMapping = this.directoryToMapping;
+        final int pathLength = path.length();
+
+        Mapping first = null;
+
+        for (final int length : this.lengths) {
+            if (length > pathLength) {
+                break;
+            }
+
+            final Mapping mapping = directoryToMapping.get(
+                    path.substring(0, length)
+            );
+            if (null != mapping && (null == first || mapping.order < first.order)) {
+                first = mapping;
+            }
+        }
+
+        return first;
+    }
+
+    private final Map<String, Mapping> directoryToMapping;
+
+    /**
+     * The distinct lengths of all from directories in ascending order.
+     */
+    private final int[] lengths;
+
+    /**
+     * A single shade file mapping with its package names converted to directories.
+     */
+    static final class Mapping {
+
+        Mapping(final PackageName from,
+                final PackageName to,
+                final int order) {
+            final String fromPackage = from.value();
+            final String toPackage = to.value();
+
+            this.fromDirectory = fromPackage.replace('.', '/');
+            this.toDirectory = toPackage.replace('.', '/');
+            this.shaded = false == fromPackage.equals(toPackage);
+            this.order = order;
+        }
+
+        /**
+         * Replaces the from directory prefix of the path with the to directory.
+         */
+        String toPath(final String path) {
+            return this.toDirectory + path.substring(this.fromDirectory.length());
+        }
+
+        /**
+         * True when the package is changed, false when the mapping leaves the package unchanged.
+         */
+        boolean isShaded() {
+            return this.shaded;
+        }
+
+        final String fromDirectory;
+
+        final String toDirectory;
+
+        private final boolean shaded;
+
+        /**
+         * The position of this mapping within the shade file, used to pick the first of several matching mappings.
+         */
+        final int order;
+
+        @Override
+        public String toString() {
+            return this.fromDirectory + "=" + this.toDirectory;
+        }
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.directoryToMapping.values().toString();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.reflect.PackageName;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An Aho-Corasick automaton over the UTF-8 bytes of every shaded from package, used to find java sources that contain
+ * none of them so they may be copied without shading. The automaton is compiled into a table with one row per state
+ * and one column per distinct byte of the patterns, so each byte of a source costs a single lookup.
+ */
+final class JarArchiveShadeMatcher {
+
+    /**
+     * Returns a matcher for the from packages that are actually shaded, or null if the mappings or the charset of the
+     * sources are not supported, in which case every source must be shaded.
+     */
+    static JarArchiveShadeMatcher with(final Map<PackageName, PackageName> shadings,
+                                       final Charset charset) {
+        JarArchiveShadeMatcher matcher = null;
+
+        if (JarArchiveJavaShader.isSupported(charset)) {
+            final List<byte[]> patterns = Lists.array();
+
+            for (final Map.Entry<PackageName, PackageName> shading : shadings.entrySet()) {
+                final String from = shading.getKey().value();
+                if (false == from.equals(shading.getValue().value())) {
+                    patterns.add(
+                            from.getBytes(StandardCharsets.UTF_8)
+                    );
+                }
+            }
+
+            matcher = build(patterns);
+        }
+
+        return matcher;
+    }
+
+    private static JarArchiveShadeMatcher build(final List<byte[]> patterns) {
+        // every distinct byte gets a column, column 0 is all other bytes
+        final int[] byteToColumn = new int[256];
+        int columns = 1;
+        int states = 1;
+
+        for (final byte[] pattern : patterns) {
+            if (0 == pattern.length) {
+                return null;
+            }
+            for (final byte b : pattern) {
+                final int unsigned = b & 0xff;
+                if (0 == byteToColumn[unsigned]) {
+                    byteToColumn[unsigned] = columns;
+                    columns++;
+                }
+            }
+            states += pattern.length;
+        }
+
+        // build the trie, -1 marks a missing transition
+        final int[] transitions = new int[states * columns];
+        Arrays.fill(transitions, -1);
+        final boolean[] matches = new boolean[states];
+
+        int next = 1;
+        for (final byte[] pattern : patterns) {
+            int state = 0;
+            for (final byte b : pattern) {
+                final int index = state * columns + byteToColumn[b & 0xff];
+                if (-1 == transitions[index]) {
+                    transitions[index] = next;
+                    next++;
+                }
+                state = transitions[index];
+            }
+            matches[state] = true;
+        }
+
+        // breadth first fill of missing transitions using failure links, which turns the trie into a DFA
+        final int[] failure = new int[next];
+        final int[] queue = new int[next];
+        int head = 0;
+        int tail = 0;
+
+        for (int column = 0; column < columns; column++) {
+            final int target = transitions[column];
+            if (-1 == target) {
+                transitions[column] = 0;
+            } else {
+                failure[target] = 0;
+                queue[tail++] = target;
+            }
+        }
+
+        while (head < tail) {
+            final int state = queue[head++];
+            matches[state] |= matches[failure[state]];
+
+            for (int column = 0; column < columns; column++) {
+                final int index = state * columns + column;
+                final int target = transitions[index];
+                final int fallback = transitions[failure[state] * columns + column];
+
+                if (-1 == target) {
+                    transitions[index] = fallback;
+                } else {
+                    failure[target] = fallback;
+                    queue[tail++] = target;
+                }
+            }
+        }
+
+        return new JarArchiveShadeMatcher(
+                byteToColumn,
+                columns,
+                Arrays.copyOf(transitions, next * columns),
+                Arrays.copyOf(matches, next)
+        );
+    }
+
+    private JarArchiveShadeMatcher(final int[] byteToColumn,
+                                   final int columns,
+                                   final int[] transitions,
+                                   final boolean[] matches) {
+        this.byteToColumn = byteToColumn;
+        this.columns = columns;
+        this.transitions = transitions;
+        this.matches = matches;
+    }
+
+    /**
+     * Returns true if the content contains any shaded from package anywhere, including comments and literals. A false
+     * positive only costs a pass through the shader, while false means the source is certainly unchanged by shading.
+     */
+    boolean test(final byte[] content) {
+        final int[] byteToColumn = this.byteToColumn;
+        final int columns = this.columns;
+        final int[] transitions = this.transitions;
+        final boolean[] matches = this.matches;
+
+        // with no patterns the only state never matches
+        boolean found = false;
+        if (matches.length > 1) {
+            int state = 0;
+            for (final byte b : content) {
+                state = transitions[state * columns + byteToColumn[b & 0xff]];
+                if (matches[state]) {
+                    found = true;
+                    break;
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Maps each unsigned byte to its column within {@link #transitions}.
+     */
+    private final int[] byteToColumn;
+
+    private final int columns;
+
+    /**
+     * The next state for every state and column.
+     */
+    private final int[] transitions;
+
+    /**
+     * True for states that end any pattern, including through their failure links.
+     */
+    private final boolean[] matches;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.matches.length + " states " + this.columns + " columns";
+    }
+}
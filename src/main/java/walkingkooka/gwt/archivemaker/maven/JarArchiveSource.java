@@ -0,0 +1,77 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The entries read by {@link GwtArchiveMakerTool}, either a jar file read by {@link JarArchiveReader} or one or more
+ * directories such as <code>target/classes</code> read by {@link JarArchiveDirectoryReader}.
+ */
+interface JarArchiveSource extends Closeable {
+
+    /**
+     * Opens the input which is either a jar file or a directory. Additional directories such as sources may only follow
+     * a directory input, entries in earlier directories win over entries with the same path in later directories.
+     */
+    static JarArchiveSource open(final Path input,
+                                 final List<Path> directories) throws IOException {
+        final JarArchiveSource source;
+
+        if (Files.isDirectory(input)) {
+            source = JarArchiveDirectoryReader.open(input, directories);
+        } else {
+            if (false == directories.isEmpty()) {
+                throw new IllegalArgumentException("Sources " + directories + " require a directory input but got " + input);
+            }
+            source = JarArchiveReader.open(input);
+        }
+
+        return source;
+    }
+
+    /**
+     * All entries in the order they should be written.
+     */
+    List<JarArchiveReaderEntry> entries();
+
+    /**
+     * Reads the raw, possibly compressed bytes of the given entry, returning a read only buffer that may be shared.
+     */
+    ByteBuffer rawContent(final JarArchiveReaderEntry entry) throws IOException;
+
+    /**
+     * Reads and inflates the content of the given entry.
+     */
+    default byte[] content(final JarArchiveReaderEntry entry) throws IOException {
+        return JarArchiveReader.content(
+                entry,
+                this.rawContent(entry)
+        );
+    }
+
+    /**
+     * True if this is a jar file, which must include a manifest. Directories receive a new manifest.
+     */
+    boolean isJarFile();
+}
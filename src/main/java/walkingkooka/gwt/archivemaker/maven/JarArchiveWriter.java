@@ -0,0 +1,430 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.set.Sets;
+import walkingkooka.text.CharSequences;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a jar file, supporting both deflating new content and copying already compressed bytes, either the raw bytes of
+ * an entry read by {@link JarArchiveReader} or content compressed by a {@link JarArchiveDeflater} on another thread.
+ * Sizes and CRC are always known before an entry is written, so local headers never require a data descriptor. Content
+ * is accepted as {@link ByteBuffer} which are never modified or copied other than to deflate them or fill the output
+ * buffer.
+ */
+final class JarArchiveWriter implements Closeable {
+
+    private final static int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private final static int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private final static int END_SIGNATURE = 0x06054b50;
+    private final static int ZIP64_END_SIGNATURE = 0x06064b50;
+    private final static int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private final static int ZIP64_EXTRA = 0x0001;
+
+    /**
+     * The extra field {@link java.util.jar.JarOutputStream} adds to the first entry, marking the file as a jar.
+     */
+    private final static byte[] JAR_MAGIC_EXTRA = new byte[]{(byte) 0xFE, (byte) 0xCA, 0, 0};
+
+    private final static int UTF8_FLAG = 0x800;
+
+    private final static int VERSION_STORED = 10;
+    private final static int VERSION_DEFLATED = 20;
+    private final static int VERSION_ZIP64 = 45;
+
+    private final static long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private final static int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+    /**
+     * Creates a writer, the zone is used to convert the last modified of each entry into a MSDOS date and time.
+     */
+    static JarArchiveWriter with(final WritableByteChannel output,
+                                 final ZoneId zone) {
+        return new JarArchiveWriter(
+                Objects.requireNonNull(output, "output"),
+                Objects.requireNonNull(zone, "zone")
+        );
+    }
+
+    private JarArchiveWriter(final WritableByteChannel output,
+                             final ZoneId zone) {
+        this.output = output;
+        this.zone = zone;
+    }
+
+    private final ZoneId zone;
+
+    /**
+     * Deflates and writes the given content with the default level.
+     */
+    void write(final String path,
+               final long lastModified,
+               final ByteBuffer content) throws IOException {
+        this.write(
+                path,
+                lastModified,
+                content,
+                Deflater.DEFAULT_COMPRESSION
+        );
+    }
+
+    /**
+     * Writes the given content, deflating with the given level, or storing without compression when the level is
+     * {@link Deflater#NO_COMPRESSION}.
+     */
+    void write(final String path,
+               final long lastModified,
+               final ByteBuffer content,
+               final int level) throws IOException {
+        this.deflater.deflate(
+                path,
+                lastModified,
+                content,
+                level
+        ).write(this);
+    }
+
+    private final JarArchiveDeflater deflater = JarArchiveDeflater.with();
+
+    /**
+     * Writes the already compressed bytes using the given method, CRC and uncompressed size.
+     */
+    void writeCompressed(final String path,
+                         final long lastModified,
+                         final int method,
+                         final long crc,
+                         final long size,
+                         final ByteBuffer compressed) throws IOException {
+        this.writeEntry(
+                path,
+                method,
+                JarArchiveReaderEntry.javaToDosTime(
+                        lastModified,
+                        this.zone
+                ),
+                crc,
+                compressed.remaining(),
+                size,
+                compressed
+        );
+    }
+
+    private void writeEntry(final String path,
+                            final int method,
+                            final long dosTime,
+                            final long crc,
+                            final long compressedSize,
+                            final long size,
+                            final ByteBuffer data) throws IOException {
+        CharSequences.failIfNullOrEmpty(path, "path");
+
+        if (false == this.paths.add(path)) {
+            throw new ZipException("duplicate entry: " + path);
+        }
+        if (compressedSize >= ZIP64_MAGIC || size >= ZIP64_MAGIC) {
+            throw new ZipException("Entry too large " + CharSequences.quoteAndEscape(path));
+        }
+
+        final byte[] name = path.getBytes(StandardCharsets.UTF_8);
+        final byte[] extra = this.records.isEmpty() ?
+                JAR_MAGIC_EXTRA :
+                EMPTY;
+        final long offset = this.written;
+        final int version = ZipEntry.STORED == method ?
+                VERSION_STORED :
+                VERSION_DEFLATED;
+
+        this.writeInt(LOCAL_HEADER_SIGNATURE);
+        this.writeShort(version);
+        this.writeShort(UTF8_FLAG);
+        this.writeShort(method);
+        this.writeInt(dosTime);
+        this.writeInt(crc);
+        this.writeInt(compressedSize);
+        this.writeInt(size);
+        this.writeShort(name.length);
+        this.writeShort(extra.length);
+        this.writeBytes(name);
+        this.writeBytes(extra);
+        this.writeBytes(data.duplicate());
+
+        this.records.add(
+                new CentralDirectoryRecord(
+                        name,
+                        extra,
+                        version,
+                        method,
+                        dosTime,
+                        crc,
+                        compressedSize,
+                        size,
+                        offset
+                )
+        );
+
+        this.compressedBytes += compressedSize;
+        this.uncompressedBytes += size;
+    }
+
+    /**
+     * The number of entries written so far.
+     */
+    int entries() {
+        return this.records.size();
+    }
+
+    /**
+     * The total compressed size of all entries written so far.
+     */
+    long compressedBytes() {
+        return this.compressedBytes;
+    }
+
+    private long compressedBytes;
+
+    /**
+     * The total uncompressed size of all entries written so far.
+     */
+    long uncompressedBytes() {
+        return this.uncompressedBytes;
+    }
+
+    private long uncompressedBytes;
+
+    private final static byte[] EMPTY = new byte[0];
+
+    private final Set<String> paths = Sets.hash();
+
+    private final List<CentralDirectoryRecord> records = Lists.array();
+
+    /**
+     * Captures everything required to write a central directory header after all entries have been written.
+     */
+    private final static class CentralDirectoryRecord {
+
+        CentralDirectoryRecord(final byte[] name,
+                               final byte[] extra,
+                               final int version,
+                               final int method,
+                               final long dosTime,
+                               final long crc,
+                               final long compressedSize,
+                               final long size,
+                               final long offset) {
+            this.name = name;
+            this.extra = extra;
+            this.version = version;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.offset = offset;
+        }
+
+        final byte[] name;
+        final byte[] extra;
+        final int version;
+        final int method;
+        final long dosTime;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long offset;
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        final long directoryOffset = this.written;
+
+        for (final CentralDirectoryRecord record : this.records) {
+            final boolean zip64 = record.offset >= ZIP64_MAGIC;
+            final int version = zip64 ?
+                    VERSION_ZIP64 :
+                    record.version;
+
+            this.writeInt(CENTRAL_HEADER_SIGNATURE);
+            this.writeShort(version); // made by
+            this.writeShort(version); // needed to extract
+            this.writeShort(UTF8_FLAG);
+            this.writeShort(record.method);
+            this.writeInt(record.dosTime);
+            this.writeInt(record.crc);
+            this.writeInt(record.compressedSize);
+            this.writeInt(record.size);
+            this.writeShort(record.name.length);
+            this.writeShort(record.extra.length + (zip64 ? 12 : 0));
+            this.writeShort(0); // comment
+            this.writeShort(0); // disk number
+            this.writeShort(0); // internal attributes
+            this.writeInt(0); // external attributes
+            this.writeInt(zip64 ? ZIP64_MAGIC : record.offset);
+            this.writeBytes(record.name);
+            this.writeBytes(record.extra);
+            if (zip64) {
+                this.writeShort(ZIP64_EXTRA);
+                this.writeShort(8);
+                this.writeLong(record.offset);
+            }
+        }
+
+        final long directorySize = this.written - directoryOffset;
+        final int count = this.records.size();
+
+        if (count >= ZIP64_MAGIC_COUNT || directoryOffset >= ZIP64_MAGIC || directorySize >= ZIP64_MAGIC) {
+            final long zip64EndOffset = this.written;
+
+            this.writeInt(ZIP64_END_SIGNATURE);
+            this.writeLong(44); // size of the remaining record
+            this.writeShort(VERSION_ZIP64);
+            this.writeShort(VERSION_ZIP64);
+            this.writeInt(0); // disk number
+            this.writeInt(0); // disk with central directory
+            this.writeLong(count);
+            this.writeLong(count);
+            this.writeLong(directorySize);
+            this.writeLong(directoryOffset);
+
+            this.writeInt(ZIP64_LOCATOR_SIGNATURE);
+            this.writeInt(0); // disk with zip64 end
+            this.writeLong(zip64EndOffset);
+            this.writeInt(1); // total disks
+        }
+
+        this.writeInt(END_SIGNATURE);
+        this.writeShort(0); // disk number
+        this.writeShort(0); // disk with central directory
+        this.writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+        this.writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+        this.writeInt(Math.min(directorySize, ZIP64_MAGIC));
+        this.writeInt(Math.min(directoryOffset, ZIP64_MAGIC));
+        this.writeShort(0); // comment
+    }
+
+    // little endian writes.............................................................................................
+
+    private void writeShort(final int value) throws IOException {
+        this.reserve(2).putShort((short) value);
+        this.written += 2;
+    }
+
+    private void writeInt(final long value) throws IOException {
+        this.reserve(4).putInt((int) value);
+        this.written += 4;
+    }
+
+    private void writeLong(final long value) throws IOException {
+        this.reserve(8).putLong(value);
+        this.written += 8;
+    }
+
+    private void writeBytes(final byte[] bytes) throws IOException {
+        this.writeBytes(
+                ByteBuffer.wrap(bytes)
+        );
+    }
+
+    /**
+     * Small content is copied into the buffer, larger content is written directly after flushing the buffer.
+     */
+    private void writeBytes(final ByteBuffer bytes) throws IOException {
+        final int length = bytes.remaining();
+        final ByteBuffer buffer = this.buffer;
+
+        if (length <= buffer.remaining()) {
+            buffer.put(bytes);
+        } else {
+            this.flush();
+            while (bytes.hasRemaining()) {
+                this.output.write(bytes);
+            }
+        }
+
+        this.written += length;
+    }
+
+    /**
+     * Returns the buffer after making sure it has room for the given number of bytes.
+     */
+    private ByteBuffer reserve(final int length) throws IOException {
+        final ByteBuffer buffer = this.buffer;
+        if (buffer.remaining() < length) {
+            this.flush();
+        }
+        return buffer;
+    }
+
+    private void flush() throws IOException {
+        final ByteBuffer buffer = this.buffer;
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            this.output.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024)
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+    private final WritableByteChannel output;
+
+    private long written;
+
+    // Closeable........................................................................................................
+
+    /**
+     * Writes the central directory and closes the wrapped {@link WritableByteChannel}.
+     */
+    @Override
+    public void close() throws IOException {
+        if (false == this.closed) {
+            this.closed = true;
+
+            try (final WritableByteChannel output = this.output) {
+                this.writeCentralDirectory();
+                this.flush();
+            } finally {
+                this.deflater.close();
+            }
+        }
+    }
+
+    private boolean closed;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.records.size() + " entries";
+    }
+}
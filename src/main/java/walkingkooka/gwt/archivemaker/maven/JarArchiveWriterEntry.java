@@ -0,0 +1,138 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import walkingkooka.text.CharSequences;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.ZipEntry;
+
+/**
+ * An entry that is ready to be written by {@link JarArchiveWriter}, holding its already compressed bytes and CRC, either
+ * the raw bytes copied from a source jar file or content compressed by a {@link JarArchiveDeflater}. Neither are copied.
+ */
+final class JarArchiveWriterEntry {
+
+    /**
+     * An entry whose raw compressed bytes will be copied unchanged.
+     */
+    static JarArchiveWriterEntry raw(final String path,
+                                     final long lastModified,
+                                     final JarArchiveReaderEntry source,
+                                     final ByteBuffer raw) {
+        if (raw.remaining() != source.compressedSize()) {
+            throw new IllegalArgumentException("Raw content length " + raw.remaining() + " different from compressed size " + source.compressedSize() + " for " + CharSequences.quoteAndEscape(source.name()));
+        }
+
+        return new JarArchiveWriterEntry(
+                CharSequences.failIfNullOrEmpty(path, "path"),
+                lastModified,
+                source.method(),
+                source.crc(),
+                source.size(),
+                raw
+        );
+    }
+
+    /**
+     * An entry whose content is stored without compression.
+     */
+    static JarArchiveWriterEntry stored(final String path,
+                                        final long lastModified,
+                                        final long crc,
+                                        final ByteBuffer content) {
+        return new JarArchiveWriterEntry(
+                CharSequences.failIfNullOrEmpty(path, "path"),
+                lastModified,
+                ZipEntry.STORED,
+                crc,
+                content.remaining(),
+                content
+        );
+    }
+
+    /**
+     * An entry with content that has already been deflated.
+     */
+    static JarArchiveWriterEntry deflated(final String path,
+                                          final long lastModified,
+                                          final long crc,
+                                          final long size,
+                                          final ByteBuffer compressed) {
+        return new JarArchiveWriterEntry(
+                CharSequences.failIfNullOrEmpty(path, "path"),
+                lastModified,
+                ZipEntry.DEFLATED,
+                crc,
+                size,
+                compressed
+        );
+    }
+
+    private JarArchiveWriterEntry(final String path,
+                                  final long lastModified,
+                                  final int method,
+                                  final long crc,
+                                  final long size,
+                                  final ByteBuffer compressed) {
+        this.path = path;
+        this.lastModified = lastModified;
+        this.method = method;
+        this.crc = crc;
+        this.size = size;
+        this.compressed = compressed;
+    }
+
+    void write(final JarArchiveWriter writer) throws IOException {
+        writer.writeCompressed(
+                this.path,
+                this.lastModified,
+                this.method,
+                this.crc,
+                this.size,
+                this.compressed
+        );
+    }
+
+    private final String path;
+
+    private final long lastModified;
+
+    private final int method;
+
+    long crc() {
+        return this.crc;
+    }
+
+    private final long crc;
+
+    /**
+     * The uncompressed size.
+     */
+    private final long size;
+
+    private final ByteBuffer compressed;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.path;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class GwtArchiveMakerToolCompressionRuleTest {
+
+    @Test
+    public void testWithInvalidLevelFails() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> GwtArchiveMakerToolCompressionRule.with("**/*.png", "fastest")
+        );
+    }
+
+    @Test
+    public void testLevel() {
+        assertEquals(GwtArchiveMakerToolCompressionRule.STORED, GwtArchiveMakerToolCompressionRule.with("*", "stored").level());
+        assertEquals(Deflater.BEST_SPEED, GwtArchiveMakerToolCompressionRule.with("*", "speed").level());
+        assertEquals(Deflater.DEFAULT_COMPRESSION, GwtArchiveMakerToolCompressionRule.with("*", "default").level());
+        assertEquals(Deflater.BEST_COMPRESSION, GwtArchiveMakerToolCompressionRule.with("*", "size").level());
+        assertEquals(7, GwtArchiveMakerToolCompressionRule.with("*", "7").level());
+    }
+
+    @Test
+    public void testTestBraceGroup() {
+        final GwtArchiveMakerToolCompressionRule rule = GwtArchiveMakerToolCompressionRule.with("**/*.{png,woff2}", "stored");
+
+        assertTrue(rule.test("walkingkooka/public/logo.png"));
+        assertTrue(rule.test("walkingkooka/public/font.woff2"));
+        assertFalse(rule.test("walkingkooka/Example.java"));
+    }
+
+    @Test
+    public void testFirstMatchingRuleSelectsLevel() {
+        final GwtArchiveMakerToolOptions options = GwtArchiveMakerToolOptions.DEFAULT.setCompression(
+                GwtArchiveMakerToolCompressionPreset.SPEED
+        ).setCompressionRules(
+                List.of(
+                        GwtArchiveMakerToolCompressionRule.with("**/*.{png,woff2}", "stored"),
+                        GwtArchiveMakerToolCompressionRule.with("walkingkooka/public/**", "size"),
+                        GwtArchiveMakerToolCompressionRule.with("**/*.java", "9")
+                )
+        );
+
+        assertEquals(GwtArchiveMakerToolCompressionRule.STORED, options.compressionLevel("walkingkooka/public/logo.png"));
+        assertEquals(Deflater.BEST_COMPRESSION, options.compressionLevel("walkingkooka/public/app.css"));
+        assertEquals(9, options.compressionLevel("walkingkooka/Example.java"));
+        assertEquals(GwtArchiveMakerToolCompressionPreset.SPEED.level, options.compressionLevel("walkingkooka/Example.gwt.xml"));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class GwtArchiveMakerToolMergeTest {
+
+    private final static String SHARED = "walkingkooka/shared/Shared.java";
+
+    @Test
+    public void testMergeIdenticalEntriesWrittenOnce() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolMergeTest.class.getSimpleName());
+        try {
+            final Path input = jar(directory, "a", "shared");
+            final Path b = jar(directory, "b", "shared");
+            final Path output = directory.resolve("output.jar");
+
+            this.make(directory, input, output, Lists.of(b), Optional.empty());
+
+            final List<String> paths = Lists.array();
+            try (final JarArchiveReader reader = JarArchiveReader.open(output)) {
+                for (final JarArchiveReaderEntry entry : reader.entries()) {
+                    paths.add(entry.name());
+                }
+            }
+
+            assertEquals(1, paths.stream().filter(SHARED::equals).count(), () -> "shared " + paths);
+            assertTrue(paths.contains("walkingkooka/a/A.java"), () -> "a " + paths);
+            assertTrue(paths.contains("walkingkooka/b/B.java"), () -> "b " + paths);
+            assertTrue(paths.contains("walkingkooka/a/A.gwt.xml"), () -> "a module " + paths);
+            assertTrue(paths.contains("walkingkooka/b/B.gwt.xml"), () -> "b module " + paths);
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testMergeConflictingEntriesFails() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolMergeTest.class.getSimpleName());
+        try {
+            final Path input = jar(directory, "a", "shared");
+            final Path b = jar(directory, "b", "different");
+            final Path output = directory.resolve("output.jar");
+
+            final IllegalArgumentException thrown = assertThrows(
+                    IllegalArgumentException.class,
+                    () -> this.make(directory, input, output, Lists.of(b), Optional.empty())
+            );
+
+            final String message = thrown.getMessage();
+            assertTrue(message.startsWith("Conflicting entry "), message);
+            assertTrue(message.contains(SHARED), message);
+            assertTrue(message.contains(input.toString()), message);
+            assertTrue(message.contains(b.toString()), message);
+            assertTrue(Files.notExists(output), "output");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testMergeModuleInheritsEveryModule() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolMergeTest.class.getSimpleName());
+        try {
+            final Path input = jar(directory, "a", "shared");
+            final Path b = jar(directory, "b", "shared");
+            final Path c = jar(directory, "c", "shared");
+            final Path output = directory.resolve("output.jar");
+
+            this.make(directory, input, output, Lists.of(c, b), Optional.of("walkingkooka.Merged"));
+
+            assertEquals(
+                    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                            "<module>\n" +
+                            "    <inherits name=\"walkingkooka.a.A\"/>\n" +
+                            "    <inherits name=\"walkingkooka.b.B\"/>\n" +
+                            "    <inherits name=\"walkingkooka.c.C\"/>\n" +
+                            "</module>\n",
+                    GwtArchiveMakerToolTest.readJar(output)
+                            .get("walkingkooka/Merged.gwt.xml")
+            );
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testMergeModuleAlreadyPresentFails() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolMergeTest.class.getSimpleName());
+        try {
+            final Path input = jar(directory, "a", "shared");
+            final Path b = jar(directory, "b", "shared");
+
+            final IllegalArgumentException thrown = assertThrows(
+                    IllegalArgumentException.class,
+                    () -> this.make(directory, input, directory.resolve("output.jar"), Lists.of(b), Optional.of("walkingkooka.b.B"))
+            );
+            assertTrue(thrown.getMessage().startsWith("Merge module "), thrown::getMessage);
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testMergeJarWithoutModuleFails() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolMergeTest.class.getSimpleName());
+        try {
+            final Path input = jar(directory, "a", "shared");
+
+            final Map<String, String> pathToContent = Maps.ordered();
+            pathToContent.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n");
+            pathToContent.put("walkingkooka/plain/Plain.java", "package walkingkooka.plain;\nclass Plain {}\n");
+            final Path plain = GwtArchiveMakerToolTest.writeJar(directory.resolve("plain.jar"), pathToContent);
+
+            final IllegalStateException thrown = assertThrows(
+                    IllegalStateException.class,
+                    () -> this.make(directory, input, directory.resolve("output.jar"), Lists.of(plain), Optional.empty())
+            );
+
+            final String message = thrown.getMessage();
+            assertTrue(message.startsWith("Unable to merge " + plain), message);
+            assertTrue(message.contains("*.gwt.xml"), message);
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    private void make(final Path directory,
+                      final Path input,
+                      final Path output,
+                      final List<Path> merge,
+                      final Optional<String> mergeModule) throws Exception {
+        GwtArchiveMakerTool.makeAll(
+                Lists.of(
+                        GwtArchiveMakerToolArchive.with(
+                                input,
+                                output,
+                                GwtArchiveMakerToolTest.writePom(directory)
+                        ).setMerge(
+                                merge,
+                                mergeModule
+                        )
+                ),
+                GwtArchiveMakerToolOptions.DEFAULT.setShadeCache(Optional.empty())
+        );
+    }
+
+    /**
+     * Writes a jar holding a module and source in its own package, and a source shared by every jar.
+     */
+    private static Path jar(final Path directory,
+                            final String name,
+                            final String shared) throws Exception {
+        final String upper = name.toUpperCase();
+
+        final Map<String, String> pathToContent = Maps.ordered();
+        pathToContent.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n");
+        pathToContent.put("walkingkooka/" + name + "/" + upper + ".gwt.xml", "<module>\n  <source path=\"\"/>\n</module>\n");
+        pathToContent.put("walkingkooka/" + name + "/" + upper + ".java", "package walkingkooka." + name + ";\nclass " + upper + " {}\n");
+        pathToContent.put(SHARED, "package walkingkooka.shared;\nclass Shared {} // " + shared + "\n");
+
+        return GwtArchiveMakerToolTest.writeJar(
+                directory.resolve(name + ".jar"),
+                pathToContent
+        );
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class GwtArchiveMakerToolProfileTest {
+
+    @Test
+    public void testFullExcludesNothing() {
+        assertFalse(GwtArchiveMakerToolProfile.FULL.isExcluded("walkingkooka/Example.class"));
+        assertFalse(GwtArchiveMakerToolProfile.FULL.isExcluded("walkingkooka/Example.java"));
+    }
+
+    @Test
+    public void testSlimExcludesClassFiles() {
+        assertTrue(GwtArchiveMakerToolProfile.SLIM.isExcluded("walkingkooka/Example.class"));
+        assertTrue(GwtArchiveMakerToolProfile.SLIM.isExcluded("walkingkooka/Example$Inner.class"));
+    }
+
+    @Test
+    public void testSlimKeepsSourcesAndResources() {
+        assertFalse(GwtArchiveMakerToolProfile.SLIM.isExcluded("walkingkooka/Example.java"));
+        assertFalse(GwtArchiveMakerToolProfile.SLIM.isExcluded("walkingkooka/Example.gwt.xml"));
+        assertFalse(GwtArchiveMakerToolProfile.SLIM.isExcluded("walkingkooka/Example.native.js"));
+        assertFalse(GwtArchiveMakerToolProfile.SLIM.isExcluded("walkingkooka/public/logo.png"));
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(GwtArchiveMakerToolProfile.FULL, GwtArchiveMakerToolProfile.parse("full"));
+        assertEquals(GwtArchiveMakerToolProfile.SLIM, GwtArchiveMakerToolProfile.parse("SLIM"));
+    }
+
+    @Test
+    public void testParseInvalidFails() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> GwtArchiveMakerToolProfile.parse("fat")
+        );
+    }
+}
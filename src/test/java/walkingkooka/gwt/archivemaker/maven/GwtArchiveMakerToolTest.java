@@ -0,0 +1,550 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.j2cl.maven.J2clArtifact;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class GwtArchiveMakerToolTest {
+
+    private final static GwtArchiveMakerToolOptions OPTIONS = GwtArchiveMakerToolOptions.DEFAULT.setOutputTimestamp(
+            Optional.of(Instant.parse("2023-01-02T03:04:06Z"))
+    ).setShadeCache(Optional.empty());
+
+    private final static long FIRST_INPUT_TIME = Instant.parse("2020-01-02T03:04:06Z").toEpochMilli();
+
+    private final static long SECOND_INPUT_TIME = Instant.parse("2021-01-02T03:04:06Z").toEpochMilli();
+
+    private final static int SHADED_COUNT = 50;
+
+    private final static String CORRUPT = "walkingkooka/test/public/corrupt.txt";
+
+    private final static byte[] CORRUPT_CONTENT = "corrupt content".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testMakeSameOutputTimestampByteIdenticalAcrossThreads() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolTest.class.getSimpleName());
+        try {
+            final Path input = this.writeInput(directory.resolve("input.jar"));
+            final Path pom = this.writePom(directory);
+
+            byte[] expected = null;
+            for (final int threads : new int[]{1, 2, 8}) {
+                final Path output = directory.resolve("output-" + threads + ".jar");
+
+                this.make(
+                        input,
+                        output,
+                        pom,
+                        OPTIONS.setThreads(threads)
+                );
+
+                this.checkShaded(output);
+
+                final byte[] bytes = Files.readAllBytes(output);
+                if (null == expected) {
+                    expected = bytes;
+                } else {
+                    assertArrayEquals(expected, bytes, "threads=" + threads);
+                }
+            }
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testMakeIncrementalReusesPreviousOutput() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolTest.class.getSimpleName());
+        try {
+            final Path input = this.writeInput(directory.resolve("input.jar"));
+            final Path pom = this.writePom(directory);
+            final Path output = directory.resolve("output.jar");
+            final GwtArchiveMakerToolOptions options = OPTIONS.setIncremental(true);
+
+            this.make(input, output, pom, options);
+            final byte[] first = Files.readAllBytes(output);
+            final Map<String, String> firstIndex = this.checkIndex(output);
+
+            this.make(input, output, pom, options);
+            assertArrayEquals(first, Files.readAllBytes(output));
+            assertEquals(firstIndex, this.checkIndex(output));
+            assertFalse(Files.exists(temporary(output)), "temporary file");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testMakeIncrementalRecompressesOnlyChangedEntries() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolTest.class.getSimpleName());
+        try {
+            final Path input = directory.resolve("input.jar");
+            final Path pom = this.writePom(directory);
+            final Path output = directory.resolve("output.jar");
+
+            // without an output timestamp entries keep their source time, and reused entries that of the previous output
+            final GwtArchiveMakerToolOptions options = OPTIONS.setOutputTimestamp(Optional.empty())
+                    .setIncremental(true);
+
+            this.writeInput(input, FIRST_INPUT_TIME, -1);
+            this.make(input, output, pom, options);
+            final Map<String, Long> firstTimes = lastModified(output);
+            final Map<String, String> firstIndex = this.checkIndex(output);
+
+            final int changed = 7;
+            final String changedPath = "walkingkooka/test/Class" + changed + ".java";
+
+            this.writeInput(input, SECOND_INPUT_TIME, changed);
+            this.make(input, output, pom, options);
+            final Map<String, Long> secondTimes = lastModified(output);
+            final Map<String, String> secondIndex = this.checkIndex(output);
+
+            int reused = 0;
+            for (final Map.Entry<String, Long> pathAndTime : secondTimes.entrySet()) {
+                final String path = pathAndTime.getKey();
+                if (false == path.startsWith("walkingkooka/test/Class") && false == path.startsWith("walkingkooka/test/public/")) {
+                    continue;
+                }
+
+                if (path.equals(changedPath)) {
+                    assertNotEquals(firstTimes.get(path), pathAndTime.getValue(), "recompressed " + path);
+                    assertNotEquals(firstIndex.get(path), secondIndex.get(path), "index " + path);
+                } else {
+                    assertEquals(firstTimes.get(path), pathAndTime.getValue(), "reused " + path);
+                    assertEquals(firstIndex.get(path), secondIndex.get(path), "index " + path);
+                    reused++;
+                }
+            }
+            assertEquals(200 * 3 + 1 - 1, reused, "reused entries");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testMakeIncrementalFailureDeletesTemporaryFile() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolTest.class.getSimpleName());
+        try {
+            final Path input = this.writeInput(directory.resolve("input.jar"));
+            final Path pom = this.writePom(directory);
+            final Path output = directory.resolve("output.jar");
+            final GwtArchiveMakerToolOptions options = OPTIONS.setIncremental(true);
+
+            this.make(input, output, pom, options);
+            final byte[] previous = Files.readAllBytes(output);
+
+            // corrupting a stored entry fails its CRC check when it is compressed again
+            final byte[] jar = Files.readAllBytes(input);
+            final int offset = indexOf(jar, CORRUPT_CONTENT);
+            jar[offset] ^= 1;
+            Files.write(input, jar);
+
+            assertThrows(
+                    Exception.class,
+                    () -> this.make(
+                            input,
+                            output,
+                            pom,
+                            options.setCompression(GwtArchiveMakerToolCompressionPreset.SIZE)
+                    )
+            );
+
+            assertFalse(Files.exists(temporary(output)), "temporary file");
+            assertArrayEquals(previous, Files.readAllBytes(output));
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testMakeNestedModules() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolTest.class.getSimpleName());
+        try {
+            final Map<String, String> pathToContent = Maps.ordered();
+            pathToContent.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n");
+            pathToContent.put("walkingkooka/outer/Outer.gwt.xml", "<module>\n  <public path=\"www\"/>\n  <super-source path=\"emul\"/>\n</module>\n");
+            pathToContent.put("walkingkooka/outer/inner/Inner.gwt.xml", "<module>\n  <public path=\"static\"/>\n  <super-source path=\"jre\"/>\n</module>\n");
+            pathToContent.put(J2clArtifact.PUBLIC_FILES, "**/*.txt\n");
+            pathToContent.put(J2clArtifact.SHADE_FILE, "walkingkooka.outer.shade=java.util\nwalkingkooka.outer.inner.shade=java.io\n");
+            pathToContent.put("walkingkooka/outer/shade/List2.java", "package walkingkooka.outer.shade;\nclass List2 {}\n");
+            pathToContent.put("walkingkooka/outer/inner/shade/Reader2.java", "package walkingkooka.outer.inner.shade;\nclass Reader2 {}\n");
+            pathToContent.put("walkingkooka/outer/a.txt", "a");
+            pathToContent.put("walkingkooka/outer/inner/b.txt", "b");
+            pathToContent.put("walkingkooka/other/c.txt", "c");
+
+            final Path input = writeJar(directory.resolve("input.jar"), pathToContent);
+            final Path output = directory.resolve("output.jar");
+            this.make(input, output, this.writePom(directory), OPTIONS);
+
+            final Map<String, String> outputPathToContent = readJar(output);
+
+            // each file uses the module with the longest directory holding it
+            assertEquals(
+                    "package java.util;\nclass List2 {}\n",
+                    outputPathToContent.get("walkingkooka/outer/emul/java/util/List2.java"),
+                    "outer super source"
+            );
+            assertEquals(
+                    "package java.io;\nclass Reader2 {}\n",
+                    outputPathToContent.get("walkingkooka/outer/inner/jre/java/io/Reader2.java"),
+                    "inner super source"
+            );
+            assertEquals(
+                    "a",
+                    outputPathToContent.get("walkingkooka/outer/www/walkingkooka/outer/a.txt"),
+                    "outer public"
+            );
+            assertEquals(
+                    "b",
+                    outputPathToContent.get("walkingkooka/outer/inner/static/walkingkooka/outer/inner/b.txt"),
+                    "inner public"
+            );
+
+            // files outside every module use the last module
+            assertEquals(
+                    "c",
+                    outputPathToContent.get("walkingkooka/outer/inner/static/walkingkooka/other/c.txt"),
+                    "outside public"
+            );
+
+            assertTrue(outputPathToContent.containsKey("walkingkooka/outer/Outer.gwt.xml"), "outer module");
+            assertTrue(outputPathToContent.containsKey("walkingkooka/outer/inner/Inner.gwt.xml"), "inner module");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testMakeShadedFilesMovedOnce() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolTest.class.getSimpleName());
+        try {
+            final Map<String, String> pathToContent = Maps.ordered();
+            pathToContent.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n");
+            pathToContent.put("walkingkooka/Test.gwt.xml", "<module>\n  <source path=\"\"/>\n</module>\n");
+            pathToContent.put(J2clArtifact.SHADE_FILE, "walkingkooka.a=walkingkooka.b\nwalkingkooka.b=walkingkooka.c\nwalkingkooka.same=walkingkooka.same\n");
+            pathToContent.put("walkingkooka/a/A.java", "class A {}\n");
+            pathToContent.put("walkingkooka/b/B.java", "class B {}\n");
+            pathToContent.put("walkingkooka/same/Same.java", "class Same {}\n");
+            pathToContent.put("walkingkooka/same/Same.class", "Same");
+
+            final Path input = writeJar(directory.resolve("input.jar"), pathToContent);
+            final Path output = directory.resolve("output.jar");
+            this.make(input, output, writePom(directory), OPTIONS);
+
+            final Map<String, String> outputPathToContent = readJar(output);
+
+            // a file moved by the first mapping is not moved again by the mapping of its new package
+            assertEquals("class A {}\n", outputPathToContent.get("walkingkooka/super/walkingkooka/b/A.java"), "moved once");
+            assertFalse(outputPathToContent.containsKey("walkingkooka/super/walkingkooka/c/A.java"), "moved twice");
+            assertEquals("class B {}\n", outputPathToContent.get("walkingkooka/super/walkingkooka/c/B.java"), "second mapping");
+
+            // identity mappings leave sources and classes in place
+            assertEquals("class Same {}\n", outputPathToContent.get("walkingkooka/same/Same.java"), "identity source");
+            assertEquals("Same", outputPathToContent.get("walkingkooka/same/Same.class"), "identity class");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    /**
+     * Shaded java sources are moved to the super source directory with their packages rewritten, and their class
+     * files are removed.
+     */
+    private void checkShaded(final Path output) throws IOException {
+        try (final JarArchiveReader reader = JarArchiveReader.open(output)) {
+            final Map<String, JarArchiveReaderEntry> pathToEntry = Maps.sorted();
+            for (final JarArchiveReaderEntry entry : reader.entries()) {
+                pathToEntry.put(entry.name(), entry);
+            }
+
+            for (int i = 0; i < SHADED_COUNT; i++) {
+                final JarArchiveReaderEntry entry = pathToEntry.get("walkingkooka/test/super/java/util/Emulated" + i + ".java");
+                assertNotNull(entry, "shaded " + i);
+                assertEquals(
+                        "package java.util;\nimport java.util.Emulated0;\n// walkingkooka.test.emul.java.util\nclass Emulated" + i + " { java.util.List list; }\n",
+                        new String(reader.content(entry), StandardCharsets.UTF_8)
+                );
+
+                assertFalse(pathToEntry.containsKey(emulated(i, ".java")), "original source");
+                assertFalse(pathToEntry.containsKey(emulated(i, ".class")), "original class");
+                assertFalse(pathToEntry.containsKey("java/util/Emulated" + i + ".class"), "shaded class");
+            }
+
+            assertArrayEquals(
+                    classSource(7),
+                    reader.content(pathToEntry.get("walkingkooka/test/Class7.java"))
+            );
+            assertTrue(pathToEntry.containsKey("walkingkooka/test/Class7.class"), "unshaded class");
+        }
+    }
+
+    /**
+     * Checks every entry of the output except the manifest, which is always written again, has a line in its index
+     * with the same CRC, returning the CRC and key of each path.
+     */
+    private Map<String, String> checkIndex(final Path output) throws IOException {
+        final List<String> lines = Files.readAllLines(
+                JarArchiveOutputIndex.file(output),
+                StandardCharsets.UTF_8
+        );
+        assertTrue(lines.get(0).startsWith("# plugin-jar="), () -> "header " + lines.get(0));
+
+        final Map<String, String> pathToCrcKey = Maps.sorted();
+        for (final String line : lines.subList(1, lines.size())) {
+            final String[] crcKeyPath = line.split(" ", 3);
+            assertEquals(3, crcKeyPath.length, () -> "line " + line);
+            assertEquals(32, crcKeyPath[1].length(), () -> "key " + line);
+            pathToCrcKey.put(crcKeyPath[2], crcKeyPath[0] + " " + crcKeyPath[1]);
+        }
+
+        try (final JarArchiveReader reader = JarArchiveReader.open(output)) {
+            int count = 0;
+            for (final JarArchiveReaderEntry entry : reader.entries()) {
+                if ("META-INF/MANIFEST.MF".equals(entry.name())) {
+                    continue;
+                }
+                final String crcKey = pathToCrcKey.get(entry.name());
+                assertNotNull(crcKey, entry.name());
+                assertEquals(Long.toHexString(entry.crc()), crcKey.substring(0, crcKey.indexOf(' ')), entry.name());
+                count++;
+            }
+            assertEquals(count, pathToCrcKey.size(), "index entries");
+        }
+
+        return pathToCrcKey;
+    }
+
+    private static Map<String, Long> lastModified(final Path output) throws IOException {
+        final Map<String, Long> pathToTime = Maps.sorted();
+        try (final JarArchiveReader reader = JarArchiveReader.open(output)) {
+            for (final JarArchiveReaderEntry entry : reader.entries()) {
+                pathToTime.put(entry.name(), entry.lastModified());
+            }
+        }
+        return pathToTime;
+    }
+
+    private void make(final Path input,
+                      final Path output,
+                      final Path pom,
+                      final GwtArchiveMakerToolOptions options) throws Exception {
+        GwtArchiveMakerTool.makeAll(
+                Lists.of(
+                        GwtArchiveMakerToolArchive.with(
+                                input,
+                                output,
+                                pom
+                        )
+                ),
+                options
+        );
+    }
+
+    private static Path temporary(final Path output) {
+        return output.resolveSibling(output.getFileName() + ".tmp");
+    }
+
+    static Path writePom(final Path directory) throws IOException {
+        final Path pom = directory.resolve("pom.xml");
+        Files.write(
+                pom,
+                ("<project>\n" +
+                        "  <modelVersion>4.0.0</modelVersion>\n" +
+                        "  <groupId>walkingkooka</groupId>\n" +
+                        "  <artifactId>test</artifactId>\n" +
+                        "  <version>1.0</version>\n" +
+                        "</project>\n").getBytes(StandardCharsets.UTF_8)
+        );
+        return pom;
+    }
+
+    private Path writeInput(final Path jar) throws IOException {
+        return this.writeInput(jar, FIRST_INPUT_TIME, -1);
+    }
+
+    /**
+     * Writes the input jar with every entry modified at the given time, appending a comment to the source of the
+     * changed class.
+     */
+    private Path writeInput(final Path jar,
+                            final long time,
+                            final int changed) throws IOException {
+        final Random random = new Random(1);
+
+        try (final JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar))) {
+            write(output, time, new ZipEntry("META-INF/MANIFEST.MF"), "Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            write(
+                    output,
+                    time,
+                    new ZipEntry("walkingkooka/test/Test.gwt.xml"),
+                    "<module>\n  <source path=\"\"/>\n  <public path=\"public\"/>\n</module>\n".getBytes(StandardCharsets.UTF_8)
+            );
+
+            write(
+                    output,
+                    time,
+                    new ZipEntry(J2clArtifact.SHADE_FILE),
+                    "walkingkooka.test.emul.java.util=java.util\n".getBytes(StandardCharsets.UTF_8)
+            );
+
+            for (int i = 0; i < SHADED_COUNT; i++) {
+                write(
+                        output,
+                        time,
+                        new ZipEntry(emulated(i, ".java")),
+                        ("package walkingkooka.test.emul.java.util;\nimport walkingkooka.test.emul.java.util.Emulated0;\n// walkingkooka.test.emul.java.util\nclass Emulated" + i + " { java.util.List list; }\n").getBytes(StandardCharsets.UTF_8)
+                );
+                write(
+                        output,
+                        time,
+                        new ZipEntry(emulated(i, ".class")),
+                        new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, (byte) i}
+                );
+            }
+
+            for (int i = 0; i < 200; i++) {
+                write(
+                        output,
+                        time,
+                        new ZipEntry("walkingkooka/test/Class" + i + ".java"),
+                        i == changed ?
+                                JarArchiveReaderTest.repeat("// changed\n", 1 + i) :
+                                classSource(i)
+                );
+                write(
+                        output,
+                        time,
+                        new ZipEntry("walkingkooka/test/Class" + i + ".class"),
+                        new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, (byte) i}
+                );
+
+                final byte[] binary = new byte[i * 100];
+                random.nextBytes(binary);
+                write(
+                        output,
+                        time,
+                        new ZipEntry("walkingkooka/test/public/image" + i + ".png"),
+                        binary
+                );
+            }
+
+            final ZipEntry stored = new ZipEntry(CORRUPT);
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(CORRUPT_CONTENT.length);
+            stored.setCompressedSize(CORRUPT_CONTENT.length);
+            final CRC32 crc = new CRC32();
+            crc.update(CORRUPT_CONTENT);
+            stored.setCrc(crc.getValue());
+            write(output, time, stored, CORRUPT_CONTENT);
+        }
+
+        return jar;
+    }
+
+    /**
+     * Writes a jar holding the given paths and text content, in the order given.
+     */
+    static Path writeJar(final Path jar,
+                         final Map<String, String> pathToContent) throws IOException {
+        try (final JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (final Map.Entry<String, String> pathAndContent : pathToContent.entrySet()) {
+                write(
+                        output,
+                        FIRST_INPUT_TIME,
+                        new ZipEntry(pathAndContent.getKey()),
+                        pathAndContent.getValue()
+                                .getBytes(StandardCharsets.UTF_8)
+                );
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * Reads the path and text content of every entry of the given jar.
+     */
+    static Map<String, String> readJar(final Path jar) throws IOException {
+        final Map<String, String> pathToContent = Maps.sorted();
+        try (final JarArchiveReader reader = JarArchiveReader.open(jar)) {
+            for (final JarArchiveReaderEntry entry : reader.entries()) {
+                pathToContent.put(
+                        entry.name(),
+                        new String(reader.content(entry), StandardCharsets.UTF_8)
+                );
+            }
+        }
+        return pathToContent;
+    }
+
+    private static String emulated(final int i,
+                                   final String suffix) {
+        return "walkingkooka/test/emul/java/util/Emulated" + i + suffix;
+    }
+
+    private static byte[] classSource(final int i) {
+        return JarArchiveReaderTest.repeat("package walkingkooka.test;\nclass Class" + i + " {}\n", i + 1);
+    }
+
+    private static void write(final JarOutputStream output,
+                              final long time,
+                              final ZipEntry entry,
+                              final byte[] content) throws IOException {
+        entry.setTime(time);
+        output.putNextEntry(entry);
+        output.write(content);
+        output.closeEntry();
+    }
+
+    private static int indexOf(final byte[] bytes,
+                               final byte[] find) {
+        for (int i = 0; i + find.length <= bytes.length; i++) {
+            boolean found = true;
+            for (int j = 0; found && j < find.length; j++) {
+                found = bytes[i + j] == find[j];
+            }
+            if (found) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unable to find content");
+    }
+}
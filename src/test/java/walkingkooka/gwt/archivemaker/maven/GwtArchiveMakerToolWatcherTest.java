@@ -0,0 +1,273 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class GwtArchiveMakerToolWatcherTest {
+
+    private final static long TIMEOUT_MILLIS = 10 * 1000;
+
+    @Test
+    public void testBurstOfChangesCoalescedIntoOneIncrementalBuild() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolWatcherTest.class.getSimpleName());
+        try {
+            final Path input = directory.resolve("input");
+            final Path output = directory.resolve("output")
+                    .resolve("output.jar");
+            Files.createDirectories(output.getParent());
+
+            final Path source = input.resolve("walkingkooka")
+                    .resolve("test");
+            Files.createDirectories(source);
+            Files.write(
+                    source.resolve("Test.gwt.xml"),
+                    "<module>\n  <source path=\"\"/>\n</module>\n".getBytes(StandardCharsets.UTF_8)
+            );
+            writeSource(source, 0);
+
+            final Path pom = this.writePom(directory.resolve("pom"));
+
+            final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+            final Thread thread = new Thread(
+                    () -> {
+                        try {
+                            GwtArchiveMakerToolWatcher.with(
+                                    GwtArchiveMakerToolArchive.with(
+                                            input,
+                                            output,
+                                            pom
+                                    ),
+                                    GwtArchiveMakerToolOptions.DEFAULT,
+                                    new PrintStream(printed, true)
+                            ).run();
+                        } catch (final Throwable cause) {
+                            failure.set(cause);
+                        }
+                    }
+            );
+            thread.start();
+            try {
+                waitForBuilds(printed, 1);
+                assertTrue(Files.exists(output), "output");
+                assertTrue(Files.exists(JarArchiveOutputIndex.file(output)), "watch builds must be incremental");
+
+                // each change arrives well within the quiet time of the previous change
+                for (int i = 1; i < 5; i++) {
+                    writeSource(source, i);
+                    Thread.sleep(GwtArchiveMakerToolWatcher.QUIET_MILLIS / 4);
+                }
+                writeSource(source, 5);
+                final long lastChange = System.currentTimeMillis();
+
+                waitForBuilds(printed, 2);
+                assertTrue(
+                        System.currentTimeMillis() - lastChange >= GwtArchiveMakerToolWatcher.QUIET_MILLIS,
+                        "build began before the quiet time"
+                );
+
+                // nothing else changed so no further builds follow
+                Thread.sleep(GwtArchiveMakerToolWatcher.QUIET_MILLIS * 5);
+                assertEquals(2, builds(printed), () -> printed.toString());
+
+                try (final JarArchiveReader reader = JarArchiveReader.open(output)) {
+                    assertTrue(
+                            reader.entries()
+                                    .stream()
+                                    .anyMatch(e -> e.name().equals("walkingkooka/test/Class5.java")),
+                            () -> "entries " + reader.entries()
+                    );
+                }
+            } finally {
+                thread.interrupt();
+                thread.join(TIMEOUT_MILLIS);
+            }
+
+            assertFalse(thread.isAlive(), "watcher did not stop after being interrupted");
+            assertNull(failure.get(), "failure");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testOutputWithinInputDirectoryIgnored() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolWatcherTest.class.getSimpleName());
+        try {
+            final Path input = directory.resolve("input");
+            final Path output = input.resolve("output.jar");
+
+            final Path source = input.resolve("walkingkooka")
+                    .resolve("test");
+            Files.createDirectories(source);
+            Files.write(
+                    source.resolve("Test.gwt.xml"),
+                    "<module>\n  <source path=\"\"/>\n</module>\n".getBytes(StandardCharsets.UTF_8)
+            );
+            writeSource(source, 0);
+
+            final Path pom = this.writePom(directory.resolve("pom"));
+
+            final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+            final Thread thread = new Thread(
+                    () -> {
+                        try {
+                            GwtArchiveMakerToolWatcher.with(
+                                    GwtArchiveMakerToolArchive.with(
+                                            input,
+                                            output,
+                                            pom
+                                    ),
+                                    GwtArchiveMakerToolOptions.DEFAULT,
+                                    new PrintStream(printed, true)
+                            ).run();
+                        } catch (final Exception cause) {
+                            throw new RuntimeException(cause);
+                        }
+                    }
+            );
+            thread.start();
+            try {
+                waitForBuilds(printed, 1);
+
+                // the temporary file, index and fingerprint written next to the output are not inputs
+                Files.write(
+                        output.resolveSibling(output.getFileName() + GwtArchiveMakerToolFingerprint.FILE_SUFFIX),
+                        new byte[]{1}
+                );
+                Thread.sleep(GwtArchiveMakerToolWatcher.QUIET_MILLIS * 5);
+                assertEquals(1, builds(printed), () -> printed.toString());
+
+                writeSource(source, 1);
+                waitForBuilds(printed, 2);
+            } finally {
+                thread.interrupt();
+                thread.join(TIMEOUT_MILLIS);
+            }
+
+            assertFalse(thread.isAlive(), "watcher did not stop after being interrupted");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testInterruptStopsWatching() throws Exception {
+        final Path directory = Files.createTempDirectory(GwtArchiveMakerToolWatcherTest.class.getSimpleName());
+        try {
+            final Path input = directory.resolve("input");
+            final Path source = input.resolve("walkingkooka");
+            Files.createDirectories(source);
+            Files.write(
+                    source.resolve("Test.gwt.xml"),
+                    "<module/>\n".getBytes(StandardCharsets.UTF_8)
+            );
+
+            final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+            final Thread thread = new Thread(
+                    () -> {
+                        try {
+                            GwtArchiveMakerToolWatcher.with(
+                                    GwtArchiveMakerToolArchive.with(
+                                            input,
+                                            directory.resolve("output.jar"),
+                                            this.writePom(directory.resolve("pom"))
+                                    ),
+                                    GwtArchiveMakerToolOptions.DEFAULT,
+                                    new PrintStream(printed, true)
+                            ).run();
+                        } catch (final Exception cause) {
+                            throw new RuntimeException(cause);
+                        }
+                    }
+            );
+            thread.start();
+
+            waitForBuilds(printed, 1);
+            thread.interrupt();
+            thread.join(TIMEOUT_MILLIS);
+
+            assertFalse(thread.isAlive(), "watcher did not stop after being interrupted");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    private Path writePom(final Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        final Path pom = directory.resolve("pom.xml");
+        Files.write(
+                pom,
+                ("<project>\n" +
+                        "  <modelVersion>4.0.0</modelVersion>\n" +
+                        "  <groupId>walkingkooka</groupId>\n" +
+                        "  <artifactId>test</artifactId>\n" +
+                        "  <version>1.0</version>\n" +
+                        "</project>\n").getBytes(StandardCharsets.UTF_8)
+        );
+        return pom;
+    }
+
+    private static void writeSource(final Path directory,
+                                    final int i) throws IOException {
+        Files.write(
+                directory.resolve("Class" + i + ".java"),
+                ("package walkingkooka.test;\nclass Class" + i + " {}\n").getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    /**
+     * Each build, successful or not, is followed by a line announcing watching has resumed.
+     */
+    private static int builds(final ByteArrayOutputStream printed) {
+        int count = 0;
+        for (final String line : printed.toString().split("\n")) {
+            if (line.startsWith("Watching ")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void waitForBuilds(final ByteArrayOutputStream printed,
+                                      final int count) throws InterruptedException {
+        final long end = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (builds(printed) < count) {
+            if (System.currentTimeMillis() > end) {
+                throw new AssertionError("Expected " + count + " builds but got " + builds(printed) + "\n" + printed);
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JarArchiveDeflaterTest {
+
+    @Test
+    public void testDeflateStored() throws Exception {
+        this.deflateAndCheck(
+                "stored content".getBytes(StandardCharsets.UTF_8),
+                Deflater.NO_COMPRESSION,
+                ZipEntry.STORED
+        );
+    }
+
+    @Test
+    public void testDeflateEmpty() throws Exception {
+        this.deflateAndCheck(
+                new byte[0],
+                Deflater.DEFAULT_COMPRESSION,
+                ZipEntry.DEFLATED
+        );
+    }
+
+    @Test
+    public void testDeflateLevels() throws Exception {
+        final byte[] content = JarArchiveReaderTest.repeat("package walkingkooka;\nclass Deflated {}\n", 1000);
+
+        for (final int level : new int[]{Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION}) {
+            this.deflateAndCheck(
+                    content,
+                    level,
+                    ZipEntry.DEFLATED
+            );
+        }
+    }
+
+    @Test
+    public void testDeflateSeveralChunks() throws Exception {
+        // larger than a chunk and compresses to more than the initial output buffer
+        final byte[] content = new byte[300 * 1024 + 17];
+        new Random(1).nextBytes(content);
+
+        this.deflateAndCheck(
+                content,
+                Deflater.DEFAULT_COMPRESSION,
+                ZipEntry.DEFLATED
+        );
+    }
+
+    @Test
+    public void testDeflateReusedDeflater() throws Exception {
+        final byte[] first = new byte[100 * 1024];
+        new Random(2).nextBytes(first);
+        final byte[] second = "second".getBytes(StandardCharsets.UTF_8);
+
+        final Path directory = Files.createTempDirectory(JarArchiveDeflaterTest.class.getSimpleName());
+        try {
+            final Path jar = directory.resolve("test.jar");
+
+            try (final JarArchiveDeflater deflater = JarArchiveDeflater.with()) {
+                try (final JarArchiveWriter writer = writer(jar)) {
+                    deflater.deflate("first.bin", 0, ByteBuffer.wrap(first), Deflater.BEST_SPEED)
+                            .write(writer);
+                    deflater.deflate("second.txt", 0, ByteBuffer.wrap(second), Deflater.BEST_COMPRESSION)
+                            .write(writer);
+                }
+            }
+
+            try (final JarArchiveReader reader = JarArchiveReader.open(jar)) {
+                final List<JarArchiveReaderEntry> entries = reader.entries();
+                assertArrayEquals(first, reader.content(entries.get(0)));
+                assertArrayEquals(second, reader.content(entries.get(1)));
+            }
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testDeflateLeavesContentPosition() throws Exception {
+        final ByteBuffer content = ByteBuffer.wrap("content".getBytes(StandardCharsets.UTF_8));
+
+        try (final JarArchiveDeflater deflater = JarArchiveDeflater.with()) {
+            deflater.deflate("a.txt", 0, content, Deflater.DEFAULT_COMPRESSION);
+        }
+
+        assertEquals(0, content.position());
+    }
+
+    private void deflateAndCheck(final byte[] content,
+                                 final int level,
+                                 final int method) throws IOException {
+        final Path directory = Files.createTempDirectory(JarArchiveDeflaterTest.class.getSimpleName());
+        try {
+            final Path jar = directory.resolve("test.jar");
+
+            try (final JarArchiveDeflater deflater = JarArchiveDeflater.with()) {
+                final JarArchiveWriterEntry entry = deflater.deflate(
+                        "entry.bin",
+                        0,
+                        ByteBuffer.wrap(content),
+                        level
+                );
+                assertEquals(JarArchiveReaderTest.crc(content), entry.crc(), "crc");
+
+                try (final JarArchiveWriter writer = writer(jar)) {
+                    entry.write(writer);
+                }
+            }
+
+            try (final JarArchiveReader reader = JarArchiveReader.open(jar)) {
+                final JarArchiveReaderEntry entry = reader.entries()
+                        .get(0);
+                assertEquals(method, entry.method(), "method");
+                assertEquals(content.length, entry.size(), "size");
+                if (ZipEntry.STORED == method) {
+                    assertEquals(content.length, entry.compressedSize(), "compressed size");
+                } else {
+                    assertTrue(entry.compressedSize() > 0, "compressed size");
+                }
+                assertArrayEquals(content, reader.content(entry), "content");
+            }
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    private static JarArchiveWriter writer(final Path jar) throws IOException {
+        return JarArchiveWriter.with(
+                FileChannel.open(
+                        jar,
+                        StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE
+                ),
+                ZoneId.systemDefault()
+        );
+    }
+}
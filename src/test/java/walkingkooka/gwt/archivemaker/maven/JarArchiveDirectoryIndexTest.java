@@ -0,0 +1,267 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JarArchiveDirectoryIndexTest {
+
+    private final static GwtArchiveMakerToolOptions OPTIONS = GwtArchiveMakerToolOptions.DEFAULT.setOutputFormat(
+            GwtArchiveMakerToolOutputFormat.DIRECTORY
+    ).setShadeCache(Optional.empty());
+
+    @Test
+    public void testMakeRemovesStaleFiles() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveDirectoryIndexTest.class.getSimpleName());
+        try {
+            final Path pom = GwtArchiveMakerToolTest.writePom(directory);
+            final Path input = directory.resolve("input.jar");
+            final Path output = directory.resolve("output");
+
+            writeInput(input, true);
+            this.make(input, output, pom);
+
+            assertTrue(Files.isRegularFile(output.resolve("walkingkooka/stale/Stale.java")), "stale written");
+
+            // files not written by a build are never removed
+            final Path user = output.resolve("walkingkooka/user.txt");
+            Files.write(user, new byte[]{1, 2, 3});
+
+            writeInput(input, false);
+            this.make(input, output, pom);
+
+            assertFalse(Files.exists(output.resolve("walkingkooka/stale/Stale.java")), "stale file removed");
+            assertFalse(Files.exists(output.resolve("walkingkooka/stale")), "empty stale directory removed");
+            assertTrue(Files.isRegularFile(output.resolve("walkingkooka/Example.java")), "kept");
+            assertTrue(Files.isRegularFile(user), "user file");
+
+            final List<String> index = Files.readAllLines(JarArchiveDirectoryIndex.file(output), StandardCharsets.UTF_8);
+            assertEquals("# gwt-archive-maker directory", index.get(0), "header");
+            assertTrue(index.contains("walkingkooka/Example.java"), () -> "index " + index);
+            assertTrue(index.contains("META-INF/MANIFEST.MF"), () -> "index " + index);
+            assertFalse(index.contains("walkingkooka/stale/Stale.java"), () -> "index " + index);
+            assertFalse(index.contains("walkingkooka/user.txt"), () -> "index " + index);
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testMakeUnchangedFilesNotWritten() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveDirectoryIndexTest.class.getSimpleName());
+        try {
+            final Path pom = GwtArchiveMakerToolTest.writePom(directory);
+            final Path input = writeInput(directory.resolve("input.jar"), true);
+            final Path output = directory.resolve("output");
+
+            this.make(input, output, pom);
+
+            final Path example = output.resolve("walkingkooka/Example.java");
+            final FileTime time = FileTime.fromMillis(1000000000000L);
+            Files.setLastModifiedTime(example, time);
+
+            this.make(input, output, pom);
+
+            assertEquals(time, Files.getLastModifiedTime(example));
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testMakeNonEmptyDirectoryWithoutIndexFails() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveDirectoryIndexTest.class.getSimpleName());
+        try {
+            final Path pom = GwtArchiveMakerToolTest.writePom(directory);
+            final Path input = writeInput(directory.resolve("input.jar"), true);
+            final Path output = Files.createDirectory(directory.resolve("output"));
+            final Path user = output.resolve("user.txt");
+            Files.write(user, new byte[]{1, 2, 3});
+
+            final IllegalArgumentException thrown = assertThrows(
+                    IllegalArgumentException.class,
+                    () -> this.make(input, output, pom)
+            );
+            assertTrue(thrown.getMessage().startsWith("Unable to write to non empty directory "), thrown::getMessage);
+
+            assertTrue(Files.isRegularFile(user), "user file");
+            assertFalse(Files.exists(output.resolve("walkingkooka")), "nothing written");
+            assertFalse(Files.exists(JarArchiveDirectoryIndex.file(output)), "index");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testPreviousEmptyDirectoryWithoutIndex() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveDirectoryIndexTest.class.getSimpleName());
+        try {
+            assertEquals(Lists.empty(), JarArchiveDirectoryIndex.previous(directory));
+            assertEquals(Lists.empty(), JarArchiveDirectoryIndex.previous(directory.resolve("missing")));
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testPreviousInvalidHeaderFails() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveDirectoryIndexTest.class.getSimpleName());
+        try {
+            final Path output = directory.resolve("output");
+            Files.write(
+                    JarArchiveDirectoryIndex.file(output),
+                    "# something else\nwalkingkooka/Example.java\n".getBytes(StandardCharsets.UTF_8)
+            );
+
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> JarArchiveDirectoryIndex.previous(output)
+            );
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testWriteAndPrevious() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveDirectoryIndexTest.class.getSimpleName());
+        try {
+            final Path output = Files.createDirectory(directory.resolve("output"));
+            JarArchiveDirectoryIndex.write(
+                    output,
+                    Lists.of("b/B.java", "a/A.java")
+            );
+
+            assertEquals(
+                    Lists.of("a/A.java", "b/B.java"),
+                    JarArchiveDirectoryIndex.previous(output)
+            );
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testResolve() {
+        final Path output = Path.of("output");
+        assertEquals(
+                output.toAbsolutePath().resolve("walkingkooka/b/B.java"),
+                JarArchiveDirectoryIndex.resolve(output, "walkingkooka/a/../b/B.java")
+        );
+    }
+
+    @Test
+    public void testResolveParentFails() {
+        this.resolveFails("../outside.txt");
+    }
+
+    @Test
+    public void testResolveNestedParentFails() {
+        this.resolveFails("walkingkooka/../../outside.txt");
+    }
+
+    @Test
+    public void testResolveAbsoluteFails() {
+        this.resolveFails(Path.of("outside.txt").toAbsolutePath().toString());
+    }
+
+    @Test
+    public void testResolveDirectoryFails() {
+        this.resolveFails("walkingkooka/..");
+    }
+
+    private void resolveFails(final String path) {
+        final IllegalArgumentException thrown = assertThrows(
+                IllegalArgumentException.class,
+                () -> JarArchiveDirectoryIndex.resolve(Path.of("output"), path)
+        );
+        assertTrue(thrown.getMessage().contains("is outside output directory"), thrown::getMessage);
+    }
+
+    @Test
+    public void testMakeIndexOutsideDirectoryNotRemoved() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveDirectoryIndexTest.class.getSimpleName());
+        try {
+            final Path pom = GwtArchiveMakerToolTest.writePom(directory);
+            final Path input = writeInput(directory.resolve("input.jar"), true);
+            final Path output = directory.resolve("output");
+
+            this.make(input, output, pom);
+
+            // an edited index naming a file outside the directory
+            final Path outside = directory.resolve("outside.txt");
+            Files.write(outside, new byte[]{1, 2, 3});
+            Files.write(
+                    JarArchiveDirectoryIndex.file(output),
+                    "# gwt-archive-maker directory\n../outside.txt\n".getBytes(StandardCharsets.UTF_8)
+            );
+
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> this.make(input, output, pom)
+            );
+            assertTrue(Files.isRegularFile(outside), "outside file");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    private void make(final Path input,
+                      final Path output,
+                      final Path pom) throws Exception {
+        GwtArchiveMakerTool.makeAll(
+                Lists.of(
+                        GwtArchiveMakerToolArchive.with(
+                                input,
+                                output,
+                                pom
+                        )
+                ),
+                OPTIONS
+        );
+    }
+
+    private static Path writeInput(final Path jar,
+                                   final boolean stale) throws Exception {
+        final Map<String, String> pathToContent = Maps.ordered();
+        pathToContent.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n");
+        pathToContent.put("walkingkooka/Test.gwt.xml", "<module>\n  <source path=\"\"/>\n</module>\n");
+        pathToContent.put("walkingkooka/Example.java", "package walkingkooka;\nclass Example {}\n");
+        if (stale) {
+            pathToContent.put("walkingkooka/stale/Stale.java", "package walkingkooka.stale;\nclass Stale {}\n");
+        }
+
+        return GwtArchiveMakerToolTest.writeJar(jar, pathToContent);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.collect.list.Lists;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JarArchiveDirectoryReaderTest {
+
+    @Test
+    public void testEntriesSortedAndEarlierDirectoriesWin() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveDirectoryReaderTest.class.getSimpleName());
+        try {
+            final Path classes = directory.resolve("classes");
+            final Path sources = directory.resolve("sources");
+            write(classes.resolve("walkingkooka/B.class"), "class");
+            write(classes.resolve("walkingkooka/A.java"), "classes");
+            write(sources.resolve("walkingkooka/A.java"), "sources");
+            write(sources.resolve("walkingkooka/C.java"), "sources");
+
+            try (final JarArchiveDirectoryReader reader = JarArchiveDirectoryReader.open(classes, Lists.of(sources))) {
+                final List<JarArchiveReaderEntry> entries = reader.entries();
+                assertEquals(
+                        Lists.of("walkingkooka/A.java", "walkingkooka/B.class", "walkingkooka/C.java"),
+                        entries.stream()
+                                .map(JarArchiveReaderEntry::name)
+                                .collect(Collectors.toList())
+                );
+                assertFalse(reader.isJarFile());
+
+                assertArrayEquals(
+                        "classes".getBytes(StandardCharsets.UTF_8),
+                        reader.content(entries.get(0))
+                );
+                assertArrayEquals(
+                        "sources".getBytes(StandardCharsets.UTF_8),
+                        reader.content(entries.get(2))
+                );
+            }
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testRawContentReadOntoHeap() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveDirectoryReaderTest.class.getSimpleName());
+        try {
+            final Path file = directory.resolve("walkingkooka/A.java");
+            write(file, "content");
+
+            try (final JarArchiveDirectoryReader reader = JarArchiveDirectoryReader.open(directory, Lists.empty())) {
+                final ByteBuffer raw = reader.rawContent(
+                        reader.entries()
+                                .get(0)
+                );
+                assertTrue(raw.isReadOnly(), "read only");
+                assertFalse(raw.isDirect(), "mapped");
+
+                // the file may be replaced while its content is still referenced
+                Files.delete(file);
+                assertEquals(ByteBuffer.wrap("content".getBytes(StandardCharsets.UTF_8)), raw);
+            }
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testRawContentChangedSizeFails() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveDirectoryReaderTest.class.getSimpleName());
+        try {
+            final Path file = directory.resolve("walkingkooka/A.java");
+            write(file, "content");
+
+            try (final JarArchiveDirectoryReader reader = JarArchiveDirectoryReader.open(directory, Lists.empty())) {
+                write(file, "changed content");
+
+                assertThrows(
+                        IOException.class,
+                        () -> reader.rawContent(
+                                reader.entries()
+                                        .get(0)
+                        )
+                );
+            }
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    private static void write(final Path file,
+                              final String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.file.Files2;
+import walkingkooka.text.CaseSensitivity;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JarArchiveGlobPatternsTest {
+
+    private final static List<String> PATHS = List.of(
+            "foo.js",
+            "x/foo.js",
+            "x/bar.js",
+            "x/baz.js",
+            "x/y/foo.js",
+            "x/ac.txt",
+            "x/bc.txt",
+            "x/cc.txt",
+            "x/x[1].txt",
+            "x/x1.txt",
+            "*.txt",
+            "a.txt",
+            "a/b/c.txt",
+            "a/x/c.txt",
+            "a/x/y/c.txt",
+            "walkingkooka/public/logo.png",
+            "walkingkooka/Example.java"
+    );
+
+    @Test
+    public void testBraceGroup() {
+        this.testMatchesFiles2("**/{foo,bar}.js");
+    }
+
+    @Test
+    public void testBraceGroupMatchesAlternative() {
+        assertTrue(
+                JarArchiveGlobPatterns.parse("**/{foo,bar}.js")
+                        .test("x/foo.js")
+        );
+    }
+
+    @Test
+    public void testBracket() {
+        this.testMatchesFiles2("**/[ab]c.txt");
+    }
+
+    @Test
+    public void testBracketNegated() {
+        this.testMatchesFiles2("**/[!a]c.txt");
+    }
+
+    @Test
+    public void testEscaped() {
+        this.testMatchesFiles2("**/x\\[1\\].txt");
+    }
+
+    @Test
+    public void testEscapedStar() {
+        this.testMatchesFiles2("\\*.txt");
+    }
+
+    @Test
+    public void testWildcards() {
+        this.testMatchesFiles2("**/*.js");
+        this.testMatchesFiles2("a/*/c.txt");
+        this.testMatchesFiles2("a/**/c.txt");
+        this.testMatchesFiles2("walkingkooka/**/*.png");
+        this.testMatchesFiles2("?.txt");
+    }
+
+    @Test
+    public void testPlain() {
+        this.testMatchesFiles2("a/b/c.txt");
+        this.testMatchesFiles2("walkingkooka/Example.java");
+    }
+
+    @Test
+    public void testSeveralLines() {
+        final String text = "# comment\n" +
+                "\n" +
+                "**/{foo,bar}.js\n" +
+                "a/b/c.txt\n" +
+                "**/[ab]c.txt\n";
+        final JarArchiveGlobPatterns patterns = JarArchiveGlobPatterns.parse(text);
+
+        for (final String path : PATHS) {
+            assertEquals(
+                    Files2.globPatterns("**/{foo,bar}.js", CaseSensitivity.SENSITIVE).test(path) ||
+                            path.equals("a/b/c.txt") ||
+                            Files2.globPatterns("**/[ab]c.txt", CaseSensitivity.SENSITIVE).test(path),
+                    patterns.test(path),
+                    path
+            );
+        }
+    }
+
+    private void testMatchesFiles2(final String pattern) {
+        final Predicate<String> expected = Files2.globPatterns(
+                pattern,
+                CaseSensitivity.SENSITIVE
+        );
+        final JarArchiveGlobPatterns patterns = JarArchiveGlobPatterns.parse(pattern);
+
+        for (final String path : PATHS) {
+            assertEquals(
+                    expected.test(path),
+                    patterns.test(path),
+                    () -> pattern + " " + path
+            );
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JarArchiveGwtModulesTest {
+
+    private final static String OUTER = "walkingkooka/outer/Outer.gwt.xml";
+
+    private final static String INNER = "walkingkooka/outer/inner/Inner.gwt.xml";
+
+    @Test
+    public void testParseDefaults() throws Exception {
+        final JarArchiveGwtModule module = parse(
+                OUTER,
+                "<module>\n  <source path=\"\"/>\n</module>\n"
+        );
+
+        assertEquals("walkingkooka/outer", module.directory(), "directory");
+        assertEquals("walkingkooka/outer/public", module.publicDirectory(), "public");
+        assertEquals("walkingkooka/outer/super", module.superSourceDirectory(), "super");
+    }
+
+    @Test
+    public void testParsePublicAndSuperSource() throws Exception {
+        final JarArchiveGwtModule module = this.inner();
+
+        assertEquals("walkingkooka/outer/inner", module.directory(), "directory");
+        assertEquals("walkingkooka/outer/inner/static", module.publicDirectory(), "public");
+        assertEquals("walkingkooka/outer/inner/jre", module.superSourceDirectory(), "super");
+    }
+
+    @Test
+    public void testParseTwoPublicFails() {
+        final IllegalArgumentException thrown = assertThrows(
+                IllegalArgumentException.class,
+                () -> parse(
+                        OUTER,
+                        "<module><public path=\"a\"/><public path=\"b\"/></module>"
+                )
+        );
+        assertTrue(thrown.getMessage().startsWith("Got 2 "), thrown::getMessage);
+    }
+
+    @Test
+    public void testParseRootModuleFails() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> parse(
+                        "Root.gwt.xml",
+                        "<module/>"
+                )
+        );
+    }
+
+    @Test
+    public void testModuleLongestDirectoryPrefix() throws Exception {
+        final JarArchiveGwtModule outer = this.outer();
+        final JarArchiveGwtModule inner = this.inner();
+
+        // the outer module is added last so the inner module is only found by its longer directory
+        final JarArchiveGwtModules modules = JarArchiveGwtModules.empty();
+        modules.add(inner);
+        modules.add(outer);
+
+        assertSame(outer, modules.module("walkingkooka/outer/Outer.java"));
+        assertSame(outer, modules.module("walkingkooka/outer/www/logo.png"));
+        assertSame(inner, modules.module("walkingkooka/outer/inner/Inner.java"));
+        assertSame(inner, modules.module("walkingkooka/outer/inner/deeper/Deeper.java"));
+        assertSame(outer, modules.module("walkingkooka/outer/innerx/Other.java"));
+    }
+
+    @Test
+    public void testModuleOrderIgnored() throws Exception {
+        final JarArchiveGwtModule outer = this.outer();
+        final JarArchiveGwtModule inner = this.inner();
+
+        final JarArchiveGwtModules modules = JarArchiveGwtModules.empty();
+        modules.add(outer);
+        modules.add(inner);
+
+        assertSame(outer, modules.module("walkingkooka/outer/Outer.java"));
+        assertSame(inner, modules.module("walkingkooka/outer/inner/Inner.java"));
+    }
+
+    @Test
+    public void testModuleOutsideEveryModuleUsesLast() throws Exception {
+        final JarArchiveGwtModule outer = this.outer();
+        final JarArchiveGwtModule inner = this.inner();
+
+        final JarArchiveGwtModules modules = JarArchiveGwtModules.empty();
+        modules.add(outer);
+        modules.add(inner);
+
+        assertSame(inner, modules.module("walkingkooka/other/Other.java"));
+        assertSame(inner, modules.module("walkingkooka/outer"));
+        assertSame(inner, modules.module("Root.java"));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(JarArchiveGwtModules.empty().isEmpty());
+    }
+
+    private JarArchiveGwtModule outer() throws XMLStreamException {
+        return parse(
+                OUTER,
+                "<module>\n  <public path=\"www\"/>\n  <super-source path=\"emul\"/>\n</module>\n"
+        );
+    }
+
+    private JarArchiveGwtModule inner() throws XMLStreamException {
+        return parse(
+                INNER,
+                "<module>\n  <public path=\"static\"/>\n  <super-source path=\"jre\"/>\n</module>\n"
+        );
+    }
+
+    private static JarArchiveGwtModule parse(final String path,
+                                             final String xml) throws XMLStreamException {
+        return JarArchiveGwtModule.parse(
+                path,
+                XMLInputFactory.newFactory()
+                        .createXMLStreamReader(
+                                new StringReader(xml)
+                        )
+        );
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.javashader.JavaShaders;
+import walkingkooka.reflect.PackageName;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public final class JarArchiveJavaShaderTest {
+
+    private final static Map<PackageName, PackageName> SHADINGS = shadings(
+            "java.util", "walkingkooka.j2cl.java.util",
+            "javax.annotation", "walkingkooka.j2cl.javax.annotation"
+    );
+
+    // with.............................................................................................................
+
+    @Test
+    public void testWithNonUtf8CharsetUnsupported() {
+        assertNull(JarArchiveJavaShader.with(SHADINGS, StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testWithOverlappingFromPackagesUnsupported() {
+        assertNull(
+                JarArchiveJavaShader.with(
+                        shadings(
+                                "java", "a",
+                                "java.util", "b"
+                        ),
+                        StandardCharsets.UTF_8
+                )
+        );
+    }
+
+    @Test
+    public void testWithFromPrefixOfToPackageUnsupported() {
+        assertNull(
+                JarArchiveJavaShader.with(
+                        shadings(
+                                "java.util", "a",
+                                "b", "java.util.b"
+                        ),
+                        StandardCharsets.UTF_8
+                )
+        );
+    }
+
+    @Test
+    public void testWithIdentityMappingSupported() {
+        final Map<PackageName, PackageName> shadings = shadings(
+                "java.lang", "java.lang",
+                "java.util", "walkingkooka.j2cl.java.util"
+        );
+        assertNotNull(JarArchiveJavaShader.with(shadings, StandardCharsets.UTF_8));
+
+        this.shadeAndCheck(
+                shadings,
+                "package a;\nimport java.lang.Object;\nimport java.util.List;\n",
+                "package a;\nimport java.lang.Object;\nimport walkingkooka.j2cl.java.util.List;\n"
+        );
+    }
+
+    // shade............................................................................................................
+
+    @Test
+    public void testShadeImportsAndQualifiedNames() {
+        this.shadeAndCheck(
+                "package a;\nimport java.util.List;\nimport javax.annotation.Nullable;\nclass A { java.util.Map<String, String> map; }\n",
+                "package a;\nimport walkingkooka.j2cl.java.util.List;\nimport walkingkooka.j2cl.javax.annotation.Nullable;\nclass A { walkingkooka.j2cl.java.util.Map<String, String> map; }\n"
+        );
+    }
+
+    @Test
+    public void testShadeNothingReturnsSameArray() {
+        final byte[] content = "package a;\nclass A { java.lang.Object object; }\n".getBytes(StandardCharsets.UTF_8);
+        assertEquals(
+                content,
+                this.shader(SHADINGS).shade(content)
+        );
+    }
+
+    @Test
+    public void testShadeSkipsLineComment() {
+        this.shadeAndCheck(
+                "package a;\n// java.util.List\nimport java.util.List;\n",
+                "package a;\n// java.util.List\nimport walkingkooka.j2cl.java.util.List;\n"
+        );
+    }
+
+    @Test
+    public void testShadeSkipsBlockComment() {
+        this.shadeAndCheck(
+                "package a;\n/* java.util.List\n * javax.annotation.Nullable */\nimport java.util.List;\n",
+                "package a;\n/* java.util.List\n * javax.annotation.Nullable */\nimport walkingkooka.j2cl.java.util.List;\n"
+        );
+    }
+
+    @Test
+    public void testShadeSkipsStringLiteral() {
+        this.shadeAndCheck(
+                "package a;\nclass A { String s = \"java.util.List \\\" java.util.Map\"; java.util.List list; }\n",
+                "package a;\nclass A { String s = \"java.util.List \\\" java.util.Map\"; walkingkooka.j2cl.java.util.List list; }\n"
+        );
+    }
+
+    @Test
+    public void testShadeSkipsCharLiteral() {
+        this.shadeAndCheck(
+                "package a;\nclass A { char c = '\"'; char d = '\\''; java.util.List list; }\n",
+                "package a;\nclass A { char c = '\"'; char d = '\\''; walkingkooka.j2cl.java.util.List list; }\n"
+        );
+    }
+
+    @Test
+    public void testShadeSkipsTextBlock() {
+        this.shadeAndCheck(
+                "package a;\nclass A { String s = \"\"\"\n  java.util.List \"\" \\\"\"\" java.util.Map\n  \"\"\"; java.util.List list; }\n",
+                "package a;\nclass A { String s = \"\"\"\n  java.util.List \"\" \\\"\"\" java.util.Map\n  \"\"\"; walkingkooka.j2cl.java.util.List list; }\n"
+        );
+    }
+
+    @Test
+    public void testShadeNonAsciiCommentAndString() {
+        this.shadeAndCheck(
+                "package a;\n// \u017elu\u0165ou\u010dk\u00fd java.util\nclass A { String s = \"k\u016f\u0148\"; java.util.List list; }\n",
+                "package a;\n// \u017elu\u0165ou\u010dk\u00fd java.util\nclass A { String s = \"k\u016f\u0148\"; walkingkooka.j2cl.java.util.List list; }\n"
+        );
+    }
+
+    @Test
+    public void testShadeUnicodeEscapeFallsBack() {
+        this.shadeAndCheck(
+                "package a;\nimport java.\\u0075til.List;\n",
+                null
+        );
+    }
+
+    @Test
+    public void testShadeNonAsciiIdentifierFallsBack() {
+        this.shadeAndCheck(
+                "package a;\nclass A { java.util.List k\u016f\u0148; }\n",
+                null
+        );
+    }
+
+    @Test
+    public void testShadeNonAsciiIdentifierAfterQualifiedNameFallsBack() {
+        this.shadeAndCheck(
+                "package a;\nimport java.util.\u017d;\n",
+                null
+        );
+    }
+
+    @Test
+    public void testShadeWhitespaceSplitNameFallsBack() {
+        this.shadeAndCheck(
+                "package a;\nimport java. util.List;\n",
+                null
+        );
+    }
+
+    @Test
+    public void testShadeWhitespaceBeforeDotFallsBack() {
+        this.shadeAndCheck(
+                "package a;\nimport java .util.List;\n",
+                null
+        );
+    }
+
+    @Test
+    public void testShadeCommentSplitNameFallsBack() {
+        this.shadeAndCheck(
+                "package a;\nimport java./* comment */util.List;\n",
+                null
+        );
+    }
+
+    @Test
+    public void testShadeOverlappingPackageNotShaded() {
+        this.shadeAndCheck(
+                "package a;\nimport java.utils.List;\nimport javax.annotations.Nullable;\n",
+                "package a;\nimport java.utils.List;\nimport javax.annotations.Nullable;\n"
+        );
+    }
+
+    @Test
+    public void testShadeSiblingPackages() {
+        this.shadeAndCheck(
+                shadings(
+                        "a.b", "x.b",
+                        "a.bc", "y.bc"
+                ),
+                "package p;\nimport a.b.B;\nimport a.bc.C;\nimport a.bcd.D;\n",
+                "package p;\nimport x.b.B;\nimport y.bc.C;\nimport a.bcd.D;\n"
+        );
+    }
+
+    @Test
+    public void testShadeUnterminatedCommentFallsBack() {
+        this.shadeAndCheck(
+                "package a;\nimport java.util.List;\n/* java.util",
+                null
+        );
+    }
+
+    private void shadeAndCheck(final String source,
+                               final String expected) {
+        this.shadeAndCheck(
+                SHADINGS,
+                source,
+                expected
+        );
+    }
+
+    /**
+     * Shades the source with the byte level shader, and when it is not null verifies the result is identical to
+     * {@link JavaShaders}, a null expected means the source must fall back to {@link JavaShaders}.
+     */
+    private void shadeAndCheck(final Map<PackageName, PackageName> shadings,
+                               final String source,
+                               final String expected) {
+        final byte[] content = source.getBytes(StandardCharsets.UTF_8);
+        final byte[] shaded = this.shader(shadings)
+                .shade(content);
+
+        if (null == expected) {
+            assertNull(shaded, () -> "shade " + source);
+        } else {
+            assertEquals(
+                    expected,
+                    new String(shaded, StandardCharsets.UTF_8),
+                    () -> "shade " + source
+            );
+            assertEquals(
+                    new String(
+                            JavaShaders.javaFilePackageShader(StandardCharsets.UTF_8)
+                                    .apply(content, shadings),
+                            StandardCharsets.UTF_8
+                    ),
+                    expected,
+                    () -> "java shader " + source
+            );
+        }
+    }
+
+    private JarArchiveJavaShader shader(final Map<PackageName, PackageName> shadings) {
+        final JarArchiveJavaShader shader = JarArchiveJavaShader.with(
+                shadings,
+                StandardCharsets.UTF_8
+        );
+        assertNotNull(shader, "shader");
+        return shader;
+    }
+
+    private static Map<PackageName, PackageName> shadings(final String... fromAndTo) {
+        final Map<PackageName, PackageName> shadings = Maps.ordered();
+
+        for (int i = 0; i < fromAndTo.length; i += 2) {
+            shadings.put(
+                    PackageName.with(fromAndTo[i]),
+                    PackageName.with(fromAndTo[i + 1])
+            );
+        }
+
+        return shadings;
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JarArchiveReaderTest {
+
+    private final static String STORED = "walkingkooka/Stored.txt";
+    private final static String DEFLATED = "walkingkooka/Deflated.java";
+    private final static String EMPTY = "walkingkooka/Empty.txt";
+    private final static String NON_ASCII = "walkingkooka/p\u0159\u00edli\u0161/\u017elu\u0165ou\u010dk\u00fd.txt";
+
+    private final static byte[] STORED_CONTENT = "stored content".getBytes(StandardCharsets.UTF_8);
+    private final static byte[] DEFLATED_CONTENT = repeat("package walkingkooka;\nclass Deflated {}\n", 100);
+    private final static byte[] NON_ASCII_CONTENT = "\u017elu\u0165ou\u010dk\u00fd k\u016f\u0148".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testEntries() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveReaderTest.class.getSimpleName());
+        try {
+            final Path jar = this.writeJar(directory);
+
+            try (final JarArchiveReader reader = JarArchiveReader.open(jar)) {
+                final List<JarArchiveReaderEntry> entries = reader.entries();
+                assertEquals(6, entries.size(), () -> entries.toString());
+
+                assertEquals("META-INF/MANIFEST.MF", entries.get(0).name());
+
+                final JarArchiveReaderEntry directoryEntry = entries.get(1);
+                assertEquals("walkingkooka/", directoryEntry.name());
+                assertTrue(directoryEntry.isDirectory());
+
+                this.checkEntry(reader, entries.get(2), STORED, ZipEntry.STORED, STORED_CONTENT);
+                this.checkEntry(reader, entries.get(3), DEFLATED, ZipEntry.DEFLATED, DEFLATED_CONTENT);
+                this.checkEntry(reader, entries.get(4), EMPTY, ZipEntry.DEFLATED, new byte[0]);
+                this.checkEntry(reader, entries.get(5), NON_ASCII, ZipEntry.DEFLATED, NON_ASCII_CONTENT);
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testRawContentDeflated() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveReaderTest.class.getSimpleName());
+        try {
+            final Path jar = this.writeJar(directory);
+
+            try (final JarArchiveReader reader = JarArchiveReader.open(jar)) {
+                final JarArchiveReaderEntry entry = reader.entries()
+                        .get(3);
+                final ByteBuffer raw = reader.rawContent(entry);
+
+                assertEquals(entry.compressedSize(), raw.remaining());
+                assertTrue(raw.remaining() < DEFLATED_CONTENT.length, "compressed");
+                assertTrue(raw.isReadOnly(), "read only");
+                assertArrayEquals(DEFLATED_CONTENT, JarArchiveReader.content(entry, raw));
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testContentCrcMismatchFails() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveReaderTest.class.getSimpleName());
+        try {
+            final Path jar = this.writeJar(directory);
+
+            try (final JarArchiveReader reader = JarArchiveReader.open(jar)) {
+                final JarArchiveReaderEntry entry = reader.entries()
+                        .get(2);
+                final JarArchiveReaderEntry corrupt = JarArchiveReaderEntry.with(
+                        entry.name(),
+                        entry.method(),
+                        entry.dosTime(),
+                        entry.lastModified(),
+                        entry.crc() ^ 1,
+                        entry.compressedSize(),
+                        entry.size(),
+                        entry.localHeaderOffset()
+                );
+
+                assertThrows(
+                        ZipException.class,
+                        () -> reader.content(corrupt)
+                );
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testZip64MoreThan65535Entries() throws Exception {
+        final int count = 0xFFFF + 10;
+
+        final Path directory = Files.createTempDirectory(JarArchiveReaderTest.class.getSimpleName());
+        try {
+            final Path zip = directory.resolve("zip64.zip");
+            try (final ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(zip))) {
+                for (int i = 0; i < count; i++) {
+                    output.putNextEntry(new ZipEntry("entry" + i + ".txt"));
+                    output.write(("" + i).getBytes(StandardCharsets.UTF_8));
+                    output.closeEntry();
+                }
+            }
+
+            try (final JarArchiveReader reader = JarArchiveReader.open(zip)) {
+                final List<JarArchiveReaderEntry> entries = reader.entries();
+                assertEquals(count, entries.size());
+
+                for (final int i : new int[]{0, 0xFFFF - 1, 0xFFFF, count - 1}) {
+                    final JarArchiveReaderEntry entry = entries.get(i);
+                    assertEquals("entry" + i + ".txt", entry.name());
+                    assertArrayEquals(
+                            ("" + i).getBytes(StandardCharsets.UTF_8),
+                            reader.content(entry)
+                    );
+                }
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testOpenNotZipFails() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveReaderTest.class.getSimpleName());
+        try {
+            final Path file = directory.resolve("not.jar");
+            Files.write(file, STORED_CONTENT);
+
+            assertThrows(
+                    ZipException.class,
+                    () -> JarArchiveReader.open(file)
+            );
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private Path writeJar(final Path directory) throws IOException {
+        final Path jar = directory.resolve("test.jar");
+
+        try (final JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar))) {
+            output.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            output.write("Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            output.closeEntry();
+
+            output.putNextEntry(new ZipEntry("walkingkooka/"));
+            output.closeEntry();
+
+            final ZipEntry stored = new ZipEntry(STORED);
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(STORED_CONTENT.length);
+            stored.setCompressedSize(STORED_CONTENT.length);
+            stored.setCrc(crc(STORED_CONTENT));
+            write(output, stored, STORED_CONTENT);
+
+            write(output, new ZipEntry(DEFLATED), DEFLATED_CONTENT);
+            write(output, new ZipEntry(EMPTY), new byte[0]);
+            write(output, new ZipEntry(NON_ASCII), NON_ASCII_CONTENT);
+        }
+
+        return jar;
+    }
+
+    private static void write(final ZipOutputStream output,
+                              final ZipEntry entry,
+                              final byte[] content) throws IOException {
+        output.putNextEntry(entry);
+        output.write(content);
+        output.closeEntry();
+    }
+
+    private void checkEntry(final JarArchiveReader reader,
+                            final JarArchiveReaderEntry entry,
+                            final String name,
+                            final int method,
+                            final byte[] content) throws IOException {
+        assertEquals(name, entry.name(), "name");
+        assertFalse(entry.isDirectory(), () -> name + " directory");
+        assertEquals(method, entry.method(), () -> name + " method");
+        assertEquals(content.length, entry.size(), () -> name + " size");
+        assertEquals(crc(content), entry.crc(), () -> name + " crc");
+        assertArrayEquals(content, reader.content(entry), () -> name + " content");
+    }
+
+    static byte[] repeat(final String text,
+                         final int count) {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            b.append(text);
+        }
+        return b.toString()
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    static long crc(final byte[] content) {
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    static void delete(final Path directory) throws IOException {
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+                Files.delete(path);
+            }
+        }
+    }
+}
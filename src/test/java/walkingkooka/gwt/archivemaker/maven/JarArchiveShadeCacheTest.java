@@ -0,0 +1,123 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.reflect.PackageName;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JarArchiveShadeCacheTest {
+
+    private final static byte[] SOURCE = "package a;\nimport java.util.List;\n".getBytes(StandardCharsets.UTF_8);
+    private final static byte[] SHADED = "package a;\nimport b.java.util.List;\n".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testShadeCachesShadedSource() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveShadeCacheTest.class.getSimpleName());
+        try {
+            final JarArchiveShadeCache cache = JarArchiveShadeCache.with(directory, 1024 * 1024);
+            final AtomicInteger calls = new AtomicInteger();
+            final UnaryOperator<byte[]> shader = (c) -> {
+                calls.incrementAndGet();
+                return SHADED;
+            };
+
+            assertArrayEquals(SHADED, cache.shade(SOURCE, index(), shader));
+            assertArrayEquals(SHADED, cache.shade(SOURCE, index(), shader));
+            assertEquals(1, calls.get(), "shader calls");
+
+            // a new cache over the same directory reuses the saved file
+            assertArrayEquals(SHADED, JarArchiveShadeCache.with(directory, 1024 * 1024).shade(SOURCE, index(), shader));
+            assertEquals(1, calls.get(), "shader calls");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testShadeUnchangedReturnsContent() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveShadeCacheTest.class.getSimpleName());
+        try {
+            final JarArchiveShadeCache cache = JarArchiveShadeCache.with(directory, 1024 * 1024);
+            final AtomicInteger calls = new AtomicInteger();
+            final UnaryOperator<byte[]> shader = (c) -> {
+                calls.incrementAndGet();
+                return c.clone();
+            };
+
+            assertSame(SOURCE, cache.shade(SOURCE, index(), shader));
+            assertSame(SOURCE, cache.shade(SOURCE, index(), shader));
+            assertEquals(1, calls.get(), "shader calls");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testShadeEvictsBeyondMaxSize() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveShadeCacheTest.class.getSimpleName());
+        try {
+            final int maxSize = 10 * SHADED.length;
+            final JarArchiveShadeCache cache = JarArchiveShadeCache.with(directory, maxSize);
+
+            for (int i = 0; i < 100; i++) {
+                cache.shade(
+                        ("package a" + i + ";\n").getBytes(StandardCharsets.UTF_8),
+                        index(),
+                        (c) -> SHADED
+                );
+            }
+
+            final long size;
+            try (final Stream<Path> files = Files.walk(directory)) {
+                size = files.filter(Files::isRegularFile)
+                        .mapToLong(f -> f.toFile().length())
+                        .sum();
+            }
+            assertTrue(size <= maxSize, () -> "cache size " + size + " > " + maxSize);
+            assertTrue(size > 0, "cache empty");
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    private static JarArchiveShadeIndex index() {
+        final Map<PackageName, PackageName> shadings = Maps.ordered();
+        shadings.put(
+                PackageName.with("java.util"),
+                PackageName.with("b.java.util")
+        );
+        return JarArchiveShadeIndex.with(
+                shadings,
+                StandardCharsets.UTF_8
+        );
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.reflect.PackageName;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class JarArchiveShadeIndexTest {
+
+    @Test
+    public void testMappingNone() {
+        assertNull(
+                index("walkingkooka.a", "java.util")
+                        .mapping("walkingkooka/b/B.java")
+        );
+    }
+
+    @Test
+    public void testMapping() {
+        final JarArchiveShadeIndex.Mapping mapping = index("walkingkooka.a", "java.util")
+                .mapping("walkingkooka/a/A.java");
+
+        assertTrue(mapping.isShaded(), "shaded");
+        assertEquals("java/util/A.java", mapping.toPath("walkingkooka/a/A.java"));
+    }
+
+    @Test
+    public void testMappingFirstWinsOverLongerPrefix() {
+        final JarArchiveShadeIndex index = index(
+                "walkingkooka.a", "first",
+                "walkingkooka.a.b", "second"
+        );
+
+        final String path = "walkingkooka/a/b/B.java";
+        assertEquals("first/b/B.java", index.mapping(path).toPath(path));
+    }
+
+    @Test
+    public void testMappingFirstLongerPrefix() {
+        final JarArchiveShadeIndex index = index(
+                "walkingkooka.a.b", "first",
+                "walkingkooka.a", "second"
+        );
+
+        final String path = "walkingkooka/a/b/B.java";
+        assertEquals("first/B.java", index.mapping(path).toPath(path));
+        assertEquals("second/A.java", index.mapping("walkingkooka/a/A.java").toPath("walkingkooka/a/A.java"));
+    }
+
+    @Test
+    public void testMappingIdentity() {
+        final JarArchiveShadeIndex.Mapping mapping = index("walkingkooka.a", "walkingkooka.a")
+                .mapping("walkingkooka/a/A.class");
+
+        assertFalse(mapping.isShaded(), "shaded");
+        assertEquals("walkingkooka/a/A.class", mapping.toPath("walkingkooka/a/A.class"));
+    }
+
+    @Test
+    public void testMappingPrefixIsNotPackageBoundary() {
+        // the directory is a plain prefix of the path, as it was when every mapping was scanned
+        final String path = "walkingkooka/ab/AB.java";
+        assertEquals(
+                "java/utilb/AB.java",
+                index("walkingkooka.a", "java.util")
+                        .mapping(path)
+                        .toPath(path)
+        );
+    }
+
+    @Test
+    public void testMappingSameAsLinearScan() {
+        final Map<PackageName, PackageName> shadings = shadings(
+                "a.b.c", "x1",
+                "a", "x2",
+                "a.b", "x3",
+                "a.bc", "x4",
+                "a.b.c.d", "x5",
+                "b", "b",
+                "b.c", "x6"
+        );
+        final JarArchiveShadeIndex index = JarArchiveShadeIndex.with(shadings, StandardCharsets.UTF_8);
+
+        final List<String> directories = Lists.of(
+                "", "a/", "a/b/", "a/b/c/", "a/b/c/d/", "a/b/c/d/e/", "a/bc/", "a/bcd/", "b/", "b/c/", "b/cd/", "c/", "ab/"
+        );
+
+        int mapped = 0;
+        for (final String directory : directories) {
+            for (final String file : new String[]{"X.java", "X.class"}) {
+                final String path = directory + file;
+                final String expected = linearScan(shadings, path);
+                final JarArchiveShadeIndex.Mapping mapping = index.mapping(path);
+
+                assertEquals(
+                        expected,
+                        null != mapping ?
+                                mapping.toPath(path) :
+                                null,
+                        path
+                );
+                if (null != expected) {
+                    mapped++;
+                }
+            }
+        }
+
+        assertNotEquals(0, mapped, "mapped");
+    }
+
+    /**
+     * Moves the path using the first shading in order whose from directory is a prefix, the scan performed for every
+     * mapping before the index.
+     */
+    private static String linearScan(final Map<PackageName, PackageName> shadings,
+                                     final String path) {
+        for (final Map.Entry<PackageName, PackageName> shading : shadings.entrySet()) {
+            final String fromDirectory = shading.getKey().value().replace('.', '/');
+            if (path.startsWith(fromDirectory)) {
+                return shading.getValue().value().replace('.', '/') + path.substring(fromDirectory.length());
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testFingerprintIgnoresCharset() {
+        assertEquals(
+                index("walkingkooka.a", "java.util").fingerprint(),
+                JarArchiveShadeIndex.with(shadings("walkingkooka.a", "java.util"), StandardCharsets.ISO_8859_1).fingerprint()
+        );
+    }
+
+    @Test
+    public void testFingerprintOrder() {
+        assertNotEquals(
+                index("a", "x", "b", "y").fingerprint(),
+                index("b", "y", "a", "x").fingerprint()
+        );
+    }
+
+    @Test
+    public void testIsEmpty() {
+        assertTrue(index().isEmpty());
+        assertFalse(index("a", "b").isEmpty());
+    }
+
+    private static JarArchiveShadeIndex index(final String... fromAndTo) {
+        return JarArchiveShadeIndex.with(
+                shadings(fromAndTo),
+                StandardCharsets.UTF_8
+        );
+    }
+
+    private static Map<PackageName, PackageName> shadings(final String... fromAndTo) {
+        final Map<PackageName, PackageName> shadings = Maps.ordered();
+
+        for (int i = 0; i < fromAndTo.length; i += 2) {
+            shadings.put(
+                    PackageName.with(fromAndTo[i]),
+                    PackageName.with(fromAndTo[i + 1])
+            );
+        }
+
+        return shadings;
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2023 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.gwt.archivemaker.maven;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class JarArchiveWriterTest {
+
+    private final static long LAST_MODIFIED = Instant.parse("2023-01-02T03:04:06Z")
+            .toEpochMilli();
+
+    private final static String STORED = "walkingkooka/Stored.txt";
+    private final static String DEFLATED = "walkingkooka/Deflated.java";
+    private final static String EMPTY_STORED = "walkingkooka/EmptyStored.txt";
+    private final static String EMPTY_DEFLATED = "walkingkooka/EmptyDeflated.txt";
+    private final static String NON_ASCII = "walkingkooka/p\u0159\u00edli\u0161/\u017elu\u0165ou\u010dk\u00fd.txt";
+
+    private final static byte[] STORED_CONTENT = "stored content".getBytes(StandardCharsets.UTF_8);
+    private final static byte[] DEFLATED_CONTENT = JarArchiveReaderTest.repeat("package walkingkooka;\nclass Deflated {}\n", 100);
+    private final static byte[] NON_ASCII_CONTENT = "\u017elu\u0165ou\u010dk\u00fd k\u016f\u0148".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testWriteReadByJarFile() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveWriterTest.class.getSimpleName());
+        try {
+            final Path jar = this.writeJar(directory.resolve("test.jar"));
+
+            try (final JarFile jarFile = new JarFile(jar.toFile())) {
+                assertEquals(5, jarFile.size());
+
+                this.checkJarEntry(jarFile, STORED, ZipEntry.STORED, STORED_CONTENT);
+                this.checkJarEntry(jarFile, DEFLATED, ZipEntry.DEFLATED, DEFLATED_CONTENT);
+                this.checkJarEntry(jarFile, EMPTY_STORED, ZipEntry.STORED, new byte[0]);
+                this.checkJarEntry(jarFile, EMPTY_DEFLATED, ZipEntry.DEFLATED, new byte[0]);
+                this.checkJarEntry(jarFile, NON_ASCII, ZipEntry.DEFLATED, NON_ASCII_CONTENT);
+            }
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    private void checkJarEntry(final JarFile jarFile,
+                               final String name,
+                               final int method,
+                               final byte[] content) throws IOException {
+        final JarEntry entry = jarFile.getJarEntry(name);
+        assertNotNull(entry, name);
+        assertEquals(method, entry.getMethod(), () -> name + " method");
+        assertEquals(content.length, entry.getSize(), () -> name + " size");
+        assertEquals(JarArchiveReaderTest.crc(content), entry.getCrc(), () -> name + " crc");
+        assertEquals(LAST_MODIFIED, entry.getTime(), () -> name + " time");
+
+        try (final InputStream input = jarFile.getInputStream(entry)) {
+            assertArrayEquals(content, input.readAllBytes(), () -> name + " content");
+        }
+    }
+
+    @Test
+    public void testWriteReadByZipInputStream() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveWriterTest.class.getSimpleName());
+        try {
+            final Path jar = this.writeJar(directory.resolve("test.jar"));
+
+            // ZipInputStream reads the local headers and verifies the size and CRC of every entry
+            try (final ZipInputStream input = new ZipInputStream(Files.newInputStream(jar))) {
+                this.checkZipEntry(input, STORED, ZipEntry.STORED, STORED_CONTENT);
+                this.checkZipEntry(input, DEFLATED, ZipEntry.DEFLATED, DEFLATED_CONTENT);
+                this.checkZipEntry(input, EMPTY_STORED, ZipEntry.STORED, new byte[0]);
+                this.checkZipEntry(input, EMPTY_DEFLATED, ZipEntry.DEFLATED, new byte[0]);
+                this.checkZipEntry(input, NON_ASCII, ZipEntry.DEFLATED, NON_ASCII_CONTENT);
+                assertNull(input.getNextEntry());
+            }
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    private void checkZipEntry(final ZipInputStream input,
+                               final String name,
+                               final int method,
+                               final byte[] content) throws IOException {
+        final ZipEntry entry = input.getNextEntry();
+        assertNotNull(entry, name);
+        assertEquals(name, entry.getName());
+        assertEquals(method, entry.getMethod(), () -> name + " method");
+        assertArrayEquals(content, input.readAllBytes(), () -> name + " content");
+    }
+
+    @Test
+    public void testWriteReadByJarArchiveReader() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveWriterTest.class.getSimpleName());
+        try {
+            final Path jar = this.writeJar(directory.resolve("test.jar"));
+
+            try (final JarArchiveReader reader = JarArchiveReader.open(jar)) {
+                final List<JarArchiveReaderEntry> entries = reader.entries();
+                assertEquals(5, entries.size());
+
+                assertEquals(NON_ASCII, entries.get(4).name());
+                assertArrayEquals(NON_ASCII_CONTENT, reader.content(entries.get(4)));
+            }
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testWriteSameContentByteIdentical() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveWriterTest.class.getSimpleName());
+        try {
+            assertArrayEquals(
+                    Files.readAllBytes(this.writeJar(directory.resolve("first.jar"))),
+                    Files.readAllBytes(this.writeJar(directory.resolve("second.jar")))
+            );
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testWriteDuplicateFails() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveWriterTest.class.getSimpleName());
+        try (final JarArchiveWriter writer = writer(directory.resolve("test.jar"))) {
+            writer.write(STORED, LAST_MODIFIED, ByteBuffer.wrap(STORED_CONTENT));
+
+            assertThrows(
+                    ZipException.class,
+                    () -> writer.write(STORED, LAST_MODIFIED, ByteBuffer.wrap(STORED_CONTENT))
+            );
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testWriteZip64MoreThan65535Entries() throws Exception {
+        final int count = 0xFFFF + 10;
+
+        final Path directory = Files.createTempDirectory(JarArchiveWriterTest.class.getSimpleName());
+        try {
+            final Path jar = directory.resolve("zip64.jar");
+            try (final JarArchiveWriter writer = writer(jar)) {
+                for (int i = 0; i < count; i++) {
+                    writer.write(
+                            "entry" + i + ".txt",
+                            LAST_MODIFIED,
+                            ByteBuffer.wrap(("" + i).getBytes(StandardCharsets.UTF_8)),
+                            0 == i % 2 ?
+                                    Deflater.NO_COMPRESSION :
+                                    Deflater.BEST_SPEED
+                    );
+                }
+            }
+
+            try (final JarFile jarFile = new JarFile(jar.toFile())) {
+                assertEquals(count, jarFile.size());
+
+                int i = 0;
+                final Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    final JarEntry entry = entries.nextElement();
+                    assertEquals("entry" + i + ".txt", entry.getName());
+                    i++;
+                }
+                assertEquals(count, i);
+
+                try (final InputStream input = jarFile.getInputStream(jarFile.getEntry("entry" + (count - 1) + ".txt"))) {
+                    assertArrayEquals(
+                            ("" + (count - 1)).getBytes(StandardCharsets.UTF_8),
+                            input.readAllBytes()
+                    );
+                }
+            }
+
+            try (final ZipInputStream input = new ZipInputStream(Files.newInputStream(jar))) {
+                int i = 0;
+                for (ZipEntry entry = input.getNextEntry(); null != entry; entry = input.getNextEntry()) {
+                    assertArrayEquals(
+                            ("" + i).getBytes(StandardCharsets.UTF_8),
+                            input.readAllBytes(),
+                            entry.getName()
+                    );
+                    i++;
+                }
+                assertEquals(count, i);
+            }
+
+            try (final JarArchiveReader reader = JarArchiveReader.open(jar)) {
+                assertEquals(count, reader.entries().size());
+            }
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testWriteRawCopyPreservesCompressedBytesAndCrc() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveWriterTest.class.getSimpleName());
+        try {
+            final Path jar = this.writeJar(directory.resolve("test.jar"));
+            final Path copy = directory.resolve("copy.jar");
+
+            try (final JarArchiveReader reader = JarArchiveReader.open(jar)) {
+                try (final JarArchiveWriter writer = writer(copy)) {
+                    for (final JarArchiveReaderEntry entry : reader.entries()) {
+                        final JarArchiveWriterEntry raw = JarArchiveWriterEntry.raw(
+                                entry.name(),
+                                entry.lastModified(),
+                                entry,
+                                reader.rawContent(entry)
+                        );
+                        assertEquals(entry.crc(), raw.crc(), entry.name());
+                        raw.write(writer);
+                    }
+                }
+
+                try (final JarArchiveReader copyReader = JarArchiveReader.open(copy)) {
+                    final List<JarArchiveReaderEntry> entries = reader.entries();
+                    final List<JarArchiveReaderEntry> copied = copyReader.entries();
+                    assertEquals(entries.size(), copied.size());
+
+                    for (int i = 0; i < entries.size(); i++) {
+                        final JarArchiveReaderEntry entry = entries.get(i);
+                        final JarArchiveReaderEntry copiedEntry = copied.get(i);
+
+                        assertEquals(entry.name(), copiedEntry.name());
+                        assertEquals(entry.method(), copiedEntry.method(), entry.name());
+                        assertEquals(entry.crc(), copiedEntry.crc(), entry.name());
+                        assertEquals(entry.size(), copiedEntry.size(), entry.name());
+                        assertEquals(
+                                reader.rawContent(entry),
+                                copyReader.rawContent(copiedEntry),
+                                entry.name()
+                        );
+                    }
+                }
+            }
+
+            // the copy is byte identical because the same bytes were written in the same order
+            assertArrayEquals(
+                    Files.readAllBytes(jar),
+                    Files.readAllBytes(copy)
+            );
+
+            try (final ZipInputStream input = new ZipInputStream(Files.newInputStream(copy))) {
+                this.checkZipEntry(input, STORED, ZipEntry.STORED, STORED_CONTENT);
+                this.checkZipEntry(input, DEFLATED, ZipEntry.DEFLATED, DEFLATED_CONTENT);
+            }
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    @Test
+    public void testRawWithWrongLengthFails() throws Exception {
+        final Path directory = Files.createTempDirectory(JarArchiveWriterTest.class.getSimpleName());
+        try {
+            final Path jar = this.writeJar(directory.resolve("test.jar"));
+
+            try (final JarArchiveReader reader = JarArchiveReader.open(jar)) {
+                final JarArchiveReaderEntry entry = reader.entries()
+                        .get(1);
+
+                assertThrows(
+                        IllegalArgumentException.class,
+                        () -> JarArchiveWriterEntry.raw(
+                                entry.name(),
+                                entry.lastModified(),
+                                entry,
+                                ByteBuffer.allocate(1)
+                        )
+                );
+            }
+        } finally {
+            JarArchiveReaderTest.delete(directory);
+        }
+    }
+
+    private Path writeJar(final Path jar) throws IOException {
+        try (final JarArchiveWriter writer = writer(jar)) {
+            writer.write(STORED, LAST_MODIFIED, ByteBuffer.wrap(STORED_CONTENT), Deflater.NO_COMPRESSION);
+            writer.write(DEFLATED, LAST_MODIFIED, ByteBuffer.wrap(DEFLATED_CONTENT));
+            writer.write(EMPTY_STORED, LAST_MODIFIED, ByteBuffer.allocate(0), Deflater.NO_COMPRESSION);
+            writer.write(EMPTY_DEFLATED, LAST_MODIFIED, ByteBuffer.allocate(0), Deflater.BEST_COMPRESSION);
+            writer.write(NON_ASCII, LAST_MODIFIED, ByteBuffer.wrap(NON_ASCII_CONTENT), Deflater.BEST_SPEED);
+        }
+        return jar;
+    }
+
+    private static JarArchiveWriter writer(final Path jar) throws IOException {
+        return JarArchiveWriter.with(
+                FileChannel.open(
+                        jar,
+                        StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE
+                ),
+                ZoneId.systemDefault()
+        );
+    }
+}